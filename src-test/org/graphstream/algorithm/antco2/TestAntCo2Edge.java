@@ -0,0 +1,198 @@
+/*
+ * This file is part of AntCo2.
+ * 
+ * AntCo2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * AntCo2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with AntCo2.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009 - 2010
+ * 	Antoine Dutot
+ * 	Guilhelm Savin
+ */
+package org.graphstream.algorithm.antco2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.graphstream.algorithm.antco2.storage.SparseStorage;
+import org.junit.Test;
+
+/**
+ * Pheromones of edges, in and out of the storage of their context.
+ */
+public class TestAntCo2Edge {
+	/**
+	 * Context with some colonies on a complete graph.
+	 */
+	protected AntContext complete(AntParams.StoragePolicy policy,
+			int colonies, int nodes) {
+		AntContext ctx = new AntContext();
+
+		ctx.params.randomSeed = 7;
+		ctx.params.storagePolicy = policy;
+		ctx.params.sparseColonies = 2;
+		ctx.init();
+
+		for (int c = 0; c < colonies; c++)
+			ctx.addColony("C" + c);
+
+		AntCo2Graph g = ctx.getInternalGraph();
+
+		for (int i = 0; i < nodes; i++)
+			g.addNode("n" + i);
+
+		for (int i = 0; i < nodes; i++)
+			for (int j = i + 1; j < nodes; j++)
+				g.addEdge(i + "-" + j, "n" + i, "n" + j);
+
+		return ctx;
+	}
+
+	@Test
+	public void sparseTotalsMatchTheEntries() {
+		AntContext ctx = complete(AntParams.StoragePolicy.SPARSE, 6, 6);
+		SparseStorage storage = (SparseStorage) ctx.getStorage();
+
+		// Only the colonies kept drop their initial pheromones.
+
+		for (AntCo2Edge e : ctx.eachEdge())
+			assertTrue(storage.getDropCount(e.arrayIndex) <= 2);
+
+		for (int step = 0; step < 20; step++) {
+			ctx.step();
+
+			for (AntCo2Edge e : ctx.eachEdge()) {
+				int row = e.arrayIndex;
+				int entries = storage.getEntryCount(row);
+				float total = storage.getFloor() * (6 - entries);
+
+				assertTrue(entries <= 2);
+
+				for (int i = 0; i < entries; i++)
+					total += storage.getEntryPheromone(row, i);
+
+				assertEquals(total, e.getPheromonTotal(), total * 1e-5f);
+			}
+		}
+
+		ctx.terminate();
+	}
+
+	@Test
+	public void setBeforeAddAndAfterRemove() {
+		AntContext ctx = complete(AntParams.StoragePolicy.OBJECT, 2, 2);
+		AntCo2Graph g = ctx.getInternalGraph();
+		AntCo2Node a = g.getNode("n0");
+		AntCo2Node b = g.getNode("n1");
+		AntCo2Edge loose = new AntCo2Edge(ctx, 1, "loose", a, b, false);
+
+		loose.setPheromon(ctx.getColony(1), 0.5f);
+
+		assertEquals(0.5f, loose.initialPheromones[1], 0);
+		assertEquals(loose.initialPheromones[0] + 0.5f,
+				loose.pheromonesTotal, 1e-6f);
+
+		loose.setPheromon(null, 0.25f);
+
+		assertEquals(0.5f, loose.pheromonesTotal, 0);
+
+		AntCo2Edge removed = g.getEdge("0-1");
+
+		g.removeNode("n1");
+		removed.setPheromon(ctx.getColony(1), 1);
+		removed.setPheromon(null, 1);
+
+		assertEquals(0, removed.getPheromon(1), 0);
+
+		ctx.terminate();
+	}
+
+	/**
+	 * Add a colony after some steps without ants, and check that the other
+	 * colonies read the same pheromones as before, and the new one the
+	 * initial value.
+	 */
+	protected void addColonyLate(boolean lazy,
+			AntParams.PheromoneNumerics numerics) {
+		AntContext ctx = new AntContext();
+
+		ctx.params.randomSeed = 3;
+		ctx.params.antsPerVertex = 0;
+		ctx.params.antsPerVertexPerColor = 0;
+		ctx.params.rho = 0.01f;
+		ctx.params.lazyEvaporation = lazy;
+		ctx.params.pheromoneNumerics = numerics;
+		ctx.init();
+		ctx.addColony("A");
+
+		AntCo2Graph g = ctx.getInternalGraph();
+
+		g.addNode("a");
+		g.addNode("b");
+		g.addEdge("ab", "a", "b");
+
+		for (int step = 0; step < 8; step++)
+			ctx.step();
+
+		AntCo2Edge edge = g.getEdge("ab");
+		float before = edge.getPheromon(0);
+
+		ctx.addColony("B");
+
+		assertEquals(before, edge.getPheromon(0), before * 1e-5f);
+		assertEquals(0.000001f, edge.getPheromon(1), 1e-12f);
+
+		ctx.terminate();
+	}
+
+	@Test
+	public void newColoniesSkipPendingEvaporation() {
+		addColonyLate(true, AntParams.PheromoneNumerics.RAW);
+	}
+
+	@Test
+	public void newColoniesSkipTheScale() {
+		addColonyLate(false, AntParams.PheromoneNumerics.RENORMALIZE);
+	}
+
+	@Test
+	public void fixedDropsSaturate() {
+		AntContext ctx = new AntContext();
+
+		ctx.params.antsPerVertex = 0;
+		ctx.params.antsPerVertexPerColor = 0;
+		ctx.params.fixedPointBits = 40;
+		ctx.init();
+		ctx.addColony("A");
+
+		AntCo2Graph g = ctx.getInternalGraph();
+
+		g.addNode("a");
+		g.addNode("b");
+		g.addEdge("ab", "a", "b");
+
+		AntCo2Edge edge = g.getEdge("ab");
+		float before = ctx.getStorage().getPheromoneTmp(edge.arrayIndex, 0);
+
+		// Each drop fits in 2^23, their sum does not.
+
+		edge.incrPheromon(0, 6000000);
+		edge.incrPheromon(0, 6000000);
+		edge.incrPheromon(0, 1);
+		edge.commitFixed();
+
+		assertEquals(before + (float) (Long.MAX_VALUE / Math.scalb(1.0, 40)),
+				ctx.getStorage().getPheromoneTmp(edge.arrayIndex, 0), 0);
+
+		ctx.terminate();
+	}
+}
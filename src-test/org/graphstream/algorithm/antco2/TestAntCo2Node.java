@@ -0,0 +1,95 @@
+/*
+ * This file is part of AntCo2.
+ * 
+ * AntCo2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * AntCo2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with AntCo2.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009 - 2010
+ * 	Antoine Dutot
+ * 	Guilhelm Savin
+ */
+package org.graphstream.algorithm.antco2;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import org.graphstream.algorithm.antco2.species.AgoraphomyrmexColony;
+import org.junit.Test;
+
+/**
+ * Colour changes of nodes.
+ */
+public class TestAntCo2Node {
+	/**
+	 * Colours of the nodes of a grid after some steps.
+	 */
+	protected int[] colorsOfGrid(int size, int steps,
+			AntParams.PheromoneNumerics numerics, boolean dirtyNodes) {
+		AntContext ctx = new AntContext();
+
+		ctx.params.randomSeed = 42;
+		ctx.params.colonySpecies = AgoraphomyrmexColony.class.getName();
+		ctx.params.pheromoneNumerics = numerics;
+		ctx.params.pheromoneFloor = 0.3f;
+		ctx.params.lazyEvaporation = true;
+		ctx.params.dirtyNodes = dirtyNodes;
+		ctx.init();
+
+		for (int c = 0; c < 4; c++)
+			ctx.addColony("C" + c);
+
+		AntCo2Graph g = ctx.getInternalGraph();
+
+		for (int i = 0; i < size; i++)
+			for (int j = 0; j < size; j++)
+				g.addNode(i + "_" + j);
+
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				if (i + 1 < size)
+					g.addEdge(i + "_" + j + "-" + (i + 1) + "_" + j, i + "_"
+							+ j, (i + 1) + "_" + j);
+				if (j + 1 < size)
+					g.addEdge(i + "_" + j + "-" + i + "_" + (j + 1), i + "_"
+							+ j, i + "_" + (j + 1));
+			}
+		}
+
+		for (int step = 0; step < steps; step++)
+			ctx.step();
+
+		int[] colors = new int[size * size];
+
+		for (int i = 0; i < colors.length; i++) {
+			AntCo2Node n = g.getNode((i / size) + "_" + (i % size));
+			colors[i] = n.getColor() == null ? -1 : n.getColor().getIndex();
+		}
+
+		ctx.terminate();
+
+		return colors;
+	}
+
+	@Test
+	public void dirtyNodesKeepTheColors() {
+		assertArrayEquals(colorsOfGrid(8, 30,
+				AntParams.PheromoneNumerics.RAW, false), colorsOfGrid(8, 30,
+				AntParams.PheromoneNumerics.RAW, true));
+	}
+
+	@Test
+	public void flushedPheromonesRecolorCleanNodes() {
+		assertArrayEquals(colorsOfGrid(8, 30,
+				AntParams.PheromoneNumerics.FLUSH, false), colorsOfGrid(8, 30,
+				AntParams.PheromoneNumerics.FLUSH, true));
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * This file is part of AntCo2.
+ * 
+ * AntCo2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * AntCo2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with AntCo2.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009 - 2010
+ * 	Antoine Dutot
+ * 	Guilhelm Savin
+ */
+package org.graphstream.algorithm.antco2;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import org.graphstream.algorithm.antco2.species.AgoraphomyrmexColony;
+import org.graphstream.algorithm.antco2.species.VincomyrmexColony;
+import org.junit.Test;
+
+/**
+ * Runs on several threads give the same results as on one thread, bit for
+ * bit.
+ */
+public class TestAntContext {
+	/**
+	 * Run a grid, removing and adding a node halfway, and give the colour and
+	 * ant count of each node followed by the bits of the pheromones of each
+	 * edge. A null species keeps the default one.
+	 */
+	protected int[] runGrid(String species, boolean compact,
+			int parallelism, int antsPerSlice) {
+		AntContext ctx = new AntContext();
+		int size = 10;
+		int steps = 20;
+
+		ctx.params.randomSeed = 42;
+
+		if (species != null)
+			ctx.params.colonySpecies = species;
+
+		ctx.params.compactPopulation = compact;
+		ctx.params.parallelism = parallelism;
+		ctx.params.antsPerSlice = antsPerSlice;
+		ctx.params.edgeParallelism = parallelism;
+		ctx.params.nodeParallelism = parallelism;
+		ctx.init();
+
+		for (int c = 0; c < 4; c++)
+			ctx.addColony("C" + c);
+
+		AntCo2Graph g = ctx.getInternalGraph();
+
+		for (int i = 0; i < size; i++)
+			for (int j = 0; j < size; j++)
+				g.addNode(i + "_" + j);
+
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				if (i + 1 < size)
+					g.addEdge(i + "_" + j + "-" + (i + 1) + "_" + j, i + "_"
+							+ j, (i + 1) + "_" + j);
+				if (j + 1 < size)
+					g.addEdge(i + "_" + j + "-" + i + "_" + (j + 1), i + "_"
+							+ j, i + "_" + (j + 1));
+			}
+		}
+
+		for (int step = 0; step < steps; step++) {
+			if (step == steps / 2) {
+				g.removeNode("1_1");
+				g.addNode("x");
+				g.addEdge("x-0", "x", "0_0");
+				g.addEdge("x-2", "x", "2_2");
+			}
+
+			ctx.step();
+		}
+
+		int[] result = new int[2 * g.getNodeCount() + 4 * g.getEdgeCount()];
+		int r = 0;
+
+		for (AntCo2Node n : ctx.eachNode()) {
+			result[r++] = n.getColor() == null ? -1 : n.getColor().getIndex();
+			result[r++] = n.getTotalAntCount();
+		}
+
+		for (AntCo2Edge e : ctx.eachEdge())
+			for (int c = 0; c < 4; c++)
+				result[r++] = Float.floatToIntBits(e.getPheromon(c));
+
+		ctx.terminate();
+
+		return result;
+	}
+
+	protected void checkThreads(String species, boolean compact) {
+		int[] sequential = runGrid(species, compact, 1, 4096);
+
+		assertArrayEquals(sequential, runGrid(species, compact, 4, 4096));
+		assertArrayEquals(sequential, runGrid(species, compact, 4, 64));
+		assertArrayEquals(sequential, runGrid(species, compact, 3, 7));
+	}
+
+	@Test
+	public void defaultColoniesOnThreads() {
+		checkThreads(null, false);
+	}
+
+	@Test
+	public void agoraphomyrmexOnThreads() {
+		checkThreads(AgoraphomyrmexColony.class.getName(), false);
+	}
+
+	@Test
+	public void vincomyrmexOnThreads() {
+		checkThreads(VincomyrmexColony.class.getName(), false);
+	}
+
+	@Test
+	public void compactPopulationOnThreads() {
+		checkThreads(AgoraphomyrmexColony.class.getName(), true);
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * This file is part of AntCo2.
+ * 
+ * AntCo2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * AntCo2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with AntCo2.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009 - 2010
+ * 	Antoine Dutot
+ * 	Guilhelm Savin
+ */
+package org.graphstream.algorithm.antco2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Ants kept in parallel arrays.
+ */
+public class TestAntPopulation {
+	/**
+	 * Context without ants holding some nodes.
+	 */
+	protected AntContext context(int nodes) {
+		AntContext ctx = new AntContext();
+
+		ctx.params.antsPerVertex = 0;
+		ctx.params.antsPerVertexPerColor = 0;
+		ctx.init();
+		ctx.addColony("A");
+
+		for (int i = 0; i < nodes; i++)
+			ctx.getInternalGraph().addNode("n" + i);
+
+		return ctx;
+	}
+
+	protected AntCo2Node node(AntContext ctx, int i) {
+		return ctx.getInternalGraph().getNode("n" + i);
+	}
+
+	/**
+	 * Make an ant remember a node.
+	 */
+	protected void remember(AntPopulation pop, int ant, AntCo2Node node) {
+		TabuMemory mem = new TabuMemory(0);
+
+		pop.wrapMemory(mem, ant);
+		mem.add(node);
+		pop.unwrapMemory(mem, ant);
+	}
+
+	protected boolean remembers(AntPopulation pop, int ant, AntCo2Node node) {
+		TabuMemory mem = new TabuMemory(0);
+
+		pop.wrapMemory(mem, ant);
+
+		return mem.contains(node);
+	}
+
+	@Test
+	public void removeMovesTheLastAnt() {
+		AntContext ctx = context(3);
+		AntPopulation pop = new AntPopulation(2);
+
+		for (int i = 0; i < 3; i++) {
+			int ant = pop.add(node(ctx, i));
+
+			pop.setState(ant, 10 + i);
+			pop.setLastJump(ant, 20 + i);
+			remember(pop, ant, node(ctx, i));
+		}
+
+		pop.remove(0);
+
+		assertEquals(2, pop.getSize());
+		assertEquals(2, pop.getId(0));
+		assertSame(node(ctx, 2), pop.getNode(0));
+		assertEquals(12, pop.getState(0));
+		assertEquals(22, pop.getLastJump(0));
+		assertTrue(remembers(pop, 0, node(ctx, 2)));
+		assertFalse(remembers(pop, 0, node(ctx, 0)));
+		assertEquals(1, pop.getId(1));
+		assertTrue(remembers(pop, 1, node(ctx, 1)));
+
+		// The last ant leaves no reference behind.
+
+		pop.remove(1);
+
+		assertEquals(1, pop.getSize());
+		assertNull(pop.nodes[1]);
+
+		ctx.terminate();
+	}
+
+	@Test
+	public void idsAreNeverReused() {
+		AntContext ctx = context(1);
+		AntPopulation pop = new AntPopulation(2);
+
+		pop.add(node(ctx, 0));
+		pop.add(node(ctx, 0));
+		pop.remove(1);
+
+		int ant = pop.add(node(ctx, 0));
+
+		assertEquals(1, ant);
+		assertEquals(2, pop.getId(ant));
+		assertEquals(0, pop.getState(ant));
+		assertEquals(-2, pop.getLastJump(ant));
+		assertFalse(remembers(pop, ant, node(ctx, 0)));
+
+		ctx.terminate();
+	}
+
+	@Test
+	public void growingKeepsTheAnts() {
+		AntContext ctx = context(50);
+		AntPopulation pop = new AntPopulation(3);
+
+		for (int i = 0; i < 50; i++)
+			remember(pop, pop.add(node(ctx, i)), node(ctx, i));
+
+		assertEquals(50, pop.getSize());
+
+		for (int i = 0; i < 50; i++) {
+			assertEquals(i, pop.getId(i));
+			assertSame(node(ctx, i), pop.getNode(i));
+			assertTrue(remembers(pop, i, node(ctx, i)));
+		}
+
+		ctx.terminate();
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * This file is part of AntCo2.
+ * 
+ * AntCo2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * AntCo2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with AntCo2.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009 - 2010
+ * 	Antoine Dutot
+ * 	Guilhelm Savin
+ */
+package org.graphstream.algorithm.antco2;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.graphstream.stream.SinkAdapter;
+import org.junit.Test;
+
+/**
+ * Graph events staged and coalesced between two steps.
+ */
+public class TestMutationBatch {
+	/**
+	 * Sink writing down the element events it receives.
+	 */
+	protected static class Recorder extends SinkAdapter {
+		List<String> events = new ArrayList<String>();
+
+		public void nodeAdded(String sourceId, long timeId, String nodeId) {
+			events.add("+" + nodeId);
+		}
+
+		public void nodeRemoved(String sourceId, long timeId, String nodeId) {
+			events.add("-" + nodeId);
+		}
+
+		public void edgeAdded(String sourceId, long timeId, String edgeId,
+				String fromNodeId, String toNodeId, boolean directed) {
+			events.add("+" + edgeId);
+		}
+
+		public void edgeRemoved(String sourceId, long timeId, String edgeId) {
+			events.add("-" + edgeId);
+		}
+
+		public void graphCleared(String sourceId, long timeId) {
+			events.add("clear");
+		}
+
+		public void nodeAttributeAdded(String sourceId, long timeId,
+				String nodeId, String attribute, Object value) {
+			events.add(nodeId + "." + attribute);
+		}
+	}
+
+	protected List<String> apply(MutationBatch batch) {
+		Recorder recorder = new Recorder();
+
+		batch.applyTo(recorder);
+
+		return recorder.events;
+	}
+
+	@Test
+	public void addedThenRemovedIsNeverApplied() {
+		MutationBatch batch = new MutationBatch();
+
+		batch.nodeAdded("s", 0, "a");
+		batch.nodeAdded("s", 1, "b");
+		batch.nodeAttributeAdded("s", 2, "b", "x", 1);
+		batch.edgeAdded("s", 3, "ab", "a", "b", false);
+		batch.edgeRemoved("s", 4, "ab");
+		batch.nodeRemoved("s", 5, "b");
+		batch.nodeAttributeAdded("s", 6, "a", "x", 1);
+
+		assertEquals(Arrays.asList("+a", "a.x"), apply(batch));
+		assertEquals(5, batch.getCancelledCount());
+		assertEquals(0, apply(batch).size());
+	}
+
+	@Test
+	public void nodesWithEdgesLeftAreRemoved() {
+		MutationBatch batch = new MutationBatch();
+
+		batch.nodeAdded("s", 0, "a");
+		batch.nodeAdded("s", 1, "b");
+		batch.edgeAdded("s", 2, "ab", "a", "b", false);
+		batch.nodeRemoved("s", 3, "b");
+
+		assertEquals(Arrays.asList("+a", "+b", "+ab", "-b"), apply(batch));
+		assertEquals(0, batch.getCancelledCount());
+	}
+
+	@Test
+	public void removalsOfAppliedElementsGoThrough() {
+		MutationBatch batch = new MutationBatch();
+
+		batch.nodeAdded("s", 0, "a");
+		apply(batch);
+		batch.nodeRemoved("s", 1, "a");
+		batch.nodeAdded("s", 2, "a");
+
+		assertEquals(Arrays.asList("-a", "+a"), apply(batch));
+	}
+
+	@Test
+	public void clearingDropsTheStagedEvents() {
+		MutationBatch batch = new MutationBatch();
+
+		batch.nodeAdded("s", 0, "a");
+		batch.nodeAdded("s", 1, "b");
+		batch.graphCleared("s", 2);
+		batch.nodeAdded("s", 3, "c");
+
+		assertEquals(Arrays.asList("clear", "+c"), apply(batch));
+		assertEquals(2, batch.getCancelledCount());
+	}
+}
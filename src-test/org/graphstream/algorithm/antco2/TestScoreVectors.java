@@ -0,0 +1,111 @@
+/*
+ * This file is part of AntCo2.
+ * 
+ * AntCo2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * AntCo2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with AntCo2.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009 - 2010
+ * 	Antoine Dutot
+ * 	Guilhelm Savin
+ */
+package org.graphstream.algorithm.antco2;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * Score vectors built by an ant are kept on its node for the other ants of
+ * its colony.
+ */
+public class TestScoreVectors {
+	/**
+	 * Context with one colony, added before the nodes as the launchers do,
+	 * and a star of five edges around node "hub".
+	 */
+	protected AntContext star(boolean shareScores) {
+		AntContext ctx = new AntContext();
+
+		ctx.params.randomSeed = 1;
+		ctx.params.shareScores = shareScores;
+		ctx.params.hubDegree = 5;
+		ctx.init();
+		ctx.addColony("A");
+
+		AntCo2Graph g = ctx.getInternalGraph();
+
+		g.addNode("hub");
+
+		for (int i = 0; i < 5; i++) {
+			g.addNode("n" + i);
+			g.addEdge("hub-n" + i, "hub", "n" + i);
+		}
+
+		return ctx;
+	}
+
+	@Test
+	public void secondAntReusesTheVector() {
+		AntContext ctx = star(true);
+		Colony colony = ctx.getColony(0);
+		AntCo2Node hub = ctx.getInternalGraph().getNode("hub");
+		Ant first = colony.antFactory().newAnt(null, hub);
+		Ant second = colony.antFactory().newAnt(null, hub);
+
+		ScoreVector vector = first.scoreVector();
+
+		assertSame(vector, hub.getScoreVector(colony.getIndex(), ctx
+				.getCurrentStep()));
+		assertSame(vector, second.scoreVector());
+
+		ctx.terminate();
+	}
+
+	@Test
+	public void vectorsSurviveNewColonies() {
+		AntContext ctx = star(true);
+		AntCo2Node hub = ctx.getInternalGraph().getNode("hub");
+		Ant ant = ctx.getColony(0).antFactory().newAnt(null, hub);
+		ScoreVector vector = ant.scoreVector();
+
+		ctx.addColony("B");
+
+		assertNull(hub.getScoreVector(1, ctx.getCurrentStep()));
+		assertSame(vector, hub.getScoreVector(0, ctx.getCurrentStep()));
+
+		ctx.terminate();
+	}
+
+	@Test
+	public void onlyKeptVectorsHaveTrees() {
+		AntContext ctx = star(true);
+		AntCo2Node hub = ctx.getInternalGraph().getNode("hub");
+		Ant ant = ctx.getColony(0).antFactory().newAnt(null, hub);
+
+		assertNotNull(ant.scoreVector().tree);
+		assertNull(ant.sampleScoreVector(ant.drawSample(5, 3)).tree);
+
+		ctx.terminate();
+
+		ctx = star(false);
+		hub = ctx.getInternalGraph().getNode("hub");
+		ant = ctx.getColony(0).antFactory().newAnt(null, hub);
+
+		assertNull(ant.scoreVector().tree);
+		assertNull(hub.getScoreVector(0, ctx.getCurrentStep()));
+
+		ctx.terminate();
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * This file is part of AntCo2.
+ * 
+ * AntCo2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * AntCo2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with AntCo2.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009 - 2010
+ * 	Antoine Dutot
+ * 	Guilhelm Savin
+ */
+package org.graphstream.algorithm.antco2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Ring of the last nodes visited by an ant.
+ */
+public class TestTabuMemory {
+	/**
+	 * Context without ants holding some nodes.
+	 */
+	protected AntContext context(int nodes) {
+		AntContext ctx = new AntContext();
+
+		ctx.params.antsPerVertex = 0;
+		ctx.params.antsPerVertexPerColor = 0;
+		ctx.init();
+		ctx.addColony("A");
+
+		for (int i = 0; i < nodes; i++)
+			ctx.getInternalGraph().addNode("n" + i);
+
+		return ctx;
+	}
+
+	protected AntCo2Node node(AntContext ctx, int i) {
+		return ctx.getInternalGraph().getNode("n" + i);
+	}
+
+	@Test
+	public void forgetsTheOldest() {
+		AntContext ctx = context(5);
+		TabuMemory mem = new TabuMemory(3);
+
+		for (int i = 0; i < 5; i++)
+			mem.add(node(ctx, i));
+
+		assertEquals(3, mem.size());
+		assertFalse(mem.contains(node(ctx, 0)));
+		assertFalse(mem.contains(node(ctx, 1)));
+
+		for (int i = 2; i < 5; i++)
+			assertTrue(mem.contains(node(ctx, i)));
+
+		mem.clear();
+
+		assertEquals(0, mem.size());
+		assertFalse(mem.contains(node(ctx, 4)));
+
+		ctx.terminate();
+	}
+
+	@Test
+	public void emptyRingRemembersNothing() {
+		AntContext ctx = context(1);
+		TabuMemory mem = new TabuMemory(0);
+
+		mem.add(node(ctx, 0));
+
+		assertEquals(0, mem.size());
+		assertFalse(mem.contains(node(ctx, 0)));
+
+		ctx.terminate();
+	}
+
+	@Test
+	public void longRunsKeepTheLastNodes() {
+		AntContext ctx = context(7);
+		TabuMemory mem = new TabuMemory(3);
+
+		// The count wraps many times.
+
+		for (int i = 0; i < 1000; i++)
+			mem.add(node(ctx, i % 7));
+
+		assertEquals(3, mem.size());
+		assertTrue(mem.contains(node(ctx, 999 % 7)));
+		assertTrue(mem.contains(node(ctx, 998 % 7)));
+		assertTrue(mem.contains(node(ctx, 997 % 7)));
+		assertFalse(mem.contains(node(ctx, 996 % 7)));
+
+		ctx.terminate();
+	}
+
+	@Test
+	public void nodesAddedAgainAreNew() {
+		AntContext ctx = context(2);
+		TabuMemory mem = new TabuMemory(2);
+
+		mem.add(node(ctx, 0));
+		ctx.getInternalGraph().removeNode("n0");
+		ctx.getInternalGraph().addNode("n0");
+
+		assertFalse(mem.contains(node(ctx, 0)));
+
+		ctx.terminate();
+	}
+}
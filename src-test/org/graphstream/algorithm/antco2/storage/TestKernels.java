@@ -0,0 +1,134 @@
+/*
+ * This file is part of AntCo2.
+ * 
+ * AntCo2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * AntCo2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with AntCo2.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009 - 2010
+ * 	Antoine Dutot
+ * 	Guilhelm Savin
+ */
+package org.graphstream.algorithm.antco2.storage;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.graphstream.algorithm.antco2.AntContext;
+import org.graphstream.algorithm.antco2.PheromoneKernel;
+import org.graphstream.algorithm.antco2.PheromoneStorage;
+import org.junit.Test;
+
+/**
+ * Kernels give the same results to the bit, fused or in passes.
+ */
+public class TestKernels {
+	protected static final int EDGES = 64;
+	protected static final int COLONIES = 13;
+
+	/**
+	 * Storage with the same random pheromones and drops for a given seed.
+	 */
+	protected <T extends PheromoneStorage> T fill(T storage, long seed) {
+		Random random = new Random(seed);
+
+		storage.init(new AntContext());
+		storage.ensureColonyCount(COLONIES);
+		storage.ensureEdgeCount(EDGES);
+
+		for (int e = 0; e < EDGES; e++) {
+			storage.clearEdge(e);
+
+			for (int c = 0; c < COLONIES; c++) {
+				storage.setPheromone(e, c, random.nextFloat());
+
+				if (random.nextInt(3) == 0)
+					storage.setPheromoneTmp(e, c, random.nextFloat());
+			}
+		}
+
+		return storage;
+	}
+
+	protected void assertSameRows(PheromoneStorage expected,
+			PheromoneStorage actual) {
+		for (int e = 0; e < EDGES; e++)
+			for (int c = 0; c < COLONIES; c++)
+				assertEquals(Float.floatToIntBits(expected.getPheromone(e, c)),
+						Float.floatToIntBits(actual.getPheromone(e, c)));
+	}
+
+	/**
+	 * Fused step of a kernel against the passes of another.
+	 */
+	protected void checkStep(PheromoneStorage fused, PheromoneKernel kernel,
+			PheromoneStorage passed, PheromoneKernel other) {
+		for (int e = 0; e < EDGES; e++) {
+			long sums = kernel.step(e, COLONIES, 0.9f, 0.5f, true);
+
+			other.evaporate(e, COLONIES, 0.9f, 0.5f);
+
+			float total = other.commit(e, COLONIES, 0);
+			float max = Float.NEGATIVE_INFINITY;
+			int maxI = -1;
+
+			for (int c = 0; c < COLONIES; c++) {
+				float ph = passed.getPheromone(e, c);
+
+				total += ph;
+
+				if (ph > max) {
+					max = ph;
+					maxI = c;
+				}
+			}
+
+			assertEquals(Float.floatToIntBits(total), (int) (sums >>> 32));
+			assertEquals(maxI, (int) sums);
+		}
+
+		assertSameRows(passed, fused);
+	}
+
+	@Test
+	public void scalarAndArrayKernelsAgree() {
+		FlatStorage scalar = fill(new FlatStorage(), 1);
+		FlatStorage array = fill(new FlatStorage(), 1);
+
+		checkStep(array, new ArrayKernel(array), scalar, new ScalarKernel(
+				scalar));
+
+		float[] scalarValues = new float[COLONIES];
+		float[] arrayValues = new float[COLONIES];
+		PheromoneKernel scalarKernel = new ScalarKernel(scalar);
+		PheromoneKernel arrayKernel = new ArrayKernel(array);
+
+		for (int e = 0; e < EDGES; e++) {
+			scalarKernel.accumulate(e, COLONIES, 0.5f, scalarValues);
+			arrayKernel.accumulate(e, COLONIES, 0.5f, arrayValues);
+		}
+
+		for (int c = 0; c < COLONIES; c++)
+			assertEquals(Float.floatToIntBits(scalarValues[c]),
+					Float.floatToIntBits(arrayValues[c]));
+	}
+
+	@Test
+	public void storagesAgree() {
+		ObjectStorage objects = fill(new ObjectStorage(), 2);
+		FlatStorage flat = fill(new FlatStorage(), 2);
+
+		checkStep(objects, new ArrayKernel(objects), flat,
+				new ScalarKernel(flat));
+	}
+}
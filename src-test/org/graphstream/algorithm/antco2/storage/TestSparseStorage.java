@@ -0,0 +1,94 @@
+/*
+ * This file is part of AntCo2.
+ * 
+ * AntCo2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * AntCo2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with AntCo2.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009 - 2010
+ * 	Antoine Dutot
+ * 	Guilhelm Savin
+ */
+package org.graphstream.algorithm.antco2.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.graphstream.algorithm.antco2.AntContext;
+import org.junit.Test;
+
+/**
+ * A sparse storage keeps the colonies with the most pheromones of each edge.
+ */
+public class TestSparseStorage {
+	/**
+	 * Storage of a few entries per edge, with room for one edge.
+	 */
+	protected SparseStorage storage(int width) {
+		AntContext ctx = new AntContext();
+		SparseStorage storage = new SparseStorage();
+
+		ctx.getAntParams().sparseColonies = width;
+		storage.init(ctx);
+		storage.ensureColonyCount(4);
+		storage.ensureEdgeCount(1);
+
+		return storage;
+	}
+
+	@Test
+	public void keepsTheMainColonies() {
+		SparseStorage storage = storage(2);
+
+		storage.setPheromone(0, 0, 0.1f);
+		storage.setPheromone(0, 1, 0.4f);
+		storage.setPheromone(0, 2, 0.2f);
+		storage.setPheromone(0, 3, 0.3f);
+
+		assertEquals(2, storage.getEntryCount(0));
+		assertEquals(storage.getFloor(), storage.getPheromone(0, 0), 0);
+		assertEquals(storage.getFloor(), storage.getPheromone(0, 2), 0);
+		assertEquals(0.4f, storage.getPheromone(0, 1), 0);
+		assertEquals(0.3f, storage.getPheromone(0, 3), 0);
+
+		// Not above the least entry: rejected.
+
+		storage.setPheromone(0, 0, 0.25f);
+
+		assertEquals(storage.getFloor(), storage.getPheromone(0, 0), 0);
+
+		// Down to the floor: removed, making room.
+
+		storage.setPheromone(0, 3, storage.getFloor());
+		storage.setPheromone(0, 0, 0.25f);
+
+		assertEquals(2, storage.getEntryCount(0));
+		assertEquals(0.25f, storage.getPheromone(0, 0), 0);
+	}
+
+	@Test
+	public void dropsShrinkBackWhenCleared() {
+		SparseStorage storage = storage(2);
+
+		storage.ensureColonyCount(64);
+
+		for (int c = 0; c < 64; c++)
+			storage.setPheromoneTmp(0, c, 1);
+
+		assertEquals(64, storage.getDropCount(0));
+
+		storage.clearDrops(0);
+
+		assertEquals(0, storage.getDropCount(0));
+		assertTrue(storage.dropColonies[0].length <= 4);
+	}
+}
@@ -20,6 +20,8 @@
  */
 package org.graphstream.algorithm.antco2;
 
+import java.util.Arrays;
+import java.util.Random;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -36,6 +38,12 @@ public abstract class Ant {
 	 * The id of this ant.
 	 */
 	protected final String id;
+	/**
+	 * Number of the ant in its colony, given when the colony creates it and
+	 * never reused. It keys the random stream of the ant (see
+	 * {@link AntSlice}).
+	 */
+	protected int number = -1;
 	/**
 	 * The colony of the ant.
 	 */
@@ -48,6 +56,65 @@ public abstract class Ant {
 	 * The context in which this ant evolve.
 	 */
 	protected AntContext ctx;
+	/**
+	 * The slice running this ant, or null outside of a step.
+	 */
+	protected AntSlice slice;
+	/**
+	 * Memory of the ant. When the ant is attached to a population, it is
+	 * wrapped around the memory of the current ant of the population.
+	 */
+	protected TabuMemory mem;
+	/**
+	 * Population this ant is attached to, or null if the ant is a plain
+	 * object.
+	 */
+	protected AntPopulation population;
+	/**
+	 * Index of the ant of the population this object currently stands for.
+	 */
+	protected int cursor;
+	/**
+	 * Step of the last jump of the ant.
+	 */
+	protected int lastJump = -2;
+	/**
+	 * Edges of the current hub leading to remembered nodes, sorted, see
+	 * {@link #hubTotal(ScoreVector)}.
+	 */
+	protected int[] hubRemembered = new int[4];
+	/**
+	 * Number of edges in {@link #hubRemembered}.
+	 */
+	protected int hubRememberedCount;
+	/**
+	 * Total of the corrected weights of the edges in {@link #hubRemembered}.
+	 */
+	protected double hubRememberedWeight;
+	/**
+	 * Total of the weights of the other edges of the current hub.
+	 */
+	protected double hubFreeWeight;
+	/**
+	 * Does an edge of the current hub not leading to a remembered node lead to
+	 * an over populated one?
+	 */
+	protected boolean hubSurpop;
+	/**
+	 * Indices of the edges perceived by the ant, see
+	 * {@link #drawSample(int, int)}.
+	 */
+	protected int[] sample = new int[0];
+	/**
+	 * Did the ant perceive a sample of the edges of its node at its last
+	 * move, see {@link #perceive(int)}.
+	 */
+	protected boolean sampled;
+	/**
+	 * Corrected score of each perceived edge, see {@link #weigh(ScoreVector)}.
+	 * This is over-sized, and only re-allocated when it is too small.
+	 */
+	protected float[] weights = new float[30];
 
 	/**
 	 * Constructor for an ant.
@@ -66,6 +133,7 @@ public abstract class Ant {
 		this.id = id;
 		this.colony = colony;
 		this.ctx = ctx;
+		this.mem = new TabuMemory(ctx.getAntParams().mem);
 
 		goTo(start);
 	}
@@ -97,6 +165,556 @@ public abstract class Ant {
 		return curNode;
 	}
 
+	/**
+	 * Make this object stand for an ant of a population. The position of the
+	 * ant and its memory are loaded, species loading more state should override
+	 * this method.
+	 * 
+	 * @param population
+	 *            the population
+	 * @param cursor
+	 *            index of the ant in the population
+	 */
+	protected void attach(AntPopulation population, int cursor) {
+		this.population = population;
+		this.cursor = cursor;
+		this.curNode = population.getNode(cursor);
+
+		population.wrapMemory(mem, cursor);
+		lastJump = population.getLastJump(cursor);
+	}
+
+	/**
+	 * Store the position and the memory of the ant this object stands for back
+	 * in its population. Species storing more state should override this
+	 * method.
+	 */
+	protected void detach() {
+		population.setNode(cursor, curNode);
+		population.unwrapMemory(mem, cursor);
+		population.setLastJump(cursor, lastJump);
+		population = null;
+		curNode = null;
+	}
+
+	/**
+	 * Is node in the ant memory?.
+	 * 
+	 * @param node
+	 *            The node to test.
+	 * @return True if the ant remembers the node.
+	 */
+	protected boolean isRemembered(AntCo2Node node) {
+		return mem.contains(node);
+	}
+
+	/**
+	 * Add the given node to the ant memory.
+	 * 
+	 * @param node
+	 *            The node to remember.
+	 */
+	protected void remember(AntCo2Node node) {
+		mem.add(node);
+	}
+
+	/**
+	 * Number of edges of a node, read from the topology of the context when
+	 * it keeps one (see {@link AntParams#compactTopology}).
+	 * 
+	 * @param node
+	 *            the node
+	 * @return degree of the node
+	 */
+	protected int degreeOf(AntCo2Node node) {
+		Topology topology = ctx.getTopology();
+
+		if (topology != null)
+			return topology.degree(node.arrayIndex);
+
+		return node.getDegree();
+	}
+
+	/**
+	 * Edge of a node, in the order of the topology of the context when it
+	 * keeps one.
+	 * 
+	 * @param node
+	 *            the node
+	 * @param i
+	 *            index of the edge, between 0 and {@link #degreeOf(AntCo2Node)}
+	 * @return the edge
+	 */
+	protected AntCo2Edge edgeOf(AntCo2Node node, int i) {
+		Topology topology = ctx.getTopology();
+
+		if (topology != null)
+			return ctx.getEdgeAt(topology.edge(node.arrayIndex, i));
+
+		return (AntCo2Edge) node.getEdge(i);
+	}
+
+	/**
+	 * Node at the other end of an edge of a node, see
+	 * {@link #edgeOf(AntCo2Node, int)}.
+	 * 
+	 * @param node
+	 *            the node
+	 * @param i
+	 *            index of the edge, between 0 and {@link #degreeOf(AntCo2Node)}
+	 * @return the neighbour
+	 */
+	protected AntCo2Node neighbourOf(AntCo2Node node, int i) {
+		Topology topology = ctx.getTopology();
+
+		if (topology != null)
+			return ctx.getNodeAt(topology.opposite(node.arrayIndex, i));
+
+		return (AntCo2Node) node.getEdge(i).getOpposite(node);
+	}
+
+	/**
+	 * Get the score vector of the current node for the colony of the ant. When
+	 * {@link AntParams#shareScores} is set, the vector is built by the first
+	 * ant of the colony coming on the node during the step, and shared with
+	 * the others. Only a vector kept on its node gets a tree on hubs.
+	 * 
+	 * @return the score vector
+	 */
+	protected ScoreVector scoreVector() {
+		int degree = degreeOf(curNode);
+
+		if (!ctx.getAntParams().shareScores)
+			return buildScoreVector(null, degree, false);
+
+		int index = colony.getIndex();
+		int step = ctx.getCurrentStep();
+		ScoreVector vector = curNode.getScoreVector(index, step);
+
+		if (vector == null) {
+			boolean kept = curNode.keepsScoreVector(index);
+
+			vector = buildScoreVector(null, degree, kept);
+
+			if (kept)
+				curNode.setScoreVector(index, vector);
+		}
+
+		return vector;
+	}
+
+	/**
+	 * Build the score vector of the edges of the current node drawn by
+	 * {@link #drawSample(int, int)}: entry j of the vector is edge sample[j].
+	 * Only these edges are read, so this costs O(k) whatever the degree. The
+	 * pheromone totals are the ones of the sample, whose ratio estimates the
+	 * one over all the edges, and the ant total is the one of the sample
+	 * scaled to the degree. The vector has no tree and is not shared.
+	 * 
+	 * @param count
+	 *            number of edges in the sample
+	 * @return a new score vector
+	 */
+	protected ScoreVector sampleScoreVector(int count) {
+		return buildScoreVector(sample, count, false);
+	}
+
+	/**
+	 * Build the score vector of some edges of the current node for the colony
+	 * of the ant. This only depends on the node, the colony and the step,
+	 * never on the ant itself.
+	 * 
+	 * @param edges
+	 *            indices of the edges, or null for all the edges
+	 * @param n
+	 *            number of edges
+	 * @param shared
+	 *            will the vector be kept on the node for the other ants of
+	 *            the colony
+	 * @return a new score vector
+	 */
+	protected ScoreVector buildScoreVector(int[] edges, int n, boolean shared) {
+		AntParams params = ctx.getAntParams();
+		Power alpha = ctx.getAlphaPower();
+		int index = colony.getIndex();
+		AntCo2Node[] neighbours = new AntCo2Node[n];
+		float[] scores = new float[n];
+		boolean[] overPopulated = new boolean[n];
+		float colonyPheromones = 0;
+		float totalPheromones = 0;
+		int neighbourAnts = 0;
+
+		for (int j = 0; j < n; j++) {
+			int i = edges != null ? edges[j] : j;
+			AntCo2Edge edge = edgeOf(curNode, i);
+			AntCo2Node next = neighbourOf(curNode, i);
+
+			neighbours[j] = next;
+			scores[j] = alpha.apply(correctedPheromonValue(edge))
+					* edge.getValuePower();
+			overPopulated[j] = isOverPopulated(next);
+			colonyPheromones += edge.getPheromon(index);
+			totalPheromones += edge.getPheromonTotal();
+
+			if (params.perColorOverpop)
+				neighbourAnts += next.getAntCountForColor(colony);
+			else
+				neighbourAnts += next.getTotalAntCount();
+		}
+
+		ScoreTree tree = null;
+
+		if (edges != null) {
+			// The ants on the sampled neighbours stand for the ants on all
+			// of them.
+
+			long scaled = (long) neighbourAnts * degreeOf(curNode);
+
+			neighbourAnts = (int) (scaled / Math.max(1, n));
+		} else if (shared && params.hubDegree > 0 && n >= params.hubDegree) {
+			// A tree costs more than one roulette, it is only worth building
+			// when the ants of the colony share it.
+
+			tree = new ScoreTree(neighbours, scores, overPopulated);
+		}
+
+		return new ScoreVector(ctx.getCurrentStep(), neighbours, scores,
+				overPopulated, colonyPheromones, totalPheromones,
+				neighbourAnts, tree);
+	}
+
+	/**
+	 * Perceive the edges of the current node: a sample of
+	 * {@link AntParams#sampleSize} edges on the nodes of degree above
+	 * {@link AntParams#sampledDegree}, else all of them. Entry j of the
+	 * vector is edge {@link #perceivedEdge(int)} of the node.
+	 * 
+	 * @param degree
+	 *            degree of the current node, above zero
+	 * @return score vector of the perceived edges
+	 */
+	protected ScoreVector perceive(int degree) {
+		AntParams params = ctx.getAntParams();
+
+		sampled = params.sampledDegree > 0 && degree > params.sampledDegree;
+
+		if (!sampled)
+			return scoreVector();
+
+		int count = drawSample(degree, params.sampleSize);
+
+		ctx.incrSampledMoves(count, degree);
+
+		return sampleScoreVector(count);
+	}
+
+	/**
+	 * Index, among the edges of the current node, of an entry of the vector
+	 * returned by {@link #perceive(int)}.
+	 * 
+	 * @param j
+	 *            index of the entry
+	 * @return index of the edge
+	 */
+	protected int perceivedEdge(int j) {
+		return sampled ? sample[j] : j;
+	}
+
+	/**
+	 * Multiplier of the score of an edge for the ant. By default, it is
+	 * 0.000001 if the node at the other end is remembered or over populated,
+	 * else 1. Hubs apply this one (see {@link #hubTotal(ScoreVector)}), so
+	 * species may override it to observe the corrections, not to change them.
+	 * 
+	 * @param next
+	 *            The node at the other end of the edge.
+	 * @param overPopulated
+	 *            Is the node over populated.
+	 * @return The multiplier.
+	 */
+	protected float correction(AntCo2Node next, boolean overPopulated) {
+		if (isRemembered(next) || overPopulated)
+			return 0.000001f;
+
+		return 1;
+	}
+
+	/**
+	 * Correct the scores of the perceived edges, in {@link #weights}. On hubs,
+	 * this is {@link #hubTotal(ScoreVector)}, which does not walk the edges.
+	 * 
+	 * @param scores
+	 *            vector returned by {@link #perceive(int)}
+	 * @return total of the corrected scores
+	 */
+	protected float weigh(ScoreVector scores) {
+		if (scores.tree != null)
+			return hubTotal(scores);
+
+		boolean debug = ctx.getAntParams().debug;
+		int count = scores.scores.length;
+		float total = 0;
+
+		if (weights.length < count)
+			weights = new float[count];
+
+		for (int j = 0; j < count; j++) {
+			weights[j] = scores.scores[j]
+					* correction(scores.neighbours[j], scores.overPopulated[j]);
+
+			if (debug) {
+				AntCo2Edge edge = edgeOf(curNode, perceivedEdge(j));
+
+				System.out.printf("    P[%d]=%f (cor=%f ph=%f, w=%f)%n",
+						perceivedEdge(j), weights[j], correction(
+								scores.neighbours[j], scores.overPopulated[j]),
+						ctx.getAlphaPower().apply(
+								correctedPheromonValue(edge)), edge
+								.getValuePower());
+			}
+
+			total += weights[j];
+		}
+
+		return total;
+	}
+
+	/**
+	 * Pick a perceived edge with the roulette over the corrected scores,
+	 * {@link #weigh(ScoreVector)} must have been called before. When the
+	 * rounding of the probabilities leaves the wheel short of the position,
+	 * the last edge is picked.
+	 * 
+	 * @param scores
+	 *            vector returned by {@link #perceive(int)}
+	 * @param total
+	 *            total returned by {@link #weigh(ScoreVector)}, above zero
+	 * @param rp
+	 *            position on the wheel, between 0 and 1
+	 * @return the edge
+	 */
+	protected AntCo2Edge chooseEdge(ScoreVector scores, float total, float rp) {
+		boolean hub = scores.tree != null;
+		int count = scores.scores.length;
+		int picked = -1;
+
+		if (hub) {
+			picked = hubChoice(scores, rp);
+		} else {
+			float ct = 0;
+
+			for (int j = 0; j < count && picked < 0; j++) {
+				ct += weights[j] / total;
+
+				if (ct >= rp)
+					picked = j;
+			}
+
+			if (picked < 0) {
+				if (!(ct < rp))
+					throw new RuntimeException("AntCO [step="
+							+ ctx.getCurrentStep()
+							+ "]: no edge choosen above the " + count
+							+ " possible edges! (totalP=" + total + " rand="
+							+ rp + ")");
+
+				picked = count - 1;
+			}
+		}
+
+		if (ctx.getAntParams().debug)
+			System.out.printf("    -> choosed edge %d (P=%f)%n",
+					perceivedEdge(picked), hub ? scores.scores[picked]
+							: weights[picked]);
+
+		return edgeOf(curNode, perceivedEdge(picked));
+	}
+
+	/**
+	 * Draw the edges of the current node perceived by the ant, in
+	 * {@link #sample}: k distinct edges taken at random, with Floyd's
+	 * algorithm so that this costs O(k) whatever the degree. Remembered
+	 * nodes are not excluded from the sample, the correction of the ant
+	 * excludes them as it does when all the edges are perceived.
+	 * 
+	 * @param degree
+	 *            degree of the node
+	 * @param k
+	 *            number of edges to perceive
+	 * @return number of edges in the sample, the lowest of k and degree
+	 */
+	protected int drawSample(int degree, int k) {
+		int count = 0;
+
+		k = Math.min(k, degree);
+
+		if (sample.length < k)
+			sample = new int[k];
+
+		Random random = random();
+
+		for (int j = degree - k; j < degree; j++) {
+			int t = random.nextInt(j + 1);
+			boolean taken = false;
+
+			for (int s = 0; s < count && !taken; s++)
+				taken = sample[s] == t;
+
+			sample[count++] = taken ? j : t;
+		}
+
+		return count;
+	}
+
+	/**
+	 * Total of the corrected scores of the edges of a hub, as the sum of
+	 * scores times corrections over all the edges would give it. Remembered
+	 * nodes are looked up in the hash table of the tree of the vector, so
+	 * this costs O(mem) whatever the degree. This also prepares
+	 * {@link #hubChoice(ScoreVector, float)} and sets {@link #hubSurpop}.
+	 * 
+	 * @param scores
+	 *            score vector of the current node, with a tree
+	 * @return total of the corrected scores
+	 */
+	protected float hubTotal(ScoreVector scores) {
+		ScoreTree tree = scores.tree;
+		int overPopulated = tree.overPopulatedCount;
+		double removed = 0;
+		double kept = 0;
+
+		hubRememberedCount = 0;
+
+		for (int m = 0; m < mem.size(); m++) {
+			int uid = mem.get(m);
+			boolean seen = false;
+
+			for (int k = 0; k < m && !seen; k++)
+				seen = mem.get(k) == uid;
+
+			if (seen)
+				continue;
+
+			for (int e = tree.firstEdgeTo(uid); e >= 0; e = tree
+					.nextEdgeTo(e)) {
+				int k = hubRememberedCount++;
+
+				if (k >= hubRemembered.length)
+					hubRemembered = Arrays.copyOf(hubRemembered, 2 * k);
+
+				while (k > 0 && hubRemembered[k - 1] > e) {
+					hubRemembered[k] = hubRemembered[k - 1];
+					k--;
+				}
+
+				hubRemembered[k] = e;
+				removed += tree.weight(e);
+				kept += scores.scores[e] * 0.000001f;
+
+				if (scores.overPopulated[e])
+					overPopulated--;
+			}
+		}
+
+		hubRememberedWeight = kept;
+		hubFreeWeight = Math.max(0, tree.total - removed);
+		hubSurpop = overPopulated > 0;
+
+		return (float) (hubRememberedWeight + hubFreeWeight);
+	}
+
+	/**
+	 * Pick an edge of a hub with the probabilities of the roulette over the
+	 * corrected scores, in O(mem log d). The edges leading to remembered nodes
+	 * come first on the wheel, then the others in order, each range of edges
+	 * between two remembered ones being looked up in the tree.
+	 * {@link #hubTotal(ScoreVector)} must have been called before.
+	 * 
+	 * @param scores
+	 *            score vector of the current node, with a tree
+	 * @param rp
+	 *            position on the wheel, between 0 and 1
+	 * @return index of the edge
+	 */
+	protected int hubChoice(ScoreVector scores, float rp) {
+		ScoreTree tree = scores.tree;
+		double r = rp * (hubRememberedWeight + hubFreeWeight);
+
+		if (r < hubRememberedWeight) {
+			double ct = 0;
+
+			for (int k = 0; k < hubRememberedCount; k++) {
+				ct += scores.scores[hubRemembered[k]] * 0.000001f;
+
+				if (ct >= r)
+					return hubRemembered[k];
+			}
+
+			return hubRemembered[hubRememberedCount - 1];
+		}
+
+		r -= hubRememberedWeight;
+
+		double skipped = 0;
+		int from = 0;
+		int last = -1;
+
+		for (int k = 0; k <= hubRememberedCount; k++) {
+			int to = k < hubRememberedCount ? hubRemembered[k] : tree.size();
+
+			if (from < to) {
+				last = to - 1;
+
+				if (k == hubRememberedCount
+						|| tree.prefix(last) - skipped >= r)
+					return Math.max(from, Math.min(last, tree.find(r
+							+ skipped)));
+			}
+
+			if (k < hubRememberedCount) {
+				skipped += tree.weight(to);
+				from = to + 1;
+			}
+		}
+
+		return last >= 0 ? last : tree.size() - 1;
+	}
+
+	/**
+	 * Pheromones of an edge as perceived by the ant, before they are raised to
+	 * alpha. By default, the pheromones of the colony of the ant.
+	 * 
+	 * @param edge
+	 *            The edge to get the value for.
+	 * @return The value.
+	 */
+	protected float correctedPheromonValue(AntCo2Edge edge) {
+		return edge.getPheromon(colony.getIndex());
+	}
+
+	/**
+	 * Is a node too crowded for the ant? By default, it is if the total ant
+	 * count of the node is above {@link AntParams#overPopulated}.
+	 * 
+	 * @param node
+	 *            The node to test.
+	 * @return True if the node is over populated.
+	 */
+	protected boolean isOverPopulated(AntCo2Node node) {
+		return node.getTotalAntCount() > ctx.getAntParams().overPopulated;
+	}
+
+	/**
+	 * Random object used by this ant. During a step, ants draw from the stream
+	 * of their slice, else from the one of their colony. They never use the
+	 * context one, so that colonies can be stepped concurrently.
+	 * 
+	 * @return random object of the ant
+	 */
+	protected Random random() {
+		return slice != null ? slice.random : colony.random();
+	}
+
 	/**
 	 * Ask the ant to travel from its current node to the given new node. The
 	 * new node can be null, in which case the ant disappear from the
@@ -107,11 +725,21 @@ public abstract class Ant {
 	 *            The destination node.
 	 */
 	public void goTo(AntCo2Node newNode) {
-		if (curNode != null)
-			curNode.unregisterAnt(this);
+		DepositBuffer buffer = slice != null ? slice.buffer : null;
 
-		if (newNode != null)
-			newNode.registerAnt(this);
+		if (curNode != null) {
+			if (buffer != null)
+				buffer.unregisterAnt(curNode, this);
+			else
+				curNode.unregisterAnt(this);
+		}
+
+		if (newNode != null) {
+			if (buffer != null)
+				buffer.registerAnt(newNode, this);
+			else
+				newNode.registerAnt(this);
+		}
 
 		curNode = newNode;
 	}
@@ -142,39 +770,26 @@ public abstract class Ant {
 
 		AntCo2Node newNode = (AntCo2Node) edge.getOpposite(curNode);
 
-		if (dropPheromon)
-			edge.incrPheromon(colony, getPheromonDrop());
+		if (dropPheromon) {
+			if (slice != null && slice.buffer != null)
+				slice.buffer.incrPheromon(edge, colony, getPheromonDrop());
+			else
+				edge.incrPheromon(colony, getPheromonDrop());
+		}
 
 		goTo(newNode);
 	}
 
 	/**
-	 * Jump to a random node in the graph. This method is quite heavy and may,
-	 * at worst, iterate on all nodes of the graph.
+	 * Jump to a random node, chosen according to
+	 * {@link AntParams#getJumpTarget()}.
 	 */
 	protected void jumpRandomly() {
-		AntCo2Node node = null;
-		int n = ctx.getNodeCount();
+		AntCo2Node node = ctx.jumpTarget(colony, random());
 
-		if (n <= 0)
+		if (node == null)
 			return;
 
-		int r = ctx.random().nextInt(n);
-		int i = 0;
-
-		for (AntCo2Node tmpNode : ctx.eachNode()) {
-			if (i == r) {
-				node = tmpNode;
-				break;
-			}
-
-			i++;
-		}
-
-		assert node != null : "jumpRandomly() got a null node to jump to!";
-		// System.err.printf( "Jumping randomly from node %s to node %s.%n",
-		// curNode.getTag(), node.getTag() );
-
 		ctx.incrJumps(this);
 		goTo(node);
 	}
@@ -197,12 +812,12 @@ public abstract class Ant {
 		if (howFar < 1)
 			throw new IllegalArgumentException("jumps must be larger than 1");
 
-		if (curNode.getDegree() == 0)
+		if (degreeOf(curNode) == 0)
 			return;
 
 		for (int i = 0; i < howFar; ++i) {
-			rand = ctx.random().nextInt(node.getDegree());
-			node = (AntCo2Node) node.getEdge(rand).getOpposite(node);
+			rand = random().nextInt(degreeOf(node));
+			node = neighbourOf(node, rand);
 		}
 
 		ctx.incrJumps(this);
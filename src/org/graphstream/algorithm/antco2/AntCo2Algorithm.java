@@ -29,12 +29,80 @@ import static org.graphstream.algorithm.antco2.Parameter.parameter;
 import static org.graphstream.algorithm.antco2.Parameter.processParameters;
 
 public class AntCo2Algorithm extends SinkAdapter implements DynamicAlgorithm {
+	/**
+	 * Thread pumping the events of the graph into the batch, when ingestion
+	 * is pipelined.
+	 */
+	protected class Ingestion extends Thread {
+		public Ingestion() {
+			super("antco2-ingestion");
+			setDaemon(true);
+		}
+
+		public void run() {
+			try {
+				while (!isInterrupted())
+					proxy.blockingPump();
+			} catch (InterruptedException e) {
+				// Terminated.
+			}
+		}
+	}
+
 	protected AntContext context;
 	protected ThreadProxyPipe proxy;
 
+	/**
+	 * Events staged between the proxy and the internal graph.
+	 */
+	protected MutationBatch batch;
+
+	protected Ingestion ingestion;
+
+	/**
+	 * Node attribute receiving the index of the colony of the node, null to
+	 * not publish it.
+	 */
+	@DefineParameter(name = "indexAttribute")
 	protected String metaIndexAttribute = "meta.index";
 
+	/**
+	 * Node attribute receiving a colour value in [0,1) computed from the
+	 * index of the colony, when {@link #colorizeNodes} is set.
+	 */
+	@DefineParameter(name = "colorAttribute")
+	protected String colorAttribute = "ui.color";
+
+	@DefineParameter(name = "colorizeNodes")
 	protected boolean colorizeNodes = true;
+
+	/**
+	 * Node attribute set on membrane nodes and removed from the others, null
+	 * to not publish it.
+	 */
+	@DefineParameter(name = "membraneAttribute")
+	protected String membraneAttribute = "meta.membrane";
+
+	/**
+	 * Only publish the nodes whose colony or membrane status changed since the
+	 * last publication. Else all the nodes are published at each step.
+	 */
+	@DefineParameter(name = "publishChangesOnly")
+	protected boolean publishChangesOnly = true;
+
+	/**
+	 * When set, the changes of a publication are sent as a single
+	 * {@link ColorChanges} value of this graph attribute, instead of
+	 * attributes of the nodes.
+	 */
+	@DefineParameter(name = "changesAttribute")
+	protected String changesAttribute = null;
+
+	/**
+	 * Number of colonies at the last publication. Colour values depend on it,
+	 * so all the nodes are published again when it changes.
+	 */
+	protected int publishedColonyCount = -1;
 	
 	@DefineParameter(name = "graph", optional = false)
 	protected Graph registeredGraph;
@@ -83,10 +151,16 @@ public class AntCo2Algorithm extends SinkAdapter implements DynamicAlgorithm {
 
 		if (proxy == null) {
 			proxy = new ThreadProxyPipe(registeredGraph);
-			proxy.addSink(context.internalGraph);
+			batch = new MutationBatch();
+			proxy.addSink(batch);
 		}
 
 		context.init();
+
+		if (context.getAntParams().pipelinedIngestion && ingestion == null) {
+			ingestion = new Ingestion();
+			ingestion.start();
+		}
 	}
 
 	public void init(Graph graph) {
@@ -94,87 +168,128 @@ public class AntCo2Algorithm extends SinkAdapter implements DynamicAlgorithm {
 	}
 
 	public void compute() {
-		proxy.pump();
+		if (ingestion != null) {
+			// Events staged during the previous step are applied at once,
+			// the next ones are staged while the ants run.
+
+			applyBatch();
 
-		context.step();
-		publishColor();
+			context.step();
+			publishColor();
+		} else {
+			proxy.pump();
+			applyBatch();
 
-		proxy.pump();
+			context.step();
+			publishColor();
+
+			proxy.pump();
+			applyBatch();
+		}
+	}
+
+	/**
+	 * Apply the staged events to the internal graph, in a batch of the
+	 * context.
+	 */
+	protected void applyBatch() {
+		if (batch.size() > 0) {
+			context.lock();
+			context.beginBatch();
+			batch.applyTo(context.internalGraph);
+			context.endBatch();
+			context.unlock();
+		}
 	}
 
 	public void terminate() {
 		if (registeredGraph != null)
 			registeredGraph.removeSink(proxy);
 
-		proxy.removeSink(context.internalGraph);
+		if (ingestion != null) {
+			ingestion.interrupt();
+
+			try {
+				ingestion.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			ingestion = null;
+		}
+
+		proxy.removeSink(batch);
+		context.terminate();
 	}
 
+	/**
+	 * Publish the colony and membrane status of the nodes as attributes of
+	 * the registered graph. Only the nodes which changed since the last
+	 * publication are published, unless {@link #publishChangesOnly} is
+	 * unset. Nodes without colony are never published.
+	 */
 	public void publishColor() {
 		if (registeredGraph != null) {
 			context.lock();
 
-			Colony c0, c1;
+			int colonies = context.getColonyCount();
+			boolean all = !publishChangesOnly
+					|| colonies != publishedColonyCount;
+			ColorChanges changes = changesAttribute != null ? new ColorChanges(
+					context.getCurrentStep())
+					: null;
+
+			publishedColonyCount = colonies;
 
 			for (AntCo2Node n : context.eachNode()) {
-				c0 = n.getOldColor();
-				c1 = n.getColor();
+				Colony c0 = n.publishedColor;
+				Colony c1 = n.getColor();
 
 				if (c1 == null)
 					continue;
-				// Cell c = n.getCell();
-
-				// registeredGraph.nodeAttributeChanged( context.sourceId(),
-				// context.timeId(), n.getId(),
-				// "ui.label", c0 == null ? null : c0.getName(), c1 == null ?
-				// null : c1.getName() );
-				registeredGraph.nodeAttributeChanged(context.sourceId(),
-						context.timeId(), n.getId(), metaIndexAttribute,
-						c0 == null ? null : c0.getIndex(), c1 == null ? null
-								: c1.getIndex());
-				// n.setAttribute("meta.index", c0 == null ? null :
-				// c0.getIndex());
-				/*registeredGraph.nodeAttributeChanged(
-						context.sourceId(),
-						context.timeId(),
-						n.getId(),
-						"label",
-						c0 == null ? null : c0.getIndex(),
-						c1 == null ? null : c1.getIndex());*/
-				if(colorizeNodes) {
-					registeredGraph.nodeAttributeChanged(
-							context.sourceId(),
-							context.timeId(),
-							n.getId(),
-							"ui.color",
-							null,
-							c1 == null ? 0 : c1.getIndex() / (float) context.getColonyCount());
-				}
-				if(n.isMembrane()) {
-					registeredGraph.nodeAttributeAdded(
-							context.sourceId(),
-							context.timeId(),
-							n.getId(),
-							"meta.membrane", true);
-				}
-				else {
-					registeredGraph.nodeAttributeRemoved(
-							context.sourceId(),
-							context.timeId(),
-							n.getId(),
-							"meta.membrane");
+
+				boolean membrane = n.isMembrane();
+				boolean colorChanged = all || c1 != c0;
+				boolean membraneChanged = all
+						|| membrane != n.publishedMembrane;
+
+				if (!colorChanged && !membraneChanged)
+					continue;
+
+				n.publishedColor = c1;
+				n.publishedMembrane = membrane;
+
+				if (changes != null) {
+					changes.add(n.getId(), c1.getIndex(), membrane);
+					continue;
 				}
-				/*
-				if (n.isMembrane()) {
+
+				if (colorChanged && metaIndexAttribute != null)
+					registeredGraph.nodeAttributeChanged(context.sourceId(),
+							context.timeId(), n.getId(), metaIndexAttribute,
+							c0 == null ? null : c0.getIndex(), c1.getIndex());
+
+				if (colorChanged && colorizeNodes && colorAttribute != null)
 					registeredGraph.nodeAttributeChanged(context.sourceId(),
-							context.timeId(), n.getId(), "ui.class", null,
-							"membrane");
-				} else {
-					registeredGraph.nodeAttributeRemoved(context.sourceId(),
-							context.timeId(), n.getId(), "ui.class");
+							context.timeId(), n.getId(), colorAttribute, null,
+							c1.getIndex() / (float) colonies);
+
+				if (membraneChanged && membraneAttribute != null) {
+					if (membrane)
+						registeredGraph.nodeAttributeAdded(context.sourceId(),
+								context.timeId(), n.getId(),
+								membraneAttribute, true);
+					else
+						registeredGraph.nodeAttributeRemoved(context
+								.sourceId(), context.timeId(), n.getId(),
+								membraneAttribute);
 				}
-				*/
 			}
 
+			if (changes != null && changes.size() > 0)
+				registeredGraph.graphAttributeChanged(context.sourceId(),
+						context.timeId(), changesAttribute, null, changes);
+
 			context.unlock();
 		}
 	}
@@ -22,6 +22,7 @@ package org.graphstream.algorithm.antco2;
 
 import java.util.Arrays;
 
+import org.graphstream.algorithm.antco2.AntParams.PheromoneNumerics;
 import org.graphstream.graph.Node;
 import org.graphstream.graph.implementations.AdjacencyListEdge;
 
@@ -33,14 +34,27 @@ import org.graphstream.graph.implementations.AdjacencyListEdge;
  */
 public class AntCo2Edge extends AdjacencyListEdge {
 	/**
-	 * Pheromone array.
+	 * With RENORMALIZE numerics, the pheromones of an edge are scaled back
+	 * when their maximum falls below this value.
 	 */
-	protected float[] pheromones = new float[1];
+	public static final float RENORMALIZE_BELOW = 0x1.0p-32f;
 
 	/**
-	 * Temporary pheromone array.
+	 * Storage of the pheromones, null until the edge is added to the context.
+	 * The row of the edge in the storage is {@link #arrayIndex}.
 	 */
-	protected float[] pheromonesTmp = new float[1];
+	protected PheromoneStorage storage;
+
+	/**
+	 * Initial pheromones, moved to the storage when the edge is added to the
+	 * context.
+	 */
+	protected float[] initialPheromones = new float[1];
+
+	/**
+	 * Number of colours having pheromones on this edge.
+	 */
+	protected int colors = 1;
 
 	/**
 	 * Total of all pheromones for all colours after the last commit().
@@ -62,11 +76,56 @@ public class AntCo2Edge extends AdjacencyListEdge {
 	 */
 	protected boolean cutEdge;
 
+	/**
+	 * Set when a node of the edge changed its colour, {@link #cutEdge} is
+	 * then updated at the next step.
+	 */
+	protected boolean cutStale = true;
+
+	/**
+	 * Drops of the current step by colony, as fixed-point numbers, when
+	 * {@link AntParams#fixedPointBits} is set, else null. They are added to
+	 * the drops of the storage at the next step.
+	 */
+	protected long[] fixedDrops;
+
 	/**
 	 * Weight of the edge.
 	 */
 	protected float value;
 
+	/**
+	 * The weight raised to the power of beta, cached for the ants.
+	 */
+	protected float valuePower;
+
+	/**
+	 * Position of this edge in the edge array of the context, or -1.
+	 */
+	protected int arrayIndex = -1;
+
+	/**
+	 * Context of the edge, null if the edge was built without one.
+	 */
+	protected AntContext ctx;
+
+	/**
+	 * Step of the last evaporation of the pheromones. With lazy evaporation,
+	 * stored values still have to be multiplied by rho for each step since.
+	 */
+	protected int lastUpdate;
+
+	/**
+	 * Is the edge waiting in the touched edges of the context.
+	 */
+	protected boolean touched;
+
+	/**
+	 * Stored pheromones are the real ones times two to this power, see
+	 * {@link AntParams.PheromoneNumerics#RENORMALIZE}.
+	 */
+	protected int scaleExponent;
+
 	/**
 	 * Basic constructor for an edge.
 	 * 
@@ -104,26 +163,33 @@ public class AntCo2Edge extends AdjacencyListEdge {
 		this(id, from, to, directed);
 
 		this.value = value;
+		this.ctx = ctx;
+		this.lastUpdate = ctx.getPheromoneStep();
 
-		pheromonesTmp = new float[ctx.getColonyCount()];
-		pheromones = new float[ctx.getColonyCount()];
+		colors = ctx.getColonyCount();
+		initialPheromones = new float[colors];
 
 		// Initialise the pheromones to a very small value to avoid 0.
 
+		CounterRandom random = ctx.edgeRandom(id);
+
 		pheromonesTotal = 0;
 
-		for (int i = 0; i < ctx.getColonyCount(); ++i) {
-			float nb = ctx.random().nextFloat() * 0.0001f;
+		for (int i = 0; i < colors; ++i) {
+			float nb = random.nextFloat() * 0.0001f;
 
-			pheromonesTmp[i] = nb;
-			pheromones[i] = nb;
+			initialPheromones[i] = nb;
 			pheromonesTotal += nb;
 		}
 
+		random.done();
+
 		// Also avoid a weight of 0.
 
 		if (this.value == 0)
 			this.value = 1;
+
+		updateValuePower();
 	}
 
 	/**
@@ -136,69 +202,323 @@ public class AntCo2Edge extends AdjacencyListEdge {
 	 */
 	public void commit() {
 		if (commitNeeded) {
-			int n = pheromones.length;
+			int n = colors;
+			int row = arrayIndex;
 
-			for (int i = 0; i < n; ++i) {
-				float incr = pheromonesTmp[i];
+			if (fixedDrops != null)
+				commitFixed();
 
-				pheromones[i] += incr;
-				pheromonesTotal += incr;
-				pheromonesTmp[i] = 0;
+			if (storage instanceof SparsePheromoneStorage) {
+				commitSparse((SparsePheromoneStorage) storage);
+				return;
 			}
 
+			pheromonesTotal = ctx.getPheromoneKernel().commit(row, n,
+					pheromonesTotal);
 			commitNeeded = false;
 		}
 	}
 
 	/**
-	 * Step method for this edge. Pheromones evaporation is done here.
+	 * Add the fixed-point drops to the drops of the storage, converted to
+	 * floats, and clear them. Colonies are visited in order, whatever the
+	 * order of the drops was.
+	 */
+	protected void commitFixed() {
+		int row = arrayIndex;
+		double scale = ctx.getFixedPointScale();
+
+		for (int i = 0; i < colors; i++) {
+			long drop = fixedDrops[i];
+
+			if (drop != 0) {
+				float tmp = storage.getPheromoneTmp(row, i);
+
+				storage.setPheromoneTmp(row, i, tmp + (float) (drop / scale));
+				fixedDrops[i] = 0;
+			}
+		}
+	}
+
+	/**
+	 * Same as {@link #commit()} on a sparse storage: only the colonies which
+	 * dropped pheromones are visited. A drop may not make its colony an entry,
+	 * or may push another colony out, so the total is counted again from the
+	 * entries.
+	 * 
+	 * @param sparse
+	 *            storage of the edge
+	 */
+	protected void commitSparse(SparsePheromoneStorage sparse) {
+		int row = arrayIndex;
+		int n = sparse.getDropCount(row);
+
+		for (int i = 0; i < n; i++) {
+			int colony = sparse.getDropColony(row, i);
+			float incr = sparse.getDropPheromone(row, i);
+
+			sparse.setPheromone(row, colony, sparse.getPheromone(row, colony)
+					+ incr);
+		}
+
+		sparse.clearDrops(row);
+		pheromonesTotal = sparseTotal(sparse);
+		commitNeeded = false;
+	}
+
+	/**
+	 * Total of the pheromones of the edge on a sparse storage: its entries,
+	 * and the floor value for each live colony without entry.
+	 * 
+	 * @param sparse
+	 *            storage of the edge
+	 * @return the total
+	 */
+	protected float sparseTotal(SparsePheromoneStorage sparse) {
+		int row = arrayIndex;
+		int n = sparse.getEntryCount(row);
+		int others = ctx.getLiveColonyCount();
+		float total = 0;
+
+		for (int i = 0; i < n; i++) {
+			int colony = sparse.getEntryColony(row, i);
+
+			if (colony < colors && ctx.getColony(colony) != null) {
+				total += sparse.getEntryPheromone(row, i);
+				others--;
+			}
+		}
+
+		return total + sparse.getFloor() * Math.max(0, others);
+	}
+
+	/**
+	 * Step method for this edge. Pheromones evaporation is done here, for all
+	 * the steps since the last update of the edge.
 	 * 
 	 * @param ctx
 	 *            ants context
 	 */
 	public void step(AntContext ctx) {
-		int n = pheromones.length;
-
-		if (n > 0) {
+		int n = colors;
+		int row = arrayIndex;
+		int now = ctx.getCurrentStep();
+		boolean changed = commitNeeded;
+		boolean wasCut = cutEdge;
+
+		if (commitNeeded && fixedDrops != null)
+			commitFixed();
+
+		if (n > 0 && storage instanceof SparsePheromoneStorage) {
+			stepSparse((SparsePheromoneStorage) storage,
+					ctx.rhoPower(now - lastUpdate));
+		} else if (n > 0) {
 			// Evaporate the pheromones already present on the edge.
 
-			pheromonesTotal = 0;
+			float rho = ctx.rhoPower(now - lastUpdate);
+			PheromoneNumerics numerics = ctx.getAntParams()
+					.getPheromoneNumerics();
+			float floor = numerics == PheromoneNumerics.RAW ? 0 : ctx
+					.getAntParams().pheromoneFloor;
 
-			for (int i = 0; i < n; ++i)
-				pheromones[i] *= ctx.getAntParams().rho;
+			if (numerics == PheromoneNumerics.RENORMALIZE) {
+				// Drops are real values, scaled pheromones cannot take them.
+				// Else a tiny rho goes to the exponent instead of the
+				// values.
 
-			// Then, and only then, copy pheromones added by ants at the
-			// previous
-			// step to the pheromones on the edge.
+				if (commitNeeded) {
+					fold();
+				} else if (rho > 0 && rho < RENORMALIZE_BELOW) {
+					int x = Math.getExponent(rho);
 
-			commit();
-
-			// At last, compute the total pheromone value on the edge, and
-			// find the dominant colour.
+					rho = Math.scalb(rho, -x);
+					scaleExponent -= x;
+				}
+			}
 
+			PheromoneKernel kernel = ctx.getPheromoneKernel();
 			float max = Float.NEGATIVE_INFINITY;
 			int maxI = -1;
 
-			for (int i = 0; i < n; ++i) {
-				if (ctx.getColony(i) != null) {
-					float ph = pheromones[i];
+			if (ctx.getLiveColonyCount() == ctx.getColonyCount()) {
+				// Evaporation, commit, total and dominant colour in a single
+				// sweep over the row.
+
+				long sums = kernel.step(row, n, rho, floor, commitNeeded);
+
+				commitNeeded = false;
+				pheromonesTotal = Float.intBitsToFloat((int) (sums >>> 32));
+				maxI = (int) sums;
+
+				if (maxI >= 0)
+					max = storage.getPheromone(row, maxI);
+			} else {
+				pheromonesTotal = 0;
+				kernel.evaporate(row, n, rho, floor);
+
+				// Then, and only then, copy pheromones added by ants at the
+				// previous step to the pheromones on the edge.
+
+				commit();
+
+				// At last, compute the total pheromone value on the edge, and
+				// find the dominant colour, leaving out removed colonies.
+
+				for (int i = 0; i < n; ++i) {
+					if (ctx.getColony(i) != null) {
+						float ph = storage.getPheromone(row, i);
 
-					pheromonesTotal += ph;
+						pheromonesTotal += ph;
 
-					if (ph > max) {
-						max = ph;
-						maxI = i;
+						if (ph > max) {
+							max = ph;
+							maxI = i;
+						}
 					}
 				}
 			}
 
 			dominantColor = maxI;
+
+			if (numerics == PheromoneNumerics.RENORMALIZE)
+				renormalize(max);
+		}
+
+		lastUpdate = now;
+		touched = false;
+
+		// The colours of the nodes are only looked at when one of them
+		// changed since the last step.
+
+		if (cutStale) {
+			AntCo2Node src = (AntCo2Node) getSourceNode();
+			AntCo2Node trg = (AntCo2Node) getTargetNode();
+
+			cutStale = false;
+			cutEdge = src.getColor() != trg.getColor();
+		}
+
+		// Nodes only need a new colour check if something else than
+		// evaporation happened here. Distinct edges may share a node, but
+		// they can only set the flag.
+
+		if (changed || wasCut != cutEdge) {
+			AntCo2Node src = (AntCo2Node) getSourceNode();
+			AntCo2Node trg = (AntCo2Node) getTargetNode();
+
+			if (!src.dirty)
+				src.dirty = true;
+			if (!trg.dirty)
+				trg.dirty = true;
+		}
+	}
+
+	/**
+	 * Scale the pheromones of the edge back to the normal range of floats if
+	 * their maximum became too small, keeping their ratios. Scaling by a power
+	 * of two is exact.
+	 * 
+	 * @param max
+	 *            maximum of the stored pheromones
+	 */
+	protected void renormalize(float max) {
+		if (max > 0 && max < RENORMALIZE_BELOW) {
+			int s = -Math.getExponent(max);
+			int row = arrayIndex;
+
+			for (int i = 0; i < colors; i++)
+				storage.setPheromone(row, i,
+						Math.scalb(storage.getPheromone(row, i), s));
+
+			pheromonesTotal = Math.scalb(pheromonesTotal, s);
+			scaleExponent += s;
+		}
+	}
+
+	/**
+	 * Undo the scaling of the pheromones of the edge, so that stored
+	 * pheromones are real ones again.
+	 */
+	protected void fold() {
+		if (scaleExponent != 0) {
+			int row = arrayIndex;
+
+			for (int i = 0; i < colors; i++)
+				storage.setPheromone(row, i,
+						Math.scalb(storage.getPheromone(row, i), -scaleExponent));
+
+			pheromonesTotal = Math.scalb(pheromonesTotal, -scaleExponent);
+			scaleExponent = 0;
 		}
+	}
+
+	/**
+	 * Real value of stored pheromones: unscaled, evaporated if evaporation is
+	 * lazy, and flushed to zero below the floor unless numerics are RAW. With
+	 * RENORMALIZE, the stored values stay in the normal range, but the real
+	 * ones read by ants and nodes would not.
+	 * 
+	 * @param stored
+	 *            stored pheromones
+	 * @return real pheromones
+	 */
+	protected float real(float stored) {
+		if (scaleExponent != 0)
+			stored = Math.scalb(stored, -scaleExponent);
 
-		AntCo2Node src = (AntCo2Node) getSourceNode();
-		AntCo2Node trg = (AntCo2Node) getTargetNode();
+		float ph = stored * decay();
 
-		cutEdge = src.getColor() != trg.getColor();
+		if (ctx != null) {
+			AntParams params = ctx.getAntParams();
+
+			if (params.getPheromoneNumerics() != PheromoneNumerics.RAW
+					&& ph < params.pheromoneFloor)
+				return 0;
+		}
+
+		return ph;
+	}
+
+	/**
+	 * Evaporation, commit, total and dominant colour of {@link #step(AntContext)}
+	 * on a sparse storage. Only the entries of the edge are visited, the other
+	 * colonies are counted at the floor value.
+	 * 
+	 * @param sparse
+	 *            storage of the edge
+	 * @param rho
+	 *            evaporation since the last update
+	 */
+	protected void stepSparse(SparsePheromoneStorage sparse, float rho) {
+		int row = arrayIndex;
+
+		sparse.scaleEntries(row, rho);
+		commit();
+
+		int n = sparse.getEntryCount(row);
+		int others = ctx.getLiveColonyCount();
+		float total = 0;
+		float max = Float.NEGATIVE_INFINITY;
+		int maxI = -1;
+
+		for (int i = 0; i < n; i++) {
+			int colony = sparse.getEntryColony(row, i);
+
+			if (colony < colors && ctx.getColony(colony) != null) {
+				float ph = sparse.getEntryPheromone(row, i);
+
+				total += ph;
+				others--;
+
+				if (ph > max || (ph == max && colony < maxI)) {
+					max = ph;
+					maxI = colony;
+				}
+			}
+		}
+
+		pheromonesTotal = total + sparse.getFloor() * Math.max(0, others);
+		dominantColor = maxI;
 	}
 
 	/**
@@ -209,8 +529,8 @@ public class AntCo2Edge extends AdjacencyListEdge {
 	 * @return The pheromone value for a given colour.
 	 */
 	public float getPheromon(int color) {
-		if (color >= 0 && pheromones.length > color)
-			return pheromones[color];
+		if (color >= 0 && colors > color && storage != null)
+			return real(storage.getPheromone(arrayIndex, color));
 
 		return 0;
 	}
@@ -221,13 +541,28 @@ public class AntCo2Edge extends AdjacencyListEdge {
 	 * @return The total pheromone value.
 	 */
 	public float getPheromonTotal() {
-		return pheromonesTotal;
+		return real(pheromonesTotal);
+	}
+
+	/**
+	 * Evaporation not yet applied to the stored pheromones. This is 1 unless
+	 * evaporation is lazy and the edge was not updated at the last step.
+	 * 
+	 * @return factor to apply to the stored pheromones
+	 */
+	protected float decay() {
+		if (ctx == null)
+			return 1;
+
+		return ctx.rhoPower(ctx.getPheromoneStep() - lastUpdate);
 	}
 
 	/**
-	 * Colour that have the more pheromone on this edge.
+	 * Colour that have the more pheromone on this edge. Evaporation does not
+	 * change it, so it is up to date even with lazy evaporation.
 	 * 
-	 * @return The dominant colour index.
+	 * @return The dominant colour index, -1 if no colony has more than the
+	 *         floor of a sparse storage.
 	 */
 	public int getDominantColor() {
 		return dominantColor;
@@ -243,7 +578,9 @@ public class AntCo2Edge extends AdjacencyListEdge {
 	/**
 	 * Set the pheromone value for a given colour. If the given colour is null
 	 * all the colours are changed. This directly changes the pheromone, no need
-	 * to commit.
+	 * to commit. Before the edge is added to the context, this changes its
+	 * initial pheromones. Once it is removed, the edge has no pheromones left
+	 * to change.
 	 * 
 	 * @param color
 	 *            Colour index or null for all the colours.
@@ -251,17 +588,80 @@ public class AntCo2Edge extends AdjacencyListEdge {
 	 *            Value to set.
 	 */
 	public void setPheromon(Colony color, float value) {
+		if (storage == null) {
+			if (initialPheromones != null)
+				setInitialPheromon(color, value);
+
+			return;
+		}
+
+		settle();
+
+		if (color != null) {
+			int index = color.getIndex();
+
+			checkPheromonesArraySizes(index);
+
+			pheromonesTotal -= storage.getPheromone(arrayIndex, index);
+			storage.setPheromone(arrayIndex, index, value);
+			pheromonesTotal += value;
+		} else {
+			for (int i = 0; i < colors; i++)
+				storage.setPheromone(arrayIndex, i, value);
+
+			pheromonesTotal = value * colors;
+		}
+
+		if (storage instanceof SparsePheromoneStorage)
+			pheromonesTotal = sparseTotal((SparsePheromoneStorage) storage);
+	}
+
+	/**
+	 * Make the stored pheromones of a bound edge the real ones: undo their
+	 * scaling (see {@link #fold()}) and apply the evaporation not applied yet
+	 * (see {@link #decay()}). Values can then be written as they are.
+	 */
+	protected void settle() {
+		fold();
+
+		float decay = decay();
+
+		if (decay != 1) {
+			if (storage instanceof SparsePheromoneStorage)
+				((SparsePheromoneStorage) storage).scaleEntries(arrayIndex,
+						decay);
+			else
+				for (int i = 0; i < colors; i++)
+					storage.setPheromone(arrayIndex, i,
+							storage.getPheromone(arrayIndex, i) * decay);
+
+			pheromonesTotal *= decay;
+		}
+
+		if (ctx != null)
+			lastUpdate = ctx.getPheromoneStep();
+	}
+
+	/**
+	 * Same as {@link #setPheromon(Colony, float)} before the edge is added to
+	 * the context.
+	 * 
+	 * @param color
+	 *            Colour index or null for all the colours.
+	 * @param value
+	 *            Value to set.
+	 */
+	protected void setInitialPheromon(Colony color, float value) {
 		if (color != null) {
 			int index = color.getIndex();
 
 			checkPheromonesArraySizes(index);
 
-			pheromonesTotal -= pheromones[index];
-			pheromones[index] = value;
-			pheromonesTotal += pheromones[index];
+			pheromonesTotal += value - initialPheromones[index];
+			initialPheromones[index] = value;
 		} else {
-			Arrays.fill(pheromones, value);
-			pheromonesTotal = value * pheromones.length;
+			Arrays.fill(initialPheromones, value);
+			pheromonesTotal = value * initialPheromones.length;
 		}
 	}
 
@@ -276,33 +676,176 @@ public class AntCo2Edge extends AdjacencyListEdge {
 	 *            Value to add.
 	 */
 	public void incrPheromon(Colony color, float value) {
+		if (storage == null)
+			return;
+
 		commitNeeded = true;
 
+		if (ctx != null)
+			ctx.touchEdge(this, 0);
+
 		if (color != null) {
 			int index = color.getIndex();
 
 			checkPheromonesArraySizes(index);
-			pheromonesTmp[index] += value;
+			drop(index, value);
 		} else {
-			for (int i = 0; i < pheromonesTmp.length; ++i)
-				pheromonesTmp[i] += value;
+			for (int i = 0; i < colors; ++i)
+				drop(i, value);
 		}
 	}
 
 	/**
-	 * Check that the antCountPerColor arrays are large enough.
+	 * Increment the pheromone value for a given colour index. Same as
+	 * {@link #incrPheromon(Colony, float)}, used to merge deposit buffers.
+	 * 
+	 * @param index
+	 *            Colour index.
+	 * @param value
+	 *            Value to add.
+	 */
+	protected void incrPheromon(int index, float value) {
+		if (storage == null)
+			return;
+
+		commitNeeded = true;
+		checkPheromonesArraySizes(index);
+		drop(index, value);
+	}
+
+	/**
+	 * Add a drop to the fixed-point drops of the edge if it has some, else
+	 * to the drops of the storage.
+	 * 
+	 * @param index
+	 *            Colour index.
+	 * @param value
+	 *            Value to add.
+	 */
+	protected void drop(int index, float value) {
+		if (fixedDrops != null) {
+			long drop = Math.round(value * ctx.getFixedPointScale());
+			long sum = fixedDrops[index] + drop;
+
+			// Math.round() saturates, and so does the sum: it wraps when both
+			// terms have a sign the sum does not have. Drops are positive, so
+			// the saturated sum does not depend on their order.
+
+			if (((fixedDrops[index] ^ sum) & (drop ^ sum)) < 0)
+				sum = drop < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+
+			fixedDrops[index] = sum;
+		} else {
+			float tmp = storage.getPheromoneTmp(arrayIndex, index);
+			storage.setPheromoneTmp(arrayIndex, index, tmp + value);
+		}
+	}
+
+	/**
+	 * Give the edge its row in the storage of the context, and move its
+	 * initial pheromones there. The initial pheromones are also dropped, to be
+	 * added at the first commit. A sparse storage only keeps the colonies with
+	 * the most initial pheromones, and only these ones drop theirs.
+	 * 
+	 * @param storage
+	 *            storage of the context
+	 * @param row
+	 *            row of the edge
+	 */
+	protected void bind(PheromoneStorage storage, int row) {
+		this.storage = storage;
+		this.arrayIndex = row;
+
+		storage.ensureColonyCount(colors);
+		storage.clearEdge(row);
+
+		for (int i = 0; i < colors; i++)
+			storage.setPheromone(row, i, initialPheromones[i]);
+
+		if (storage instanceof SparsePheromoneStorage) {
+			SparsePheromoneStorage sparse = (SparsePheromoneStorage) storage;
+
+			for (int i = 0; i < sparse.getEntryCount(row); i++) {
+				int colony = sparse.getEntryColony(row, i);
+
+				storage.setPheromoneTmp(row, colony, initialPheromones[colony]);
+			}
+
+			pheromonesTotal = sparseTotal(sparse);
+		} else {
+			for (int i = 0; i < colors; i++)
+				storage.setPheromoneTmp(row, i, initialPheromones[i]);
+		}
+
+		if (ctx != null && ctx.getFixedPointScale() > 0)
+			fixedDrops = new long[colors];
+
+		initialPheromones = null;
+	}
+
+	/**
+	 * Give back the row of the edge when it is removed from the context. The
+	 * edge then has no pheromones.
+	 */
+	protected void unbind() {
+		storage = null;
+		arrayIndex = -1;
+		colors = 0;
+		commitNeeded = false;
+		pheromonesTotal = 0;
+		scaleExponent = 0;
+		fixedDrops = null;
+	}
+
+	/**
+	 * Mark this edge to be updated at the next edge phase.
+	 * 
+	 * @param list
+	 *            list of the context where the edge is stored
+	 * @see AntContext#touchEdge(AntCo2Edge, int)
+	 */
+	protected void touch(int list) {
+		if (ctx != null)
+			ctx.touchEdge(this, list);
+	}
+
+	/**
+	 * Check that the pheromone arrays are large enough for a colour. New
+	 * colours start with 0.000001 real pheromones and no drops. On a bound
+	 * edge, the pending evaporation and scaling are applied first, so that the
+	 * value is the same for all the colours read after.
 	 * 
 	 * @param index
 	 */
 	protected void checkPheromonesArraySizes(int index) {
-		if (index >= pheromones.length) {
-			int n = pheromones.length;
+		if (storage == null && initialPheromones == null)
+			return;
+
+		if (index >= colors) {
+			int n = colors;
 
-			pheromonesTmp = Arrays.copyOf(pheromonesTmp, index + 1);
-			pheromones = Arrays.copyOf(pheromones, index + 1);
+			if (storage != null) {
+				settle();
+				storage.ensureColonyCount(index + 1);
 
-			Arrays.fill(pheromones, n, index + 1, 0.000001f);
+				for (int i = n; i <= index; i++) {
+					storage.setPheromone(arrayIndex, i, 0.000001f);
+					storage.setPheromoneTmp(arrayIndex, i, 0);
+				}
+
+				if (ctx.getFixedPointScale() > 0)
+					fixedDrops = fixedDrops == null ? new long[index + 1]
+							: Arrays.copyOf(fixedDrops, index + 1);
+			} else {
+				initialPheromones = Arrays.copyOf(initialPheromones, index + 1);
+				Arrays.fill(initialPheromones, n, index + 1, 0.000001f);
+			}
+
+			colors = index + 1;
 			pheromonesTotal += 0.000001f * (index + 1 - n);
+
+			if (storage instanceof SparsePheromoneStorage)
+				pheromonesTotal = sparseTotal((SparsePheromoneStorage) storage);
 		}
 	}
 
@@ -323,5 +866,25 @@ public class AntCo2Edge extends AdjacencyListEdge {
 	 */
 	public void setValue(float value) {
 		this.value = value;
+		updateValuePower();
+	}
+
+	/**
+	 * Get the weight of the edge raised to the power of
+	 * {@link AntParams#beta}. This is cached, and updated when the weight or
+	 * beta change.
+	 * 
+	 * @return the weight to the power of beta
+	 */
+	public float getValuePower() {
+		return valuePower;
+	}
+
+	/**
+	 * Compute again the cached weight to the power of beta.
+	 */
+	protected void updateValuePower() {
+		if (ctx != null)
+			valuePower = ctx.getBetaPower().apply(value);
 	}
 }
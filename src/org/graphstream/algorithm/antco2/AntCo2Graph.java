@@ -52,8 +52,14 @@ public class AntCo2Graph extends AdjacencyListGraph {
 
 		this.nodeFactory = new NodeFactory<AntCo2Node>() {
 			public AntCo2Node newInstance(String id, Graph graph) {
-				Colony c = ctx.getColonyCount() > 0 ? ctx.getColony(ctx
-						.random().nextInt(ctx.getColonyCount())) : null;
+				Colony c = null;
+
+				if (ctx.getColonyCount() > 0) {
+					CounterRandom random = ctx.nodeRandom(id);
+
+					c = ctx.getColony(random.nextInt(ctx.getColonyCount()));
+					random.done();
+				}
 
 				return new AntCo2Node(ctx, c, graph, id);
 			}
@@ -22,6 +22,7 @@ package org.graphstream.algorithm.antco2;
 
 import java.util.Arrays;
 
+import org.graphstream.algorithm.antco2.AntParams.PheromoneNumerics;
 import org.graphstream.graph.Graph;
 import org.graphstream.graph.implementations.AdjacencyListNode;
 
@@ -54,26 +55,24 @@ public class AntCo2Node extends AdjacencyListNode {
 	protected float colorRatio;
 
 	/**
-	 * Number of ants of each colour. Indices in this array maps to indices in
-	 * the colonies.
+	 * Storage of the number of ants of each colour, null until the node is
+	 * added to the context. The row of the node in the storage is
+	 * {@link #arrayIndex}, colours map to indices in the colonies.
 	 */
-	protected int[] antCountsPerColor;
+	protected PheromoneStorage storage;
 
 	/**
-	 * Same as {@link #antCountsPerColor}, but used by commit.
+	 * Number of colours counted on this node.
 	 */
-	protected int[] antCountsPerColorTmp;
+	protected int colors;
 
 	/**
-	 * Total ant count of all colours on this node.
+	 * Total ant count of all colours on this node. This is recomputed from
+	 * the temporary counts on commit, so that ants of distinct colonies never
+	 * write the same counter.
 	 */
 	protected int totalAntCount;
 
-	/**
-	 * Same as {@link #totalAntCount}, but used by commit.
-	 */
-	protected int totalAntCountTmp;
-
 	/**
 	 * Flag indicating if commit is needed.
 	 */
@@ -90,6 +89,57 @@ public class AntCo2Node extends AdjacencyListNode {
 	 */
 	protected boolean membrane;
 
+	/**
+	 * Colony and membrane status of the node at the last publication of the
+	 * colours (see {@link AntCo2Algorithm#publishColor()}).
+	 */
+	protected Colony publishedColor;
+
+	protected boolean publishedMembrane;
+
+	/**
+	 * Colour found by {@link #prepare(AntContext)}, submitted by
+	 * {@link #apply(AntContext)}. Null if there is no colour to submit.
+	 */
+	protected Colony candidateColor;
+
+	/**
+	 * Set when the neighbourhood of the node changed since its last colour
+	 * check.
+	 * 
+	 * @see AntParams#dirtyNodes
+	 */
+	protected boolean dirty = true;
+
+	/**
+	 * Position of this node in the node array of the context, or -1.
+	 */
+	protected int arrayIndex = -1;
+
+	/**
+	 * Number given to the node by the context when it was added. Contrary to
+	 * {@link #arrayIndex}, it never changes and is never reused.
+	 */
+	protected int uid = -1;
+
+	/**
+	 * Position of the node in the node sets it belongs to, by slot (see
+	 * {@link NodeSet}).
+	 */
+	protected int[] nodeSetIndices = { -1, -1 };
+
+	/**
+	 * Colony whose membrane set holds this node, or null.
+	 */
+	protected Colony membraneColony;
+
+	/**
+	 * Score vectors of the colonies built on this node during the current
+	 * step, by colony index (see {@link Ant#scoreVector()}). It has one slot
+	 * per colour counted on the node, and grows with {@link #colors}.
+	 */
+	protected ScoreVector[] scoreVectors;
+
 	/**
 	 * Constructor of an AntCo2Node.
 	 * 
@@ -106,8 +156,8 @@ public class AntCo2Node extends AdjacencyListNode {
 		super(g, id);
 
 		setColor(color);
-		antCountsPerColor = new int[ctx.getColonyCount()];
-		antCountsPerColorTmp = new int[ctx.getColonyCount()];
+		colors = ctx.getColonyCount();
+		scoreVectors = new ScoreVector[colors];
 	}
 
 	/**
@@ -186,10 +236,10 @@ public class AntCo2Node extends AdjacencyListNode {
 	public int getAntCountForColor(Colony color) {
 		int index = color.getIndex();
 
-		if (index >= antCountsPerColor.length)
+		if (index >= colors || storage == null)
 			return 0;
 
-		return antCountsPerColor[index];
+		return storage.getAntCount(arrayIndex, index);
 	}
 
 	/**
@@ -210,11 +260,18 @@ public class AntCo2Node extends AdjacencyListNode {
 				Colony oldColor = color;
 				color = newColor;
 
+				for (AntCo2Edge edge : eachEdge()) {
+					edge.cutStale = true;
+					edge.touch(0);
+				}
+
 				if (oldColor != null)
 					oldColor.unregisterNode(this);
 
 				if (newColor != null)
 					newColor.registerNode(this);
+
+				updateMembraneSet();
 			}
 		}
 	}
@@ -223,11 +280,17 @@ public class AntCo2Node extends AdjacencyListNode {
 	 * Commit changes.
 	 */
 	public void commit() {
-		if (needCommit) {
-			totalAntCount = totalAntCountTmp;
+		if (needCommit && storage != null) {
+			int row = arrayIndex;
 
-			for (int i = 0; i < antCountsPerColor.length; ++i)
-				antCountsPerColor[i] = antCountsPerColorTmp[i];
+			totalAntCount = 0;
+
+			for (int i = 0; i < colors; ++i) {
+				int count = storage.getAntCountTmp(row, i);
+
+				storage.setAntCount(row, i, count);
+				totalAntCount += count;
+			}
 
 			needCommit = false;
 		}
@@ -246,16 +309,110 @@ public class AntCo2Node extends AdjacencyListNode {
 	}
 
 	/**
-	 * Step this node.
+	 * Step this node. This is the same as {@link #prepare(AntContext)}
+	 * followed by {@link #apply(AntContext)}.
 	 * 
 	 * @param ctx
 	 */
 	public void step(AntContext ctx) {
-		checkMembrane();
-		checkColorChange(ctx);
+		prepare(ctx);
+		apply(ctx);
+	}
+
+	/**
+	 * First part of the step. Check the membrane, find the candidate colour
+	 * and commit. This only changes the node itself, so distinct nodes can be
+	 * prepared concurrently. When {@link AntParams#dirtyNodes} is set and
+	 * pheromones are read raw, the membrane and the colour are only checked
+	 * if the node is dirty.
+	 * 
+	 * @param ctx
+	 */
+	public void prepare(AntContext ctx) {
+		AntParams params = ctx.getAntParams();
+
+		if (dirty || !params.dirtyNodes
+				|| params.getPheromoneNumerics() != PheromoneNumerics.RAW) {
+			checkMembrane();
+			checkColorChange(ctx);
+			dirty = false;
+		}
+
 		commit();
 	}
 
+	/**
+	 * Mark the node to be checked at the next node phase.
+	 */
+	public void setDirty() {
+		dirty = true;
+	}
+
+	/**
+	 * Number given to the node by the context, never reused.
+	 * 
+	 * @return number of the node
+	 */
+	public int getUid() {
+		return uid;
+	}
+
+	/**
+	 * Is the node waiting for a colour check.
+	 * 
+	 * @return true if the neighbourhood of the node changed since its last
+	 *         check
+	 */
+	public boolean isDirty() {
+		return dirty;
+	}
+
+	/**
+	 * Second part of the step. Submit the candidate colour, which may change
+	 * the smoothing box and the colonies. Nodes must be applied one at a time.
+	 * 
+	 * @param ctx
+	 */
+	public void apply(AntContext ctx) {
+		if (candidateColor != null) {
+			submitColor(ctx, candidateColor);
+			candidateColor = null;
+		}
+
+		updateMembraneSet();
+	}
+
+	/**
+	 * Put the node in the membrane set of its colony if it is on the
+	 * membrane, else remove it from any membrane set. Membrane sets are only
+	 * changed sequentially, never during {@link #prepare(AntContext)}.
+	 */
+	protected void updateMembraneSet() {
+		Colony target = membrane && arrayIndex >= 0 ? color : null;
+
+		if (target != membraneColony) {
+			if (membraneColony != null)
+				membraneColony.membraneNodes.remove(this);
+
+			if (target != null)
+				target.membraneNodes.add(this);
+
+			membraneColony = target;
+		}
+	}
+
+	/**
+	 * Remove the node from the node and membrane sets of the colonies. Called
+	 * when the node is removed from the graph.
+	 */
+	protected void removeFromNodeSets() {
+		if (color != null)
+			color.nodes.remove(this);
+
+		membrane = false;
+		updateMembraneSet();
+	}
+
 	/**
 	 * Get edges adjacent to this node.
 	 * 
@@ -275,11 +432,10 @@ public class AntCo2Node extends AdjacencyListNode {
 	 */
 	public void registerAnt(Ant ant) {
 		needCommit = true;
-		totalAntCountTmp += 1;
 
 		int index = ant.getColony().getIndex();
 		checkColorArraySizes(index);
-		antCountsPerColorTmp[index]++;
+		incrAntCountTmp(index, 1);
 	}
 
 	/**
@@ -292,24 +448,108 @@ public class AntCo2Node extends AdjacencyListNode {
 	 */
 	public void unregisterAnt(Ant ant) {
 		needCommit = true;
-		totalAntCountTmp -= 1;
 
 		int index = ant.getColony().getIndex();
 		checkColorArraySizes(index);
-		antCountsPerColorTmp[index] -= 1;
+		incrAntCountTmp(index, -1);
+	}
+
+	/**
+	 * Change the temporary ant count of a colour. Same as
+	 * {@link #registerAnt(Ant)} or {@link #unregisterAnt(Ant)}, used to merge
+	 * deposit buffers.
+	 * 
+	 * @param index
+	 *            Colour index.
+	 * @param delta
+	 *            Number of ants arrived, or left if negative.
+	 */
+	protected void incrAntCount(int index, int delta) {
+		needCommit = true;
+		checkColorArraySizes(index);
+		incrAntCountTmp(index, delta);
+	}
+
+	/**
+	 * Add to the temporary ant count of a colour.
+	 * 
+	 * @param index
+	 *            Colour index.
+	 * @param delta
+	 *            Number of ants to add.
+	 */
+	private void incrAntCountTmp(int index, int delta) {
+		if (storage != null) {
+			int count = storage.getAntCountTmp(arrayIndex, index);
+			storage.setAntCountTmp(arrayIndex, index, count + delta);
+		}
+	}
+
+	/**
+	 * Give the node its row in the storage of the context. Counts of the row
+	 * are reset.
+	 * 
+	 * @param storage
+	 *            storage of the context
+	 * @param row
+	 *            row of the node
+	 */
+	protected void bind(PheromoneStorage storage, int row) {
+		this.storage = storage;
+		this.arrayIndex = row;
+
+		storage.ensureColonyCount(colors);
+		storage.clearNode(row);
+	}
+
+	/**
+	 * Give back the row of the node when it is removed from the context. Ants
+	 * still on the node can leave it, but it does not count them anymore.
+	 */
+	protected void unbind() {
+		storage = null;
+		arrayIndex = -1;
+		totalAntCount = 0;
 	}
 
 	/**
 	 * Check if the node changed colour by looking at each incident edge
-	 * dominant pheromone.
+	 * dominant pheromone. The new colour is not submitted here but stored as
+	 * the candidate colour.
 	 */
 	protected void checkColorChange(AntContext ctx) {
+		if (storage instanceof SparsePheromoneStorage) {
+			checkSparseColorChange(ctx, (SparsePheromoneStorage) storage);
+			return;
+		}
+
 		int colors = ctx.getColonyCount();
 		float values[] = new float[colors];
+		PheromoneKernel kernel = ctx.getPheromoneKernel();
+		PheromoneNumerics numerics = ctx.getAntParams().getPheromoneNumerics();
+		boolean plain = ctx.getLiveColonyCount() == colors
+				&& numerics != PheromoneNumerics.FLUSH;
 
 		// First compute the global pheromone levels for all incident edges.
 
 		for (AntCo2Edge edge : eachEdge()) {
+			// Without removed colonies nor flushing, the levels are plain
+			// sums of the rows, which the kernel makes. Renormalised rows
+			// are only summed as they are stored, lazy evaporation could
+			// bring them below the floor.
+
+			float decay = edge.decay();
+
+			if (plain
+					&& edge.scaleExponent == 0
+					&& (decay == 1 || numerics == PheromoneNumerics.RAW)) {
+				if (edge.storage != null)
+					kernel.accumulate(edge.arrayIndex,
+							Math.min(colors, edge.colors), decay, values);
+
+				continue;
+			}
+
 			for (int c = 0; c < colors; ++c) {
 				if (ctx.getColony(c) != null)
 					values[c] += edge.getPheromon(c);
@@ -359,7 +599,7 @@ public class AntCo2Node extends AdjacencyListNode {
 			 */
 
 			// setColor(newColor);
-			submitColor(ctx, newColor);
+			candidateColor = newColor;
 		}
 
 		if (secondMaxIndex >= 0) {
@@ -375,13 +615,138 @@ public class AntCo2Node extends AdjacencyListNode {
 		}
 	}
 
+	/**
+	 * Same as {@link #checkColorChange(AntContext)} on a sparse storage. The
+	 * levels are only summed for the colonies having an entry on an incident
+	 * edge, the level of all the others being the sum of the floors.
+	 * 
+	 * @param ctx
+	 *            ants context
+	 * @param sparse
+	 *            storage of the context
+	 */
+	protected void checkSparseColorChange(AntContext ctx,
+			SparsePheromoneStorage sparse) {
+		int degree = getDegree();
+		int[] keys = new int[4];
+		float[] values = new float[4];
+		int count = 0;
+		float base = 0;
+
+		// Each colony gets the floor of each edge, but the floor of an edge
+		// where it has an entry is replaced by the entry.
+
+		for (int e = 0; e < degree; e++) {
+			AntCo2Edge edge = (AntCo2Edge) getEdge(e);
+
+			if (edge.arrayIndex < 0)
+				continue;
+
+			int row = edge.arrayIndex;
+			float decay = edge.decay();
+			float floor = sparse.getFloor() * decay;
+			int n = sparse.getEntryCount(row);
+
+			base += floor;
+
+			for (int i = 0; i < n; i++) {
+				int c = sparse.getEntryColony(row, i);
+
+				if (c >= edge.colors || ctx.getColony(c) == null)
+					continue;
+
+				int k = 0;
+
+				while (k < count && keys[k] != c)
+					k++;
+
+				if (k == count) {
+					if (count == keys.length) {
+						keys = Arrays.copyOf(keys, count * 2);
+						values = Arrays.copyOf(values, count * 2);
+					}
+
+					keys[k] = c;
+					values[k] = 0;
+					count++;
+				}
+
+				values[k] += sparse.getEntryPheromone(row, i) * decay - floor;
+			}
+		}
+
+		// Then find the max level (primary and secondary colours), the lowest
+		// index winning ties as when all colonies are visited.
+
+		float valueMax = 0;
+		int maxIndex = -1;
+		float secondValueMax = 0;
+		int secondMaxIndex = -1;
+
+		for (int k = 0; k < count; k++) {
+			float v = base + values[k];
+			int c = keys[k];
+
+			if (v > valueMax || (v == valueMax && maxIndex > c)) {
+				secondValueMax = valueMax;
+				secondMaxIndex = maxIndex;
+				valueMax = v;
+				maxIndex = c;
+			} else if (v > secondValueMax
+					|| (v == secondValueMax && secondMaxIndex > c)) {
+				secondValueMax = v;
+				secondMaxIndex = c;
+			}
+		}
+
+		// Colonies without entry all have the base level, the first of them
+		// stands for all.
+
+		if (base > 0 && (secondMaxIndex < 0 || base >= secondValueMax)) {
+			int other = -1;
+
+			for (int c = 0; c < ctx.getColonyCount() && other < 0; c++) {
+				if (ctx.getColony(c) != null) {
+					int k = 0;
+
+					while (k < count && keys[k] != c)
+						k++;
+
+					if (k == count)
+						other = c;
+				}
+			}
+
+			if (other >= 0) {
+				if (base > valueMax || (base == valueMax && maxIndex > other)) {
+					secondValueMax = valueMax;
+					secondMaxIndex = maxIndex;
+					valueMax = base;
+					maxIndex = other;
+				} else if (base > secondValueMax
+						|| (base == secondValueMax && secondMaxIndex > other)) {
+					secondValueMax = base;
+					secondMaxIndex = other;
+				}
+			}
+		}
+
+		if (maxIndex >= 0)
+			candidateColor = ctx.getColony(maxIndex);
+
+		if (secondMaxIndex >= 0) {
+			secondColor = ctx.getColony(secondMaxIndex);
+			colorRatio = (secondValueMax / valueMax);
+		}
+	}
+
 	/**
 	 * Check that the antCountPerColor arrays are large enough.
 	 * 
 	 * @param index
 	 */
 	protected void checkColorArraySizes(int index) {
-		if (index >= antCountsPerColor.length)
+		if (index >= colors)
 			resizeArrays(index + 1);
 	}
 
@@ -391,8 +756,64 @@ public class AntCo2Node extends AdjacencyListNode {
 	 * @param newSize
 	 */
 	protected void resizeArrays(int newSize) {
-		antCountsPerColorTmp = Arrays.copyOf(antCountsPerColorTmp, newSize);
-		antCountsPerColor = Arrays.copyOf(antCountsPerColor, newSize);
+		if (storage != null)
+			storage.ensureColonyCount(newSize);
+
+		colors = newSize;
+
+		if (scoreVectors.length < newSize)
+			scoreVectors = Arrays.copyOf(scoreVectors, newSize);
+	}
+
+	/**
+	 * Get the score vector a colony built on this node at a given step.
+	 * 
+	 * @param colony
+	 *            index of the colony
+	 * @param step
+	 *            the step
+	 * @return the vector, or null if it has not been built yet
+	 */
+	public ScoreVector getScoreVector(int colony, int step) {
+		ScoreVector[] vectors = scoreVectors;
+
+		if (colony < vectors.length) {
+			ScoreVector vector = vectors[colony];
+
+			if (vector != null && vector.step == step)
+				return vector;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Can the node keep the score vector of a colony? It can for all the
+	 * colonies of the context, once their arrays are grown.
+	 * 
+	 * @param colony
+	 *            index of the colony
+	 * @return true if {@link #setScoreVector(int, ScoreVector)} keeps it
+	 */
+	public boolean keepsScoreVector(int colony) {
+		return colony < scoreVectors.length;
+	}
+
+	/**
+	 * Keep the score vector of a colony for the other ants of the colony
+	 * coming on this node during the same step. This may be called
+	 * concurrently with the same vector.
+	 * 
+	 * @param colony
+	 *            index of the colony
+	 * @param vector
+	 *            the vector
+	 */
+	public void setScoreVector(int colony, ScoreVector vector) {
+		ScoreVector[] vectors = scoreVectors;
+
+		if (colony < vectors.length)
+			vectors[colony] = vector;
 	}
 
 	/**
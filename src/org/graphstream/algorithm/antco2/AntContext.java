@@ -20,19 +20,32 @@
  */
 package org.graphstream.algorithm.antco2;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 
+import org.graphstream.algorithm.antco2.AntParams.RandomCheck;
 import org.graphstream.algorithm.antco2.policy.ProportionalPopulationPolicy;
 import org.graphstream.algorithm.antco2.smoothingBox.CohesionBox;
 import org.graphstream.algorithm.antco2.smoothingBox.IdentityBox;
 import org.graphstream.algorithm.antco2.smoothingBox.RandomTimedBox;
 import org.graphstream.algorithm.antco2.smoothingBox.TimedBox;
+import org.graphstream.algorithm.antco2.storage.ArrayKernel;
+import org.graphstream.algorithm.antco2.storage.FlatStorage;
+import org.graphstream.algorithm.antco2.storage.ObjectStorage;
+import org.graphstream.algorithm.antco2.storage.OffHeapStorage;
+import org.graphstream.algorithm.antco2.storage.ScalarKernel;
+import org.graphstream.algorithm.antco2.storage.SparseStorage;
 import org.graphstream.stream.ElementSink;
 
 /**
@@ -43,6 +56,17 @@ import org.graphstream.stream.ElementSink;
  * 
  */
 public class AntContext implements ElementSink {
+	/**
+	 * Mixed to the seed for the random streams of edges, so that they differ
+	 * from the streams of nodes and ants.
+	 */
+	protected static final long EDGE_STREAMS = 0x5DEECE66DL << 20;
+
+	/**
+	 * Mixed to the seed for the random streams of nodes.
+	 */
+	protected static final long NODE_STREAMS = 0x2545F4914F6CDD1DL;
+
 	/**
 	 * Iterator over colonies. This iterator is safe to colonies changes.
 	 * 
@@ -100,6 +124,226 @@ public class AntContext implements ElementSink {
 		}
 	}
 
+	/**
+	 * Task merging one bucket of all the deposit buffers used during the step.
+	 * Buffers are merged in the order of their slices.
+	 * 
+	 * @author adutot, gsavin
+	 * 
+	 */
+	class BucketMerge extends RecursiveAction {
+		private static final long serialVersionUID = 6317403816326271032L;
+
+		/**
+		 * Index of the bucket to merge.
+		 */
+		protected final int bucket;
+
+		BucketMerge(int bucket) {
+			this.bucket = bucket;
+		}
+
+		/**
+		 * Merge the bucket of each used buffer.
+		 */
+		protected void compute() {
+			for (int i = 0; i < usedBuffers; i++)
+				buffers.get(i).merge(bucket);
+		}
+	}
+
+	/**
+	 * Task stepping a range of the edge array.
+	 * 
+	 * @author adutot, gsavin
+	 * 
+	 */
+	class EdgeRange extends RecursiveAction {
+		private static final long serialVersionUID = -3968043364128498577L;
+
+		/**
+		 * Array of the edges.
+		 */
+		protected final AntCo2Edge[] edges;
+
+		/**
+		 * Index of the first edge of the range.
+		 */
+		protected final int from;
+
+		/**
+		 * Index after the last edge of the range.
+		 */
+		protected final int to;
+
+		EdgeRange(AntCo2Edge[] edges, int from, int to) {
+			this.edges = edges;
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * Step the edges of the range.
+		 */
+		protected void compute() {
+			for (int i = from; i < to; i++)
+				edges[i].step(AntContext.this);
+		}
+	}
+
+	/**
+	 * Task stepping the first edges of an array, split in {@link EdgeRange}s
+	 * of the same size.
+	 * 
+	 * @author adutot, gsavin
+	 * 
+	 */
+	class EdgesStep extends RecursiveAction {
+		private static final long serialVersionUID = 5524213706152093345L;
+
+		/**
+		 * Array of the edges.
+		 */
+		protected final AntCo2Edge[] edges;
+
+		/**
+		 * Number of edges to step.
+		 */
+		protected final int size;
+
+		/**
+		 * Number of ranges.
+		 */
+		protected final int ranges;
+
+		EdgesStep(AntCo2Edge[] edges, int size, int ranges) {
+			this.edges = edges;
+			this.size = size;
+			this.ranges = ranges;
+		}
+
+		/**
+		 * Fork a task for each range and wait for all of them.
+		 */
+		protected void compute() {
+			LinkedList<EdgeRange> tasks = new LinkedList<EdgeRange>();
+
+			for (int r = 0; r < ranges; r++) {
+				int from = (int) ((long) size * r / ranges);
+				int to = (int) ((long) size * (r + 1) / ranges);
+
+				tasks.add(new EdgeRange(edges, from, to));
+			}
+
+			invokeAll(tasks);
+		}
+	}
+
+	/**
+	 * Task preparing a range of the node array.
+	 * 
+	 * @author adutot, gsavin
+	 * 
+	 */
+	class NodeRange extends RecursiveAction {
+		private static final long serialVersionUID = 2245934126396627010L;
+
+		/**
+		 * Index of the first node of the range.
+		 */
+		protected final int from;
+
+		/**
+		 * Index after the last node of the range.
+		 */
+		protected final int to;
+
+		NodeRange(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * Prepare the nodes of the range.
+		 */
+		protected void compute() {
+			for (int i = from; i < to; i++)
+				nodeArray[i].prepare(AntContext.this);
+		}
+	}
+
+	/**
+	 * Task preparing all the nodes, split in {@link NodeRange}s of the same
+	 * size.
+	 * 
+	 * @author adutot, gsavin
+	 * 
+	 */
+	class NodesStep extends RecursiveAction {
+		private static final long serialVersionUID = -817152935012338637L;
+
+		/**
+		 * Number of ranges.
+		 */
+		protected final int ranges;
+
+		NodesStep(int ranges) {
+			this.ranges = ranges;
+		}
+
+		/**
+		 * Fork a task for each range and wait for all of them.
+		 */
+		protected void compute() {
+			LinkedList<NodeRange> tasks = new LinkedList<NodeRange>();
+
+			for (int r = 0; r < ranges; r++) {
+				int from = (int) ((long) nodeArraySize * r / ranges);
+				int to = (int) ((long) nodeArraySize * (r + 1) / ranges);
+
+				tasks.add(new NodeRange(from, to));
+			}
+
+			invokeAll(tasks);
+		}
+	}
+
+	/**
+	 * Task stepping all the colonies. The ants of all colonies are split in
+	 * slices, each slice having its own deposit buffer. Slices are forked, then
+	 * buffers are merged, one task per bucket.
+	 * 
+	 * @author adutot, gsavin
+	 * 
+	 */
+	class ColoniesStep extends RecursiveAction {
+		private static final long serialVersionUID = -2190245472840866212L;
+
+		/**
+		 * Fork a task for each slice and wait for all of them, then merge.
+		 */
+		protected void compute() {
+			LinkedList<AntSlice> slices = new LinkedList<AntSlice>();
+
+			for (Colony colony : eachColony())
+				slices.addAll(colony.slices());
+
+			usedBuffers = 0;
+
+			for (AntSlice slice : slices)
+				slice.setBuffer(depositBuffer(usedBuffers++));
+
+			invokeAll(slices);
+
+			LinkedList<BucketMerge> merges = new LinkedList<BucketMerge>();
+
+			for (int i = 0; i < bucketCount; i++)
+				merges.add(new BucketMerge(i));
+
+			invokeAll(merges);
+		}
+	}
+
 	/**
 	 * Internal graph model.
 	 * 
@@ -128,6 +372,11 @@ public class AntContext implements ElementSink {
 	 */
 	protected ArrayList<Colony> colonies;
 
+	/**
+	 * Number of colonies not removed.
+	 */
+	protected int liveColonyCount;
+
 	/**
 	 * Iterable over colonies, used to provide safe iterators.
 	 */
@@ -139,19 +388,59 @@ public class AntContext implements ElementSink {
 	protected long timeId;
 
 	/**
-	 * Random instance.
+	 * Random stream of the context, for draws not made by an ant, an edge or
+	 * a node.
 	 */
 	protected Random random;
 
+	/**
+	 * Log of the draws of the random streams, null unless
+	 * {@link AntParams#randomCheck} is set.
+	 */
+	protected RandomLog randomLog;
+
+	/**
+	 * Power used to raise pheromones to {@link AntParams#alpha}.
+	 */
+	protected Power alphaPower;
+
+	/**
+	 * Power used to raise edge weights to {@link AntParams#beta}.
+	 */
+	protected Power betaPower;
+
 	/**
 	 * Number of jumps of the last step.
 	 */
-	protected int jumps;
+	protected AtomicInteger jumps;
+
+	/**
+	 * Number of jumps of the last step made by ants which had already jumped
+	 * at the step before.
+	 */
+	protected AtomicInteger repeatedJumps;
+
+	/**
+	 * Number of times an ant perceived only a sample of the edges of its node
+	 * during the last step (see {@link AntParams#sampledDegree}).
+	 */
+	protected AtomicInteger sampledMoves;
+
+	/**
+	 * Number of edges perceived by the sampled moves of the last step.
+	 */
+	protected AtomicLong sampledEdges;
+
+	/**
+	 * Total of the degrees of the nodes of the sampled moves of the last
+	 * step.
+	 */
+	protected AtomicLong sampledDegrees;
 
 	/**
 	 * Number of over populated nodes encountered.
 	 */
-	protected int surpop;
+	protected AtomicInteger surpop;
 
 	/**
 	 * Number of nodes/edges migrations.
@@ -166,7 +455,7 @@ public class AntContext implements ElementSink {
 	/**
 	 * Jumps count per colony.
 	 */
-	protected int[] jumpsPerColony;
+	protected AtomicIntegerArray jumpsPerColony;
 
 	/**
 	 * Ants count.
@@ -175,10 +464,131 @@ public class AntContext implements ElementSink {
 
 	protected SmoothingBox smoothingBox;
 
+	/**
+	 * Storage of the pheromones of edges and of the ant counts of nodes.
+	 */
+	protected PheromoneStorage storage;
+
+	/**
+	 * Passes over the pheromones of the dense storages.
+	 */
+	protected PheromoneKernel kernel;
+
+	/**
+	 * Value of 1 in the fixed-point drops of edges, or 0 if drops are floats
+	 * (see {@link AntParams#fixedPointBits}).
+	 */
+	protected double fixedPointScale;
+
 	protected Measures measures;
 
 	protected String outputMeasures;
 
+	/**
+	 * Pool used to step colonies concurrently. This is null when
+	 * {@link AntParams#parallelism} is 1.
+	 */
+	protected ForkJoinPool pool;
+
+	/**
+	 * Deposit buffers, reused from one step to the next. Buffer i is given to
+	 * the i-th slice of the step.
+	 */
+	protected ArrayList<DepositBuffer> buffers;
+
+	/**
+	 * Number of buffers used by the current step.
+	 */
+	protected int usedBuffers;
+
+	/**
+	 * Number of buckets of each deposit buffer.
+	 */
+	protected int bucketCount;
+
+	/**
+	 * Edges of the internal graph, packed so that they can be split in ranges.
+	 * Only the first {@link #edgeArraySize} cells are used.
+	 */
+	protected AntCo2Edge[] edgeArray = new AntCo2Edge[16];
+
+	/**
+	 * Number of edges in {@link #edgeArray}.
+	 */
+	protected int edgeArraySize;
+
+	/**
+	 * Nodes of the internal graph, packed so that they can be split in ranges.
+	 * Only the first {@link #nodeArraySize} cells are used.
+	 */
+	protected AntCo2Node[] nodeArray = new AntCo2Node[16];
+
+	/**
+	 * Number of nodes in {@link #nodeArray}.
+	 */
+	protected int nodeArraySize;
+
+	/**
+	 * Adjacency of the nodes by row, or null if ants walk the GraphStream
+	 * elements (see {@link AntParams#compactTopology}).
+	 */
+	protected Topology topology;
+
+	/**
+	 * Number given to the next node added (see {@link AntCo2Node#getUid()}).
+	 */
+	protected int nodeUids;
+
+	/**
+	 * Nodes added since {@link #beginBatch()}, whose ants are not allocated
+	 * yet, or null outside of a batch. Removed nodes are left as null cells.
+	 */
+	protected AntCo2Node[] batchNodes;
+
+	/**
+	 * Number of cells used in {@link #batchNodes}.
+	 */
+	protected int batchNodeCount;
+
+	/**
+	 * Uid of the first node of {@link #batchNodes}. Nodes of a batch have
+	 * consecutive uids.
+	 */
+	protected int batchFirstUid;
+
+	/**
+	 * Last step whose edge phase is done. Pheromones read by ants and nodes
+	 * are the ones of this step.
+	 */
+	protected int pheromoneStep = -1;
+
+	/**
+	 * Powers of rho, indexed by the exponent.
+	 */
+	protected float[] rhoPowers = { 1 };
+
+	/**
+	 * Edges to update at the next edge phase when evaporation is lazy, one
+	 * list per deposit bucket so that buckets can be merged concurrently.
+	 */
+	protected ArrayList<ArrayList<AntCo2Edge>> touchedEdges;
+
+	/**
+	 * Gathered {@link #touchedEdges}, split in ranges by the edge phase.
+	 */
+	protected AntCo2Edge[] touchedArray = new AntCo2Edge[16];
+
+	/**
+	 * Set when all edges have to be updated at the next edge phase, even with
+	 * lazy evaporation, for example because colonies changed.
+	 */
+	protected boolean edgesOutdated;
+
+	/**
+	 * Time spent stepping the edges during the last step, in nanoseconds.
+	 */
+	protected long edgeStepTime;
+
 	/**
 	 * Default constructor.
 	 */
@@ -191,7 +601,16 @@ public class AntContext implements ElementSink {
 		locked = new ReentrantLock();
 		listeners = new LinkedList<AntCo2Listener>();
 
-		jumpsPerColony = new int[Math.max(1, colonies.size())];
+		alphaPower = new Power(params.alpha);
+		betaPower = new Power(params.beta);
+
+		jumps = new AtomicInteger();
+		repeatedJumps = new AtomicInteger();
+		sampledMoves = new AtomicInteger();
+		sampledEdges = new AtomicLong();
+		sampledDegrees = new AtomicLong();
+		surpop = new AtomicInteger();
+		jumpsPerColony = new AtomicIntegerArray(Math.max(1, colonies.size()));
 
 		internalGraph.addElementSink(this);
 	}
@@ -200,6 +619,64 @@ public class AntContext implements ElementSink {
 		return smoothingBox;
 	}
 
+	/**
+	 * Get the storage of pheromones and ant counts.
+	 * 
+	 * @return the storage
+	 */
+	public PheromoneStorage getStorage() {
+		return storage;
+	}
+
+	/**
+	 * Get the adjacency of the nodes by row.
+	 * 
+	 * @return the topology, or null if ants walk the GraphStream elements
+	 */
+	public Topology getTopology() {
+		return topology;
+	}
+
+	/**
+	 * Node at a row of the context.
+	 * 
+	 * @param row
+	 *            row of the node
+	 * @return the node
+	 */
+	public AntCo2Node getNodeAt(int row) {
+		return nodeArray[row];
+	}
+
+	/**
+	 * Edge at a row of the context.
+	 * 
+	 * @param row
+	 *            row of the edge
+	 * @return the edge
+	 */
+	public AntCo2Edge getEdgeAt(int row) {
+		return edgeArray[row];
+	}
+
+	/**
+	 * Get the kernel running the passes over the pheromones of the storage.
+	 * 
+	 * @return the kernel
+	 */
+	public PheromoneKernel getPheromoneKernel() {
+		return kernel;
+	}
+
+	/**
+	 * Get the value of 1 in the fixed-point drops of edges.
+	 * 
+	 * @return the scale, or 0 if drops are summed as floats
+	 */
+	public double getFixedPointScale() {
+		return fixedPointScale;
+	}
+
 	/**
 	 * Access to parameters.
 	 * 
@@ -209,6 +686,43 @@ public class AntContext implements ElementSink {
 		return params;
 	}
 
+	/**
+	 * Power raising pheromones to {@link AntParams#alpha}, as perceived by
+	 * ants. It is chosen again at the beginning of each step if alpha
+	 * changed.
+	 * 
+	 * @return the power
+	 */
+	public Power getAlphaPower() {
+		return alphaPower;
+	}
+
+	/**
+	 * Power raising edge weights to {@link AntParams#beta}. It is chosen again
+	 * at the beginning of each step if beta changed, and the weights cached by
+	 * the edges are then computed again.
+	 * 
+	 * @return the power
+	 */
+	public Power getBetaPower() {
+		return betaPower;
+	}
+
+	/**
+	 * Choose the powers again if alpha or beta changed.
+	 */
+	protected void updatePowers() {
+		if (alphaPower.getExponent() != params.alpha)
+			alphaPower = new Power(params.alpha);
+
+		if (betaPower.getExponent() != params.beta) {
+			betaPower = new Power(params.beta);
+
+			for (int i = 0; i < edgeArraySize; i++)
+				edgeArray[i].updateValuePower();
+		}
+	}
+
 	/**
 	 * Get the policy used for the ants population.
 	 * 
@@ -227,6 +741,16 @@ public class AntContext implements ElementSink {
 		return colonies.size();
 	}
 
+	/**
+	 * Get the number of colonies, not counting the removed ones that
+	 * {@link #getColonyCount()} counts.
+	 * 
+	 * @return live colonies count
+	 */
+	public int getLiveColonyCount() {
+		return liveColonyCount;
+	}
+
 	/**
 	 * Get the i-th colony.
 	 * 
@@ -247,6 +771,15 @@ public class AntContext implements ElementSink {
 		return step;
 	}
 
+	/**
+	 * Get the time spent stepping the edges during the last step.
+	 * 
+	 * @return time in nanoseconds
+	 */
+	public long getEdgeStepTime() {
+		return edgeStepTime;
+	}
+
 	/**
 	 * Get the nodes count in the internal graph.
 	 * 
@@ -290,6 +823,42 @@ public class AntContext implements ElementSink {
 		return random;
 	}
 
+	/**
+	 * Random stream of a new edge, derived from the seed, the id of the edge
+	 * and the current step. It does not depend on the order in which edges
+	 * are added.
+	 * 
+	 * @param id
+	 *            id of the edge
+	 * @return a new stream
+	 */
+	public CounterRandom edgeRandom(String id) {
+		return new CounterRandom(CounterRandom.key(params.randomSeed
+				^ EDGE_STREAMS, CounterRandom.hash(id), step), randomLog);
+	}
+
+	/**
+	 * Random stream of a new node, derived from the seed, the id of the node
+	 * and the current step.
+	 * 
+	 * @param id
+	 *            id of the node
+	 * @return a new stream
+	 */
+	public CounterRandom nodeRandom(String id) {
+		return new CounterRandom(CounterRandom.key(params.randomSeed
+				^ NODE_STREAMS, CounterRandom.hash(id), step), randomLog);
+	}
+
+	/**
+	 * Log of the draws of the random streams.
+	 * 
+	 * @return the log, or null if streams are not checked
+	 */
+	public RandomLog getRandomLog() {
+		return randomLog;
+	}
+
 	/**
 	 * Get the source id used for sink operations.
 	 * 
@@ -335,12 +904,42 @@ public class AntContext implements ElementSink {
 		else
 			colonies.add(index, colony);
 
+		liveColonyCount++;
+		checkArraySizes(colonies.size());
+		edgesOutdated = true;
+		setNodesDirty();
 		populationPolicy.colonyAdded(colony);
 
 		for (AntCo2Listener l : listeners)
 			l.colonyAdded(colony);
 	}
 
+	/**
+	 * Grow the per-colony arrays of the context, the edges and the nodes so
+	 * that they can hold the given number of colonies. Arrays are never grown
+	 * while a step is running, so that colonies can be stepped concurrently.
+	 * 
+	 * @param size
+	 *            number of colonies
+	 */
+	protected void checkArraySizes(int size) {
+		storage.ensureColonyCount(size);
+
+		if (size > jumpsPerColony.length()) {
+			AtomicIntegerArray old = jumpsPerColony;
+			jumpsPerColony = new AtomicIntegerArray(size);
+
+			for (int i = 0; i < old.length(); i++)
+				jumpsPerColony.set(i, old.get(i));
+		}
+
+		for (AntCo2Edge e : eachEdge())
+			e.checkPheromonesArraySizes(size - 1);
+
+		for (AntCo2Node n : eachNode())
+			n.checkColorArraySizes(size - 1);
+	}
+
 	/**
 	 * Remove a colony.
 	 * 
@@ -368,6 +967,9 @@ public class AntContext implements ElementSink {
 		populationPolicy.colonyRemoved(colony);
 		colony.removed();
 		colonies.set(colony.getIndex(), null);
+		liveColonyCount--;
+		edgesOutdated = true;
+		setNodesDirty();
 
 		for (AntCo2Listener l : listeners)
 			l.colonyRemoved(colony);
@@ -391,6 +993,48 @@ public class AntContext implements ElementSink {
 		return internalGraph.antco2EdgeSet();
 	}
 
+	/**
+	 * Pick a node uniformly in constant time, using the dense array of nodes.
+	 * 
+	 * @param random
+	 *            random stream of the caller
+	 * @return a node, or null if the graph has no node
+	 */
+	public AntCo2Node randomNode(Random random) {
+		if (nodeArraySize == 0)
+			return null;
+
+		return nodeArray[random.nextInt(nodeArraySize)];
+	}
+
+	/**
+	 * Pick the node where an ant of a colony jumps, according to
+	 * {@link AntParams#getJumpTarget()}. If the colony has no node of the
+	 * requested kind, the node is picked in the whole graph.
+	 * 
+	 * @param colony
+	 *            colony of the ant
+	 * @param random
+	 *            random stream of the ant
+	 * @return a node, or null if the graph has no node
+	 */
+	public AntCo2Node jumpTarget(Colony colony, Random random) {
+		AntCo2Node node = null;
+
+		switch (params.getJumpTarget()) {
+		case COLONY:
+			node = colony.randomNode(random);
+			break;
+		case MEMBRANE:
+			node = colony.randomMembraneNode(random);
+			break;
+		case GRAPH:
+			break;
+		}
+
+		return node != null ? node : randomNode(random);
+	}
+
 	/**
 	 * Access to nodes in a for-each operation.
 	 * 
@@ -402,12 +1046,84 @@ public class AntContext implements ElementSink {
 
 	public void init() {
 		colonies.clear();
-
-		random = new Random(params.randomSeed);
+		liveColonyCount = 0;
+
+		random = new CounterRandom(params.randomSeed);
+		randomLog = null;
+
+		if (params.getRandomCheck() != RandomCheck.OFF) {
+			try {
+				randomLog = new RandomLog(params.getRandomCheck(), params
+						.getRandomCheckPath());
+			} catch (IOException e) {
+				throw new IllegalStateException("cannot open the random check "
+						+ "log " + params.getRandomCheckPath(), e);
+			}
+		}
 		populationPolicy = new ProportionalPopulationPolicy();
 		populationPolicy.init(this);
 
-		jumpsPerColony = new int[1];
+		jumps.set(0);
+		repeatedJumps.set(0);
+		sampledMoves.set(0);
+		sampledEdges.set(0);
+		sampledDegrees.set(0);
+		surpop.set(0);
+		jumpsPerColony = new AtomicIntegerArray(1);
+
+		if (pool != null)
+			pool.shutdown();
+
+		int threads = Math.max(params.parallelism, Math.max(
+				params.edgeParallelism, params.nodeParallelism));
+
+		pool = threads > 1 ? new ForkJoinPool(threads) : null;
+		buffers = new ArrayList<DepositBuffer>();
+		usedBuffers = 0;
+		bucketCount = DepositBuffer.bucketCount(params.parallelism);
+		step = 0;
+		edgeStepTime = 0;
+		pheromoneStep = -1;
+		edgesOutdated = false;
+		touchedEdges = new ArrayList<ArrayList<AntCo2Edge>>();
+
+		for (int i = 0; i < bucketCount; i++)
+			touchedEdges.add(new ArrayList<AntCo2Edge>());
+
+		computeRhoPowers();
+
+		switch (params.getStoragePolicy()) {
+		default:
+			storage = new ObjectStorage();
+			break;
+		case FLAT:
+			storage = new FlatStorage();
+			break;
+		case OFF_HEAP:
+			storage = new OffHeapStorage();
+			break;
+		case SPARSE:
+			storage = new SparseStorage();
+			break;
+		}
+
+		storage.init(this);
+		topology = params.compactTopology ? new Topology() : null;
+
+		switch (params.getKernelPolicy()) {
+		default:
+			if (storage instanceof PheromoneRows)
+				kernel = new ArrayKernel((PheromoneRows) storage);
+			else
+				kernel = new ScalarKernel(storage);
+			break;
+		case SCALAR:
+			kernel = new ScalarKernel(storage);
+			break;
+		}
+
+		fixedPointScale = params.fixedPointBits > 0 ? Math.scalb(1.0,
+				params.fixedPointBits) : 0;
 
 		internalGraph.clear();
 
@@ -442,14 +1158,22 @@ public class AntContext implements ElementSink {
 		for (Colony colony : eachColony())
 			colony.commit();
 
-		for (Colony colony : eachColony())
-			colony.step();
+		updatePowers();
 
-		for (AntCo2Edge e : eachEdge())
-			e.step(this);
+		jumps.set(0);
+		repeatedJumps.set(0);
+		sampledMoves.set(0);
+		sampledEdges.set(0);
+		sampledDegrees.set(0);
 
-		for (AntCo2Node n : eachNode())
-			n.step(this);
+		for (int i = 0; i < jumpsPerColony.length(); i++)
+			jumpsPerColony.set(i, 0);
+
+		stepColonies();
+
+		stepEdges();
+
+		stepNodes();
 
 		populationPolicy.step();
 
@@ -459,31 +1183,311 @@ public class AntContext implements ElementSink {
 			listeners.get(i).step(this);
 
 		measures.step();
+
+		step++;
+	}
+
+	/**
+	 * Make all the ants run. Colonies only write in their own slot of the
+	 * temporary buffers of nodes and edges. When stepped concurrently, ants of
+	 * a same colony may run on distinct threads: they then record their
+	 * changes in the deposit buffer of their slice, merged afterwards in slice
+	 * order. Each ant draws from its own random stream, so the result does
+	 * not depend on the number of threads.
+	 */
+	protected void stepColonies() {
+		if (pool == null) {
+			for (Colony colony : eachColony())
+				colony.step();
+		} else {
+			pool.invoke(new ColoniesStep());
+		}
+	}
+
+	/**
+	 * Evaporate, commit and find the dominant colour of all edges. Edges are
+	 * independent in this phase: they only read the colour of their nodes,
+	 * which does not change here. The edge array is split in
+	 * {@link AntParams#edgeParallelism} contiguous ranges stepped concurrently.
+	 */
+	protected void stepEdges() {
+		long start = System.nanoTime();
+
+		if (params.lazyEvaporation && !edgesOutdated) {
+			int size = gatherTouchedEdges();
+
+			stepEdges(touchedArray, size);
+		} else {
+			stepEdges(edgeArray, edgeArraySize);
+		}
+
+		for (ArrayList<AntCo2Edge> list : touchedEdges)
+			list.clear();
+
+		edgesOutdated = false;
+		pheromoneStep = step;
+		edgeStepTime = System.nanoTime() - start;
+	}
+
+	/**
+	 * Step the first edges of an array, concurrently if possible.
+	 * 
+	 * @param edges
+	 *            array of the edges
+	 * @param size
+	 *            number of edges to step
+	 */
+	protected void stepEdges(AntCo2Edge[] edges, int size) {
+		int ranges = params.edgeParallelism > 0 ? params.edgeParallelism
+				: params.parallelism;
+
+		ranges = Math.min(ranges, size);
+
+		if (pool == null || ranges < 2) {
+			for (int i = 0; i < size; i++)
+				edges[i].step(this);
+		} else {
+			pool.invoke(new EdgesStep(edges, size, ranges));
+		}
+	}
+
+	/**
+	 * Copy the edges touched since the last edge phase in
+	 * {@link #touchedArray}. Edges removed from the graph meanwhile are
+	 * skipped.
+	 * 
+	 * @return number of touched edges
+	 */
+	protected int gatherTouchedEdges() {
+		int size = 0;
+
+		for (ArrayList<AntCo2Edge> list : touchedEdges) {
+			for (int i = 0; i < list.size(); i++) {
+				AntCo2Edge e = list.get(i);
+
+				if (e.arrayIndex < 0) {
+					e.touched = false;
+				} else {
+					if (size == touchedArray.length)
+						touchedArray = Arrays.copyOf(touchedArray, size * 2);
+
+					touchedArray[size++] = e;
+				}
+			}
+		}
+
+		return size;
+	}
+
+	/**
+	 * Mark an edge to be updated at the next edge phase. This is only needed
+	 * when evaporation is lazy. Edges of a same list must not be touched
+	 * concurrently.
+	 * 
+	 * @param e
+	 *            the edge
+	 * @param list
+	 *            index of the list, the deposit bucket of the edge or 0
+	 */
+	protected void touchEdge(AntCo2Edge e, int list) {
+		if (params.lazyEvaporation && !e.touched) {
+			e.touched = true;
+			touchedEdges.get(list).add(e);
+		}
+	}
+
+	/**
+	 * Compute the table used by {@link #rhoPower(int)}. The table stops when
+	 * powers become too small to be represented.
+	 */
+	protected void computeRhoPowers() {
+		int size = 2;
+		double rho = params.rho;
+
+		if (rho > 0 && rho < 1)
+			size = (int) Math.min(1 << 16,
+					Math.ceil(Math.log(Float.MIN_VALUE) / Math.log(rho)) + 2);
+
+		rhoPowers = new float[size];
+
+		for (int k = 0; k < size; k++)
+			rhoPowers[k] = (float) Math.pow(rho, k);
+	}
+
+	/**
+	 * Factor applied to the pheromones of an edge that did not evaporate
+	 * during some steps.
+	 * 
+	 * @param k
+	 *            number of steps
+	 * @return rho to the power of k
+	 */
+	public float rhoPower(int k) {
+		if (k < rhoPowers.length)
+			return rhoPowers[k];
+
+		return (float) Math.pow(params.rho, k);
+	}
+
+	/**
+	 * Get the last step whose edge phase is done.
+	 * 
+	 * @return a step, -1 before the first step
+	 */
+	public int getPheromoneStep() {
+		return pheromoneStep;
+	}
+
+	/**
+	 * Step all nodes in two phases. Nodes are first prepared: membrane,
+	 * candidate colour and commit only depend on the edges and the node
+	 * itself, so the node array is split in {@link AntParams#nodeParallelism}
+	 * ranges prepared concurrently. Candidate colours are then applied one
+	 * node at a time, in array order, since the smoothing box and the colonies
+	 * are shared.
+	 */
+	protected void stepNodes() {
+		int ranges = params.nodeParallelism > 0 ? params.nodeParallelism
+				: params.parallelism;
+
+		ranges = Math.min(ranges, nodeArraySize);
+
+		if (pool == null || ranges < 2) {
+			for (int i = 0; i < nodeArraySize; i++)
+				nodeArray[i].prepare(this);
+		} else {
+			pool.invoke(new NodesStep(ranges));
+		}
+
+		for (int i = 0; i < nodeArraySize; i++)
+			nodeArray[i].apply(this);
+	}
+
+	/**
+	 * Mark all nodes to be checked at the next node phase.
+	 */
+	protected void setNodesDirty() {
+		for (int i = 0; i < nodeArraySize; i++)
+			nodeArray[i].dirty = true;
 	}
 
 	/**
-	 * Increments jumps count.
+	 * Get the i-th deposit buffer, creating it if needed.
+	 * 
+	 * @param i
+	 *            index of the buffer
+	 * @return the buffer
+	 */
+	protected DepositBuffer depositBuffer(int i) {
+		while (buffers.size() <= i)
+			buffers.add(new DepositBuffer(bucketCount));
+
+		return buffers.get(i);
+	}
+
+	/**
+	 * Release the threads used by this context.
+	 */
+	public void terminate() {
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+
+		if (randomLog != null) {
+			RandomLog log = randomLog;
+			randomLog = null;
+
+			try {
+				log.close();
+			} catch (IOException e) {
+				throw new IllegalStateException("cannot write the random check "
+						+ "log " + params.getRandomCheckPath(), e);
+			}
+		}
+	}
+
+	/**
+	 * Increments jumps count. This can be called concurrently by ants of
+	 * distinct colonies.
 	 * 
 	 * @param ant
 	 *            the ant which has jumped
 	 */
 	public void incrJumps(Ant ant) {
-		jumps++;
+		jumps.incrementAndGet();
+		jumpsPerColony.incrementAndGet(ant.getColony().getIndex());
 
-		Colony color = ant.getColony();
+		if (ant.lastJump == step - 1)
+			repeatedJumps.incrementAndGet();
 
-		if (color.getIndex() >= jumpsPerColony.length)
-			jumpsPerColony = Arrays
-					.copyOf(jumpsPerColony, color.getIndex() + 1);
+		ant.lastJump = step;
+	}
 
-		jumpsPerColony[color.getIndex()]++;
+	/**
+	 * Number of jumps of the last step.
+	 * 
+	 * @return jump count
+	 */
+	public int getJumpCount() {
+		return jumps.get();
 	}
 
 	/**
-	 * Increments surpopulation count.
+	 * Number of jumps of the last step made by ants which had already jumped
+	 * at the step before. Ants jumping again and again did not find a place
+	 * where they fit.
+	 * 
+	 * @return repeated jump count
+	 */
+	public int getRepeatedJumpCount() {
+		return repeatedJumps.get();
+	}
+
+	/**
+	 * Increments the count of ants perceiving only a sample of the edges. This
+	 * can be called concurrently by ants of distinct colonies.
+	 * 
+	 * @param perceived
+	 *            number of edges in the sample
+	 * @param degree
+	 *            degree of the node of the ant
+	 */
+	public void incrSampledMoves(int perceived, int degree) {
+		sampledMoves.incrementAndGet();
+		sampledEdges.addAndGet(perceived);
+		sampledDegrees.addAndGet(degree);
+	}
+
+	/**
+	 * Number of times an ant perceived only a sample of the edges of its node
+	 * during the last step, instead of all of them.
+	 * 
+	 * @return sampled move count
+	 */
+	public int getSampledMoveCount() {
+		return sampledMoves.get();
+	}
+
+	/**
+	 * Share of the edges perceived by the sampled moves of the last step:
+	 * the number of sampled edges over the total of the degrees of the nodes
+	 * the ants stood on.
+	 * 
+	 * @return the share, between 0 and 1, or 1 if no move was sampled
+	 */
+	public double getSampleCoverage() {
+		long degrees = sampledDegrees.get();
+
+		return degrees > 0 ? sampledEdges.get() / (double) degrees : 1;
+	}
+
+	/**
+	 * Increments surpopulation count. This can be called concurrently by ants
+	 * of distinct colonies.
 	 */
 	public void incrSurpop() {
-		surpop++;
+		surpop.incrementAndGet();
 	}
 
 	/**
@@ -493,41 +1497,170 @@ public class AntContext implements ElementSink {
 		migrations++;
 	}
 
+	/**
+	 * Start a batch of graph events. Until {@link #endBatch()}, the ants of
+	 * added nodes are not allocated one node at a time, but for all the nodes
+	 * of the batch at its end. The ants are the same.
+	 */
+	public void beginBatch() {
+		if (batchNodes == null) {
+			batchNodes = new AntCo2Node[16];
+			batchNodeCount = 0;
+			batchFirstUid = nodeUids;
+		}
+	}
+
+	/**
+	 * End a batch of graph events, allocating the ants of the nodes added
+	 * since {@link #beginBatch()} and still there, in one pass.
+	 */
+	public void endBatch() {
+		if (batchNodes != null) {
+			AntCo2Node[] nodes = batchNodes;
+			int count = 0;
+
+			batchNodes = null;
+
+			for (int i = 0; i < batchNodeCount; i++)
+				if (nodes[i] != null)
+					nodes[count++] = nodes[i];
+
+			if (count > 0)
+				populationPolicy.nodesAdded(nodes, count);
+
+			batchNodeCount = 0;
+		}
+	}
+
 	/**
 	 * @see org.graphstream.stream.ElementSink
 	 */
 	public void edgeAdded(String sourceId, long timeId, String edgeId,
 			String fromNodeId, String toNodeId, boolean directed) {
+		AntCo2Edge e = internalGraph.getEdge(edgeId);
 
+		if (edgeArraySize == edgeArray.length)
+			edgeArray = Arrays.copyOf(edgeArray, edgeArraySize * 2);
+
+		storage.ensureEdgeCount(edgeArraySize + 1);
+		e.bind(storage, edgeArraySize);
+		edgeArray[edgeArraySize++] = e;
+
+		if (topology != null)
+			topology.addEdge(e.arrayIndex,
+					((AntCo2Node) e.getSourceNode()).arrayIndex,
+					((AntCo2Node) e.getTargetNode()).arrayIndex);
+
+		touchEdge(e, 0);
+		((AntCo2Node) e.getSourceNode()).dirty = true;
+		((AntCo2Node) e.getTargetNode()).dirty = true;
 	}
 
 	/**
 	 * @see org.graphstream.stream.ElementSink
 	 */
 	public void edgeRemoved(String sourceId, long timeId, String edgeId) {
+		AntCo2Edge e = internalGraph.getEdge(edgeId);
+		AntCo2Edge last = edgeArray[--edgeArraySize];
+
+		((AntCo2Node) e.getSourceNode()).dirty = true;
+		((AntCo2Node) e.getTargetNode()).dirty = true;
 
+		if (topology != null)
+			topology.removeEdge(e.arrayIndex);
+
+		storage.moveEdge(last.arrayIndex, e.arrayIndex);
+		last.arrayIndex = e.arrayIndex;
+		edgeArray[e.arrayIndex] = last;
+		edgeArray[edgeArraySize] = null;
+		e.unbind();
 	}
 
 	/**
 	 * @see org.graphstream.stream.ElementSink
 	 */
 	public void graphCleared(String sourceId, long timeId) {
+		for (int i = 0; i < edgeArraySize; i++) {
+			edgeArray[i].unbind();
+			edgeArray[i] = null;
+		}
+
+		edgeArraySize = 0;
+
+		for (int i = 0; i < nodeArraySize; i++) {
+			nodeArray[i].unbind();
+			nodeArray[i] = null;
+		}
+
+		nodeArraySize = 0;
+
+		if (topology != null)
+			topology.clear();
 
+		if (batchNodes != null) {
+			batchNodeCount = 0;
+			batchFirstUid = nodeUids;
+		}
 	}
 
 	/**
 	 * @see org.graphstream.stream.ElementSink
 	 */
 	public void nodeAdded(String sourceId, long timeId, String nodeId) {
-		populationPolicy.nodeAdded((AntCo2Node) internalGraph.getNode(nodeId));
+		AntCo2Node n = internalGraph.getNode(nodeId);
+
+		if (nodeArraySize == nodeArray.length)
+			nodeArray = Arrays.copyOf(nodeArray, nodeArraySize * 2);
+
+		storage.ensureNodeCount(nodeArraySize + 1);
+		n.bind(storage, nodeArraySize);
+		n.uid = nodeUids++;
+		nodeArray[nodeArraySize++] = n;
+
+		if (topology != null)
+			topology.addNode(n.arrayIndex);
+
+		if (batchNodes != null) {
+			if (batchNodeCount == batchNodes.length)
+				batchNodes = Arrays.copyOf(batchNodes, batchNodeCount * 2);
+
+			batchNodes[batchNodeCount++] = n;
+		} else {
+			populationPolicy.nodeAdded(n);
+		}
 	}
 
 	/**
 	 * @see org.graphstream.stream.ElementSink
 	 */
 	public void nodeRemoved(String sourceId, long timeId, String nodeId) {
-		populationPolicy
-				.nodeRemoved((AntCo2Node) internalGraph.getNode(nodeId));
+		AntCo2Node n = internalGraph.getNode(nodeId);
+
+		n.removeFromNodeSets();
+
+		// The population policy only schedules the removal of the share of
+		// ants of the node, from anywhere in the colonies, at their next
+		// commit. Ants standing on the node stay there, on a node without
+		// row, until they leave it (see AntCo2Node#unbind()). A node added in
+		// the current batch has no ant allocated yet.
+
+		int inBatch = n.uid - batchFirstUid;
+
+		if (batchNodes != null && inBatch >= 0 && inBatch < batchNodeCount)
+			batchNodes[inBatch] = null;
+		else
+			populationPolicy.nodeRemoved(n);
+
+		AntCo2Node last = nodeArray[--nodeArraySize];
+
+		if (topology != null)
+			topology.removeNode(n.arrayIndex);
+
+		storage.moveNode(last.arrayIndex, n.arrayIndex);
+		last.arrayIndex = n.arrayIndex;
+		nodeArray[n.arrayIndex] = last;
+		nodeArray[nodeArraySize] = null;
+		n.unbind();
 	}
 
 	/**
@@ -35,6 +35,26 @@ public class AntParams {
 		IDENTITY, TIMED, RANDOM_TIMED, COHESION
 	}
 
+	public static enum StoragePolicy {
+		OBJECT, FLAT, OFF_HEAP, SPARSE
+	}
+
+	public static enum JumpTarget {
+		GRAPH, COLONY, MEMBRANE
+	}
+
+	public static enum PheromoneNumerics {
+		RAW, FLUSH, RENORMALIZE
+	}
+
+	public static enum KernelPolicy {
+		AUTO, SCALAR
+	}
+
+	public static enum RandomCheck {
+		OFF, RECORD, VERIFY
+	}
+
 	/**
 	 * Name of the ants colony class.
 	 */
@@ -129,9 +149,211 @@ public class AntParams {
 	@DefineParameter(name = "antco2.params.pheromoneDrop")
 	public float pheromoneDrop = Float.NaN;
 
+	/**
+	 * Number of threads used to step the colonies [1,n[. With 1, the whole
+	 * step runs on the caller thread. Results do not depend on this value.
+	 */
+	@DefineParameter(name = "antco2.params.parallelism", min = 1)
+	public int parallelism = 1;
+
+	/**
+	 * Number of ants of a colony stepped as one task [1,n[. Slices are the
+	 * unit of work shared between threads and own their random stream, so
+	 * changing this value changes the results, but changing the parallelism
+	 * does not.
+	 */
+	@DefineParameter(name = "antco2.params.antsPerSlice", min = 1)
+	public int antsPerSlice = 4096;
+
+	/**
+	 * Number of ranges the edges are split in to be stepped concurrently
+	 * [0,n[. With 0, the value of {@link #parallelism} is used.
+	 */
+	@DefineParameter(name = "antco2.params.edgeParallelism", min = 0)
+	public int edgeParallelism = 0;
+
+	/**
+	 * Number of ranges the nodes are split in to be prepared concurrently
+	 * [0,n[. With 0, the value of {@link #parallelism} is used.
+	 */
+	@DefineParameter(name = "antco2.params.nodeParallelism", min = 0)
+	public int nodeParallelism = 0;
+
+	/**
+	 * Evaporate pheromones lazily. Each edge remembers the step of its last
+	 * update and applies rho to the power of the elapsed steps when it is read
+	 * or updated, so that the edge phase only visits edges where pheromones
+	 * were dropped or whose nodes changed colour.
+	 */
+	@DefineParameter(name = "antco2.params.lazyEvaporation")
+	public boolean lazyEvaporation = false;
+
+	/**
+	 * Only look for a colour change on nodes whose neighbourhood changed:
+	 * pheromones dropped on an incident edge, cut edges, incident edges or
+	 * colonies. Evaporation scales all pheromones alike and cannot change the
+	 * colour of a node. Smoothing boxes or nodes keeping a state on each
+	 * submission will see fewer submissions. Ignored unless the pheromone
+	 * numerics are {@link PheromoneNumerics#RAW}: flushing a pheromone under
+	 * the floor when it is read changes the colour of a node without any
+	 * event on its edges.
+	 */
+	@DefineParameter(name = "antco2.params.dirtyNodes")
+	public boolean dirtyNodes = false;
+
+	/**
+	 * Keep the ants of each colony in an {@link AntPopulation}, a few primitive
+	 * arrays, instead of one object per ant. Species run on these ants through
+	 * one cursor object per slice. Ant ids become numbers and the order of the
+	 * ants changes, hence the results, but they stay deterministic.
+	 */
+	@DefineParameter(name = "antco2.params.compactPopulation")
+	public boolean compactPopulation = false;
+
+	/**
+	 * Keep the adjacency of the nodes in the int arrays of a {@link Topology},
+	 * through which ants walk the graph instead of the GraphStream elements.
+	 * Edges of a node are kept in the order they were added, which may not be
+	 * the one of the graph, so the results change, but they stay
+	 * deterministic. This only speeds up the hops of the ants: the nodes and
+	 * edges still are GraphStream elements with their own adjacency, so the
+	 * arrays come on top of it and do not make the graph smaller.
+	 */
+	@DefineParameter(name = "antco2.params.compactTopology")
+	public boolean compactTopology = false;
+
+	/**
+	 * Share the score vector of a node between the ants of a colony standing
+	 * on it during a step, instead of building it for each ant. This does not
+	 * change the results.
+	 */
+	@DefineParameter(name = "antco2.params.shareScores")
+	public boolean shareScores = true;
+
+	/**
+	 * Degree from which a node is a hub, on which ants pick an edge from the
+	 * cumulative scores of a {@link ScoreTree} in logarithmic time instead of
+	 * walking all the edges. The edges are picked with the same probabilities
+	 * but from other random draws, so the results change. Trees are only built
+	 * for the score vectors kept on their node for the ants of the colony (see
+	 * {@link #shareScores}), and are built anew each step. Zero disables hubs.
+	 */
+	@DefineParameter(name = "antco2.params.hubDegree")
+	public int hubDegree = 0;
+
+	/**
+	 * Degree above which ants only perceive a random sample of
+	 * {@link #sampleSize} edges of a node, and run their roulette on these
+	 * edges. This bounds the cost of a move on nodes of huge degree, but the
+	 * choice is approximate. Zero disables sampling.
+	 */
+	@DefineParameter(name = "antco2.params.sampledDegree")
+	public int sampledDegree = 0;
+
+	/**
+	 * Number of edges perceived by ants on the nodes of degree above
+	 * {@link #sampledDegree}.
+	 */
+	@DefineParameter(name = "antco2.params.sampleSize")
+	public int sampleSize = 16;
+
+	/**
+	 * Number of fractional bits of the fixed-point numbers in which pheromone
+	 * drops are summed during a step. Integer sums do not depend on the order
+	 * of the drops, so merging them in any order gives the same pheromones.
+	 * Drops are converted to floats once, when committed. Drops smaller than
+	 * 2^-bits are lost, and the sum of the drops of a colony on an edge during
+	 * a step saturates at 2^(63-bits), 2^23 at the most bits allowed. Drops
+	 * are summed concurrently, so an overflow is clamped rather than thrown.
+	 * Zero sums drops as floats.
+	 */
+	@DefineParameter(name = "antco2.params.fixedPointBits", min = 0, max = 40)
+	public int fixedPointBits = 0;
+
+	/**
+	 * When set, {@link AntCo2Algorithm} pumps the events of the graph into its
+	 * {@link MutationBatch} on a thread of its own while the ants run. The
+	 * batch is applied to the internal graph before each step, instead of
+	 * events being pumped and applied before and after each step.
+	 */
+	@DefineParameter(name = "antco2.params.pipelinedIngestion")
+	public boolean pipelinedIngestion = false;
+
+	/**
+	 * With the SPARSE storage policy, number of colonies whose pheromones are
+	 * kept on each edge. The colonies with the most pheromones are kept.
+	 */
+	@DefineParameter(name = "antco2.params.sparseColonies")
+	public int sparseColonies = 4;
+
+	/**
+	 * With the SPARSE storage policy, pheromones of the colonies not kept on
+	 * an edge. Pheromones evaporating below this value are forgotten.
+	 */
+	@DefineParameter(name = "antco2.params.sparseFloor")
+	public float sparseFloor = 0.000001f;
+
+	/**
+	 * How pheromones are kept away from subnormal floats, whose arithmetic is
+	 * very slow: not at all (RAW), by flushing to zero the pheromones falling
+	 * below {@link #pheromoneFloor} when they evaporate or are read (FLUSH), or
+	 * by scaling the pheromones of an edge back to the normal range when they
+	 * all become small, which keeps their ratios (RENORMALIZE). With
+	 * RENORMALIZE, the floor applies to the scaled pheromones when they
+	 * evaporate, and to the real ones when they are read. The sparse storage
+	 * already drops small pheromones and is never renormalised.
+	 */
+	@DefineParameter(name = "antco2.params.pheromoneNumerics")
+	protected PheromoneNumerics pheromoneNumerics = PheromoneNumerics.RAW;
+
+	/**
+	 * Pheromones below this value are flushed to zero, unless
+	 * {@link #pheromoneNumerics} is RAW.
+	 */
+	@DefineParameter(name = "antco2.params.pheromoneFloor")
+	public float pheromoneFloor = 1e-30f;
+
+	/**
+	 * Kernel running the passes of the edge and node phases over pheromones:
+	 * array loops when the storage allows it (AUTO), or loops through the
+	 * storage accessors (SCALAR). Results are the same.
+	 */
+	@DefineParameter(name = "antco2.params.kernelPolicy")
+	protected KernelPolicy kernelPolicy = KernelPolicy.AUTO;
+
+	/**
+	 * Check of the random streams: none (OFF), write the number of draws of
+	 * each stream to {@link #randomCheckPath} at the end of the run (RECORD),
+	 * or compare them to the ones of that file (VERIFY). See
+	 * {@link RandomLog}.
+	 */
+	@DefineParameter(name = "antco2.params.randomCheck")
+	protected RandomCheck randomCheck = RandomCheck.OFF;
+
+	@DefineParameter(name = "antco2.params.randomCheckPath")
+	protected String randomCheckPath = "%prefix%random.dat";
+
 	@DefineParameter(name = "antco2.params.smoothingBoxPolicy")
 	protected SmoothingBoxPolicy smoothingBoxPolicy = SmoothingBoxPolicy.IDENTITY;
 
+	/**
+	 * Where pheromones and ant counts are stored: in small arrays per element
+	 * (OBJECT), packed in large arrays indexed by element (FLAT), or packed the
+	 * same way outside of the Java heap (OFF_HEAP), or keeping only the
+	 * pheromones of the main colonies of each edge (SPARSE, see
+	 * {@link #sparseColonies}).
+	 */
+	@DefineParameter(name = "antco2.params.storagePolicy")
+	protected StoragePolicy storagePolicy = StoragePolicy.OBJECT;
+
+	/**
+	 * Where an ant jumping randomly lands: on any node of the graph (GRAPH),
+	 * on a node of its colony (COLONY) or on a membrane node of its colony
+	 * (MEMBRANE). When the colony has no such node, the ant lands anywhere.
+	 */
+	@DefineParameter(name = "antco2.params.jumpTarget")
+	protected JumpTarget jumpTarget = JumpTarget.GRAPH;
+
 	@DefineParameter(name = "antco2.params.globalFilePrefix")
 	protected String globalFilePrefix = "";
 
@@ -192,6 +414,23 @@ public class AntParams {
 		jump = 1;
 		colonySpecies = org.graphstream.algorithm.antco2.species.AgoraphomyrmexColony.class.getName();
 		perColorOverpop = true;
+		parallelism = 1;
+		antsPerSlice = 4096;
+		edgeParallelism = 0;
+		nodeParallelism = 0;
+		lazyEvaporation = false;
+		dirtyNodes = false;
+		compactPopulation = false;
+		compactTopology = false;
+		shareScores = true;
+		hubDegree = 0;
+		sampledDegree = 0;
+		sampleSize = 16;
+		fixedPointBits = 0;
+		pipelinedIngestion = false;
+		sparseColonies = 4;
+		sparseFloor = 0.000001f;
+		pheromoneFloor = 1e-30f;
 		
 		// powers = null;
 		// tabu = 0.0001f;
@@ -227,6 +466,30 @@ public class AntParams {
 		return smoothingBoxPolicy;
 	}
 
+	public StoragePolicy getStoragePolicy() {
+		return storagePolicy;
+	}
+
+	public JumpTarget getJumpTarget() {
+		return jumpTarget;
+	}
+
+	public PheromoneNumerics getPheromoneNumerics() {
+		return pheromoneNumerics;
+	}
+
+	public KernelPolicy getKernelPolicy() {
+		return kernelPolicy;
+	}
+
+	public RandomCheck getRandomCheck() {
+		return randomCheck;
+	}
+
+	public String getRandomCheckPath() {
+		return formatPath(randomCheckPath);
+	}
+
 	public boolean isMeasuresOutput() {
 		return measuresOutput;
 	}
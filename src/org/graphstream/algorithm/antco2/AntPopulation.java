@@ -0,0 +1,265 @@
+/*
+ * This file is part of AntCo2.
+ * 
+ * AntCo2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * AntCo2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with AntCo2.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009 - 2010
+ * 	Antoine Dutot
+ * 	Guilhelm Savin
+ */
+package org.graphstream.algorithm.antco2;
+
+import java.util.Arrays;
+
+/**
+ * Ants of a colony kept in parallel arrays instead of one object per ant. An
+ * ant is only an index in these arrays: its id, its position, a state left to
+ * the species and the ring of its {@link TabuMemory}. Removing an ant moves
+ * the last one in its place.
+ * 
+ * Species run on these ants through a cursor, an ant object attached in turn
+ * to each index (see {@link Ant#attach(AntPopulation, int)}).
+ * 
+ * @author adutot, gsavin
+ * 
+ */
+public class AntPopulation {
+	/**
+	 * Number of ants.
+	 */
+	protected int size;
+
+	/**
+	 * Numeric id of each ant.
+	 */
+	protected int[] ids;
+
+	/**
+	 * Position of each ant.
+	 */
+	protected AntCo2Node[] nodes;
+
+	/**
+	 * State of each ant, free for the species to use.
+	 */
+	protected int[] states;
+
+	/**
+	 * Step of the last jump of each ant.
+	 */
+	protected int[] lastJumps;
+
+	/**
+	 * Memory of the ants, {@link #memoryCapacity} slots per ant used as the
+	 * ring of a {@link TabuMemory}.
+	 */
+	protected int[] memory;
+
+	/**
+	 * Count of the ring of each ant (see {@link TabuMemory#getCount()}).
+	 */
+	protected int[] memoryCounts;
+
+	/**
+	 * Number of nodes an ant remembers.
+	 */
+	protected final int memoryCapacity;
+
+	/**
+	 * Id of the next ant added.
+	 */
+	protected int nextId;
+
+	/**
+	 * New empty population.
+	 * 
+	 * @param memoryCapacity
+	 *            number of nodes each ant remembers
+	 */
+	public AntPopulation(int memoryCapacity) {
+		this.memoryCapacity = Math.max(0, memoryCapacity);
+
+		ids = new int[16];
+		nodes = new AntCo2Node[16];
+		states = new int[16];
+		lastJumps = new int[16];
+		memory = new int[16 * this.memoryCapacity];
+		memoryCounts = new int[16];
+	}
+
+	/**
+	 * Number of ants.
+	 * 
+	 * @return ant count
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Numeric id of an ant. Ids are never reused in a population.
+	 * 
+	 * @param ant
+	 *            index of the ant
+	 * @return id of the ant
+	 */
+	public int getId(int ant) {
+		return ids[ant];
+	}
+
+	/**
+	 * Position of an ant.
+	 * 
+	 * @param ant
+	 *            index of the ant
+	 * @return node of the ant, may be null
+	 */
+	public AntCo2Node getNode(int ant) {
+		return nodes[ant];
+	}
+
+	/**
+	 * Set the position of an ant. This does not update the ant counts of the
+	 * nodes.
+	 * 
+	 * @param ant
+	 *            index of the ant
+	 * @param node
+	 *            new node of the ant
+	 */
+	public void setNode(int ant, AntCo2Node node) {
+		nodes[ant] = node;
+	}
+
+	/**
+	 * State of an ant.
+	 * 
+	 * @param ant
+	 *            index of the ant
+	 * @return state of the ant, 0 for a new ant
+	 */
+	public int getState(int ant) {
+		return states[ant];
+	}
+
+	/**
+	 * Set the state of an ant.
+	 * 
+	 * @param ant
+	 *            index of the ant
+	 * @param state
+	 *            new state
+	 */
+	public void setState(int ant, int state) {
+		states[ant] = state;
+	}
+
+	/**
+	 * Step of the last jump of an ant.
+	 * 
+	 * @param ant
+	 *            index of the ant
+	 * @return step of the last jump, or -2 if the ant never jumped
+	 */
+	public int getLastJump(int ant) {
+		return lastJumps[ant];
+	}
+
+	/**
+	 * Set the step of the last jump of an ant.
+	 * 
+	 * @param ant
+	 *            index of the ant
+	 * @param step
+	 *            step of the jump
+	 */
+	public void setLastJump(int ant, int step) {
+		lastJumps[ant] = step;
+	}
+
+	/**
+	 * Make a memory use the ring of an ant.
+	 * 
+	 * @param mem
+	 *            the memory
+	 * @param ant
+	 *            index of the ant
+	 */
+	public void wrapMemory(TabuMemory mem, int ant) {
+		mem.wrap(memory, ant * memoryCapacity, memoryCapacity,
+				memoryCounts[ant]);
+	}
+
+	/**
+	 * Store the count of a memory wrapped with {@link #wrapMemory}.
+	 * 
+	 * @param mem
+	 *            the memory
+	 * @param ant
+	 *            index of the ant
+	 */
+	public void unwrapMemory(TabuMemory mem, int ant) {
+		memoryCounts[ant] = mem.getCount();
+	}
+
+	/**
+	 * Add an ant.
+	 * 
+	 * @param node
+	 *            position of the ant
+	 * @return index of the new ant
+	 */
+	public int add(AntCo2Node node) {
+		if (size == ids.length) {
+			int capacity = size * 2;
+
+			ids = Arrays.copyOf(ids, capacity);
+			nodes = Arrays.copyOf(nodes, capacity);
+			states = Arrays.copyOf(states, capacity);
+			lastJumps = Arrays.copyOf(lastJumps, capacity);
+			memory = Arrays.copyOf(memory, capacity * memoryCapacity);
+			memoryCounts = Arrays.copyOf(memoryCounts, capacity);
+		}
+
+		ids[size] = nextId++;
+		nodes[size] = node;
+		states[size] = 0;
+		lastJumps[size] = -2;
+		memoryCounts[size] = 0;
+
+		return size++;
+	}
+
+	/**
+	 * Remove an ant. The last ant takes its index.
+	 * 
+	 * @param ant
+	 *            index of the ant
+	 */
+	public void remove(int ant) {
+		int last = --size;
+
+		if (ant != last) {
+			ids[ant] = ids[last];
+			nodes[ant] = nodes[last];
+			states[ant] = states[last];
+			lastJumps[ant] = lastJumps[last];
+			memoryCounts[ant] = memoryCounts[last];
+			System.arraycopy(memory, last * memoryCapacity, memory, ant
+					* memoryCapacity, memoryCapacity);
+		}
+
+		nodes[last] = null;
+	}
+}
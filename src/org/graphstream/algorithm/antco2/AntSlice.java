@@ -0,0 +1,155 @@
+/*
+ * This file is part of AntCo2.
+ * 
+ * AntCo2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * AntCo2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with AntCo2.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009 - 2010
+ * 	Antoine Dutot
+ * 	Guilhelm Savin
+ */
+package org.graphstream.algorithm.antco2;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A contiguous range of the ants of a colony, stepped as one task. Each ant
+ * has its own random stream, derived from the colony, the step and the
+ * number the ant got when it was created (see {@link CounterRandom}), so the
+ * draws of an ant do not depend on the slices, nor on which thread runs them,
+ * nor on the ants added or removed before it.
+ * 
+ * When the slice has a deposit buffer, its ants record their moves and drops
+ * in the buffer instead of writing the nodes and edges.
+ * 
+ * @author adutot, gsavin
+ * 
+ */
+public class AntSlice extends RecursiveAction {
+	private static final long serialVersionUID = -5473398157311916342L;
+
+	/**
+	 * Colony of the ants.
+	 */
+	protected final Colony colony;
+
+	/**
+	 * Index of the slice in the colony.
+	 */
+	protected final int index;
+
+	/**
+	 * Index of the first ant of the slice.
+	 */
+	protected final int from;
+
+	/**
+	 * Index after the last ant of the slice.
+	 */
+	protected final int to;
+
+	/**
+	 * Random stream of the ant being stepped, keyed again for each ant.
+	 */
+	protected final CounterRandom random;
+
+	/**
+	 * Buffer where ants record their changes, or null if they directly write
+	 * nodes and edges.
+	 */
+	protected DepositBuffer buffer;
+
+	/**
+	 * New slice.
+	 * 
+	 * @param colony
+	 *            colony of the ants
+	 * @param index
+	 *            index of the slice in the colony
+	 * @param from
+	 *            index of the first ant
+	 * @param to
+	 *            index after the last ant
+	 */
+	public AntSlice(Colony colony, int index, int from, int to) {
+		this.colony = colony;
+		this.index = index;
+		this.from = from;
+		this.to = to;
+		this.random = new CounterRandom(colony.seed, colony.ctx
+				.getRandomLog());
+	}
+
+	/**
+	 * Get the buffer used by the ants of this slice.
+	 * 
+	 * @return the buffer, or null if ants write nodes and edges directly
+	 */
+	public DepositBuffer getBuffer() {
+		return buffer;
+	}
+
+	/**
+	 * Set the buffer used by the ants of this slice.
+	 * 
+	 * @param buffer
+	 *            the buffer, or null to write nodes and edges directly
+	 */
+	public void setBuffer(DepositBuffer buffer) {
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Make the ants of the slice run.
+	 */
+	public void run() {
+		int step = colony.ctx.getCurrentStep();
+
+		if (colony.population != null) {
+			Ant cursor = colony.cursors.get(index);
+
+			cursor.slice = this;
+
+			for (int i = from; i < to; i++) {
+				random.setSeed(CounterRandom.key(colony.seed, colony.population
+						.getId(i), step));
+				cursor.attach(colony.population, i);
+				cursor.step();
+				cursor.detach();
+			}
+
+			cursor.slice = null;
+			random.done();
+
+			return;
+		}
+
+		for (int i = from; i < to; i++) {
+			Ant ant = colony.antList.get(i);
+
+			random.setSeed(CounterRandom.key(colony.seed, ant.number, step));
+			ant.slice = this;
+			ant.step();
+			ant.slice = null;
+		}
+
+		random.done();
+	}
+
+	/**
+	 * @see java.util.concurrent.RecursiveAction#compute()
+	 */
+	protected void compute() {
+		run();
+	}
+}
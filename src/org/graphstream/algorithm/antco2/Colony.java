@@ -21,7 +21,11 @@
 package org.graphstream.algorithm.antco2;
 
 import java.awt.Color;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
 
 /**
  * Model of an ants colony.
@@ -57,6 +61,12 @@ public abstract class Colony {
 	 */
 	protected HashMap<String, Ant> ants = new HashMap<String, Ant>();
 
+	/**
+	 * Same as {@link #ants}, but indexed. This is rebuilt on commit and used to
+	 * split the ants in slices.
+	 */
+	protected ArrayList<Ant> antList = new ArrayList<Ant>();
+
 	/**
 	 * Same as {@link #ants} but used by commit.
 	 */
@@ -93,6 +103,48 @@ public abstract class Colony {
 
 	protected int nodeCountAtStepBeginning;
 
+	/**
+	 * Seed of this colony, derived from the seed of the context and the index
+	 * of the colony. Random streams of its ants are derived from it.
+	 */
+	protected long seed;
+
+	/**
+	 * Random stream of this colony, used by ants outside of a slice.
+	 */
+	protected CounterRandom random;
+
+	/**
+	 * Ants of this colony when {@link AntParams#compactPopulation} is set. The
+	 * maps of ants are then left empty.
+	 */
+	protected AntPopulation population;
+
+	/**
+	 * Start nodes of the ants added to the population at the next commit.
+	 */
+	protected ArrayList<AntCo2Node> populationAdd;
+
+	/**
+	 * Number of ants removed from the population at the next commit.
+	 */
+	protected int populationDel;
+
+	/**
+	 * Ant objects standing for the ants of the population, one per slice.
+	 */
+	protected ArrayList<Ant> cursors;
+
+	/**
+	 * Nodes having this colour and still in the graph.
+	 */
+	protected NodeSet nodes = new NodeSet(NodeSet.COLONY);
+
+	/**
+	 * Nodes having this colour and on the membrane at their last check.
+	 */
+	protected NodeSet membraneNodes = new NodeSet(NodeSet.MEMBRANE);
+
 	// Constructors
 
 	/**
@@ -146,6 +198,16 @@ public abstract class Colony {
 			this.ctx = context;
 			this.name = name;
 			this.index = index;
+			this.seed = context.getAntParams().randomSeed
+					^ ((index + 1) * 0x9E3779B97F4A7C15L);
+			this.random = new CounterRandom(seed, context.getRandomLog());
+
+			if (context.getAntParams().compactPopulation) {
+				this.population = new AntPopulation(
+						context.getAntParams().mem);
+				this.populationAdd = new ArrayList<AntCo2Node>();
+				this.cursors = new ArrayList<Ant>();
+			}
 			// this.color = color;
 		}
 	}
@@ -185,6 +247,9 @@ public abstract class Colony {
 	 * @return Ant count.
 	 */
 	public int getAntCount() {
+		if (population != null)
+			return population.getSize();
+
 		return ants.size();
 	}
 
@@ -209,6 +274,37 @@ public abstract class Colony {
 		return nodeCountAtStepBeginning;
 	}
 
+	/**
+	 * Access to the random object used by the ants of this colony.
+	 * 
+	 * @return random object of the colony
+	 */
+	public Random random() {
+		return random;
+	}
+
+	/**
+	 * Draw a node of this colour uniformly.
+	 * 
+	 * @param random
+	 *            random stream of the caller
+	 * @return a node, or null if no node has this colour
+	 */
+	public AntCo2Node randomNode(Random random) {
+		return nodes.random(random);
+	}
+
+	/**
+	 * Draw a node of the membrane of this colour uniformly.
+	 * 
+	 * @param random
+	 *            random stream of the caller
+	 * @return a node, or null if the membrane is empty
+	 */
+	public AntCo2Node randomMembraneNode(Random random) {
+		return membraneNodes.random(random);
+	}
+
 	/**
 	 * Create a new colony instance based in the species given in the AntCO
 	 * parameters.
@@ -260,6 +356,7 @@ public abstract class Colony {
 	 */
 	protected void registerNode(AntCo2Node node) {
 		nodeCount++;
+		nodes.add(node);
 		assert node.getColor() == this;
 	}
 
@@ -271,12 +368,18 @@ public abstract class Colony {
 	 */
 	protected void unregisterNode(AntCo2Node node) {
 		nodeCount--;
+		nodes.remove(node);
 		migrationForThisStep++;
 		migrationCostForThisStep += node.getValue();
 		assert node.getColor() != this;
 	}
 
 	int antIdGenerator = 0;
+
+	/**
+	 * Number given to the next ant created (see {@link Ant#number}).
+	 */
+	protected int antNumbers;
 	
 	/**
 	 * Add a new ant to the colony. This method only register an "add action"
@@ -291,23 +394,80 @@ public abstract class Colony {
 	 *             If an ant with the same identifier already exists.
 	 */
 	public void addAnt(String id, AntCo2Node start) {
+		if (population != null) {
+			if (start != null)
+				start.incrAntCount(index, 1);
+
+			populationAdd.add(start);
+			needCommit = true;
+
+			return;
+		}
+
 		if (antsDel.get(id) != null)
 			antsDel.remove(id);
 
 		if( id == null ) {
-			id = String.format("%s_%05x",name,antIdGenerator++);
+			id = newAntId();
 		}
 		
 		//System.out.printf("add ant \"%s\"%n",id);
 		
 		if (antsAdd.get(id) == null) {
 			Ant ant = antFactory().newAnt(id, start);
+			ant.number = antNumbers++;
 			antsAdd.put(id, ant);
 		}
 
 		needCommit = true;
 	}
 
+	/**
+	 * Add n new ants starting on a same node, as n calls to
+	 * {@link #addAnt(String, AntCo2Node)} with automatic identifiers would.
+	 * 
+	 * @param start
+	 *            Ants start node.
+	 * @param n
+	 *            Number of ants.
+	 */
+	public void addAnts(AntCo2Node start, int n) {
+		if (population != null) {
+			if (start != null)
+				start.incrAntCount(index, n);
+
+			for (int i = 0; i < n; i++)
+				populationAdd.add(start);
+
+			needCommit = true;
+
+			return;
+		}
+
+		for (int i = 0; i < n; i++)
+			addAnt(null, start);
+	}
+
+	/**
+	 * Next automatic ant identifier: the name of the colony and the number of
+	 * the ant in hexadecimal, on five digits at least. Same as a
+	 * String.format("%s_%05x"), without parsing the format for each ant.
+	 * 
+	 * @return the identifier
+	 */
+	protected String newAntId() {
+		String hex = Integer.toHexString(antIdGenerator++);
+		StringBuilder id = new StringBuilder(name.length() + 7
+				+ hex.length());
+
+		id.append(name).append('_');
+
+		for (int i = hex.length(); i < 5; i++)
+			id.append('0');
+
+		return id.append(hex).toString();
+	}
+
 	/**
 	 * Remove arbitrarily n ants of this colour.
 	 * 
@@ -315,6 +475,13 @@ public abstract class Colony {
 	 *            The number of ants to remove.
 	 */
 	public void removeAnts(int n) {
+		if (population != null) {
+			populationDel += n;
+			needCommit = true;
+
+			return;
+		}
+
 		for (Ant ant : ants.values()) {
 			Ant old = antsDel.put(ant.getId(), ant);
 
@@ -345,7 +512,26 @@ public abstract class Colony {
 	 * special buffer, then really added or removed when this method is called.
 	 */
 	public void commit() {
-		if (needCommit) {
+		if (needCommit && population != null) {
+			int n = Math.min(populationDel, population.getSize());
+
+			for (int i = 0; i < n; i++) {
+				int last = population.getSize() - 1;
+				AntCo2Node node = population.getNode(last);
+
+				if (node != null)
+					node.incrAntCount(index, -1);
+
+				population.remove(last);
+			}
+
+			for (int i = 0; i < populationAdd.size(); i++)
+				population.add(populationAdd.get(i));
+
+			populationAdd.clear();
+			populationDel = 0;
+			needCommit = false;
+		} else if (needCommit) {
 			for (Ant ant : antsDel.values()) {
 				Ant old = ants.remove(ant.getId());
 				assert old != null : "an ant '" + ant.getId()
@@ -361,6 +547,9 @@ public abstract class Colony {
 			antsAdd.clear();
 			antsDel.clear();
 
+			antList.clear();
+			antList.addAll(ants.values());
+
 			needCommit = false;
 		}
 	}
@@ -369,19 +558,53 @@ public abstract class Colony {
 	 * Make all the ants of the colony run.
 	 */
 	public void step() {
+		for (AntSlice slice : slices())
+			slice.run();
+
+		random.done();
+	}
+
+	/**
+	 * Begin a step of the colony and split its ants in slices of
+	 * {@link AntParams#antsPerSlice} ants. Slices only depend on the ants of
+	 * the colony, never on the number of threads, so that the draws of each
+	 * ant are the same whether slices run sequentially or concurrently.
+	 * 
+	 * @return slices of this step
+	 */
+	public List<AntSlice> slices() {
+		LinkedList<AntSlice> slices = new LinkedList<AntSlice>();
+		int size = Math.max(1, ctx.getAntParams().antsPerSlice);
+		int count = population != null ? population.getSize() : antList.size();
+
 		migrationForThisStep = 0;
 		migrationCostForThisStep = 0;
 		nodeCountAtStepBeginning = getNodeCount();
-		
-		for (Ant ant : ants.values()) {
-			ant.step();
-		}
+
+		for (int from = 0; from < count; from += size)
+			slices.add(new AntSlice(this, slices.size(), from, Math.min(
+					from + size, count)));
+
+		if (population != null)
+			while (cursors.size() < slices.size())
+				cursors.add(antFactory().newAnt(null, null));
+
+		return slices;
 	}
 
 	/**
 	 * Called when a colony is removed. This removes all ants.
 	 */
 	public void removed() {
+		if (population != null) {
+			for (int i = 0; i < population.getSize(); i++) {
+				AntCo2Node node = population.getNode(i);
+
+				if (node != null)
+					node.incrAntCount(index, -1);
+			}
+		}
+
 		for (Ant ant : ants.values()) {
 			ant.goTo(null);
 		}
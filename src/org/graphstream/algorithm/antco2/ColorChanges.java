@@ -0,0 +1,145 @@
+/*
+ * This file is part of AntCo2.
+ * 
+ * AntCo2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * AntCo2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with AntCo2.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009 - 2010
+ * 	Antoine Dutot
+ * 	Guilhelm Savin
+ */
+package org.graphstream.algorithm.antco2;
+
+import java.util.Arrays;
+
+/**
+ * Colour changes of the nodes since the last publication, published by
+ * {@link AntCo2Algorithm} as the value of a single graph attribute instead of
+ * one event per node and attribute (see
+ * {@link AntCo2Algorithm#changesAttribute}).
+ * 
+ * @author adutot, gsavin
+ * 
+ */
+public class ColorChanges {
+	/**
+	 * Step of the publication.
+	 */
+	protected final int step;
+
+	/**
+	 * Ids of the changed nodes.
+	 */
+	protected String[] nodeIds = new String[16];
+
+	/**
+	 * Colony index of each changed node.
+	 */
+	protected int[] colors = new int[16];
+
+	/**
+	 * Membrane status of each changed node.
+	 */
+	protected boolean[] membranes = new boolean[16];
+
+	/**
+	 * Number of changed nodes.
+	 */
+	protected int size = 0;
+
+	/**
+	 * New empty set of changes.
+	 * 
+	 * @param step
+	 *            step of the publication
+	 */
+	public ColorChanges(int step) {
+		this.step = step;
+	}
+
+	/**
+	 * Add the state of a changed node.
+	 * 
+	 * @param nodeId
+	 *            id of the node
+	 * @param color
+	 *            index of its colony
+	 * @param membrane
+	 *            is it on the membrane
+	 */
+	public void add(String nodeId, int color, boolean membrane) {
+		if (size == nodeIds.length) {
+			int length = size * 2;
+
+			nodeIds = Arrays.copyOf(nodeIds, length);
+			colors = Arrays.copyOf(colors, length);
+			membranes = Arrays.copyOf(membranes, length);
+		}
+
+		nodeIds[size] = nodeId;
+		colors[size] = color;
+		membranes[size] = membrane;
+		size++;
+	}
+
+	/**
+	 * Step of the publication.
+	 * 
+	 * @return the step
+	 */
+	public int getStep() {
+		return step;
+	}
+
+	/**
+	 * Number of changed nodes.
+	 * 
+	 * @return node count
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Id of the i-th changed node.
+	 * 
+	 * @param i
+	 *            index of the change
+	 * @return node id
+	 */
+	public String getNodeId(int i) {
+		return nodeIds[i];
+	}
+
+	/**
+	 * Index of the colony of the i-th changed node.
+	 * 
+	 * @param i
+	 *            index of the change
+	 * @return colony index
+	 */
+	public int getColor(int i) {
+		return colors[i];
+	}
+
+	/**
+	 * Is the i-th changed node on the membrane of its organisation.
+	 * 
+	 * @param i
+	 *            index of the change
+	 * @return true if on the membrane
+	 */
+	public boolean isMembrane(int i) {
+		return membranes[i];
+	}
+}
@@ -0,0 +1,200 @@
+/*
+ * This file is part of AntCo2.
+ * 
+ * AntCo2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * AntCo2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with AntCo2.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009 - 2010
+ * 	Antoine Dutot
+ * 	Guilhelm Savin
+ */
+package org.graphstream.algorithm.antco2;
+
+import java.util.Random;
+
+/**
+ * Counter-based random stream. The n-th number of a stream is a hash of its
+ * key and of n, so a stream has no state besides a counter, and keys can be
+ * derived from anything identifying the drawer: the seed, the entity and the
+ * step (see {@link #key(long, long, int)}). Each ant, edge or node then has
+ * its own stream, and runs are the same whatever the order in which entities
+ * are stepped, or the threads running them.
+ * 
+ * The hash is the finaliser of SplitMix64, and the counter steps by the
+ * golden ratio, so that a stream is the SplitMix64 sequence starting at its
+ * key. {@link #setSeed(long)} starts another stream on the same object, and
+ * does not allocate.
+ * 
+ * When the context has a {@link RandomLog}, the number of draws of each
+ * stream is reported to it, so that a run can be checked against a recorded
+ * one.
+ * 
+ * @author adutot, gsavin
+ * 
+ */
+public class CounterRandom extends Random {
+	private static final long serialVersionUID = 6279416215418553467L;
+
+	/**
+	 * Step of the counter.
+	 */
+	protected static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	/**
+	 * Key of the stream.
+	 */
+	protected long key;
+
+	/**
+	 * Number of values drawn since the stream started.
+	 */
+	protected long counter;
+
+	/**
+	 * Number of values of the stream already reported to the log.
+	 */
+	protected long reported;
+
+	/**
+	 * Log to which draws are reported, or null.
+	 */
+	protected RandomLog log;
+
+	/**
+	 * New stream.
+	 * 
+	 * @param key
+	 *            key of the stream
+	 */
+	public CounterRandom(long key) {
+		this(key, null);
+	}
+
+	/**
+	 * New stream reporting its draws.
+	 * 
+	 * @param key
+	 *            key of the stream
+	 * @param log
+	 *            log of the draws, or null
+	 */
+	public CounterRandom(long key, RandomLog log) {
+		super(key);
+
+		this.log = log;
+	}
+
+	/**
+	 * Derive the key of a stream. The id and the step are mixed in one after
+	 * the other, so that consecutive ids and steps are spread over the whole
+	 * key space, whatever the width of the id.
+	 * 
+	 * @param seed
+	 *            seed of the streams of a kind of entities
+	 * @param id
+	 *            number of the entity, see {@link #hash(CharSequence)} for
+	 *            entities known by a name
+	 * @param step
+	 *            current step
+	 * @return key of the stream
+	 */
+	public static long key(long seed, long id, int step) {
+		return mix(mix(seed + GOLDEN_GAMMA * (id + 1)) + GOLDEN_GAMMA
+				* (step + 1));
+	}
+
+	/**
+	 * 64 bits hash of a name (FNV-1a over its characters), to key the streams
+	 * of entities known by a name. Unlike {@link String#hashCode()}, distinct
+	 * names of the same graph practically never collide.
+	 * 
+	 * @param name
+	 *            the name
+	 * @return hash of the name
+	 */
+	public static long hash(CharSequence name) {
+		long h = 0xCBF29CE484222325L;
+
+		for (int i = 0; i < name.length(); i++) {
+			h ^= name.charAt(i);
+			h *= 0x100000001B3L;
+		}
+
+		return h;
+	}
+
+	/**
+	 * Finaliser of SplitMix64.
+	 * 
+	 * @param z
+	 *            value to hash
+	 * @return hash of the value
+	 */
+	public static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Key of the current stream.
+	 * 
+	 * @return the key
+	 */
+	public long getKey() {
+		return key;
+	}
+
+	/**
+	 * Number of values drawn in the current stream.
+	 * 
+	 * @return the count
+	 */
+	public long getCounter() {
+		return counter;
+	}
+
+	/**
+	 * Start the stream of another key. The draws of the previous one are
+	 * reported to the log. The cached value of
+	 * {@link Random#nextGaussian()} is not cleared.
+	 * 
+	 * @see java.util.Random#setSeed(long)
+	 */
+	public void setSeed(long key) {
+		done();
+
+		this.key = key;
+		this.counter = 0;
+		this.reported = 0;
+	}
+
+	/**
+	 * Report the draws of the stream made since the last report to the log.
+	 * The stream goes on.
+	 */
+	public void done() {
+		if (log != null && counter > reported) {
+			log.report(key, counter - reported);
+			reported = counter;
+		}
+	}
+
+	/**
+	 * @see java.util.Random#next(int)
+	 */
+	protected int next(int bits) {
+		return (int) (mix(key + GOLDEN_GAMMA * ++counter) >>> (64 - bits));
+	}
+}
@@ -0,0 +1,201 @@
+/*
+ * This file is part of AntCo2.
+ * 
+ * AntCo2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * AntCo2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with AntCo2.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009 - 2010
+ * 	Antoine Dutot
+ * 	Guilhelm Savin
+ */
+package org.graphstream.algorithm.antco2;
+
+import java.util.Arrays;
+
+/**
+ * Buffer of the changes made by the ants of one slice during a step. Instead
+ * of writing the temporary arrays of edges and nodes, ants record their
+ * pheromone deposits and their moves here. Buffers are then merged into the
+ * edges and nodes before the commit.
+ * 
+ * Records are split into buckets according to the element they target, so
+ * that buckets can be merged concurrently: two buckets never target the same
+ * element. Inside a bucket, records are merged in the order they were made.
+ * 
+ * @author adutot, gsavin
+ * 
+ */
+public class DepositBuffer {
+	/**
+	 * Records targeting the elements of one bucket.
+	 */
+	protected static class Bucket {
+		AntCo2Edge[] edges = new AntCo2Edge[16];
+		int[] edgeColonies = new int[16];
+		float[] amounts = new float[16];
+		int edgeCount = 0;
+
+		AntCo2Node[] nodes = new AntCo2Node[16];
+		int[] nodeColonies = new int[16];
+		int[] deltas = new int[16];
+		int nodeCount = 0;
+
+		void incrPheromon(AntCo2Edge edge, int colony, float value) {
+			if (edgeCount == edges.length) {
+				int size = edgeCount * 2;
+
+				edges = Arrays.copyOf(edges, size);
+				edgeColonies = Arrays.copyOf(edgeColonies, size);
+				amounts = Arrays.copyOf(amounts, size);
+			}
+
+			edges[edgeCount] = edge;
+			edgeColonies[edgeCount] = colony;
+			amounts[edgeCount] = value;
+			edgeCount++;
+		}
+
+		void incrAntCount(AntCo2Node node, int colony, int delta) {
+			if (nodeCount == nodes.length) {
+				int size = nodeCount * 2;
+
+				nodes = Arrays.copyOf(nodes, size);
+				nodeColonies = Arrays.copyOf(nodeColonies, size);
+				deltas = Arrays.copyOf(deltas, size);
+			}
+
+			nodes[nodeCount] = node;
+			nodeColonies[nodeCount] = colony;
+			deltas[nodeCount] = delta;
+			nodeCount++;
+		}
+
+		void merge(int bucket) {
+			for (int i = 0; i < edgeCount; i++) {
+				edges[i].incrPheromon(edgeColonies[i], amounts[i]);
+				edges[i].touch(bucket);
+				edges[i] = null;
+			}
+
+			for (int i = 0; i < nodeCount; i++) {
+				nodes[i].incrAntCount(nodeColonies[i], deltas[i]);
+				nodes[i] = null;
+			}
+
+			edgeCount = 0;
+			nodeCount = 0;
+		}
+	}
+
+	/**
+	 * Buckets of records.
+	 */
+	protected final Bucket[] buckets;
+
+	/**
+	 * Mask used to get the bucket of an element.
+	 */
+	protected final int mask;
+
+	/**
+	 * New buffer.
+	 * 
+	 * @param bucketCount
+	 *            number of buckets, must be a power of two
+	 */
+	public DepositBuffer(int bucketCount) {
+		assert Integer.bitCount(bucketCount) == 1 : "bucket count is not a power of two";
+
+		buckets = new Bucket[bucketCount];
+		mask = bucketCount - 1;
+
+		for (int i = 0; i < bucketCount; i++)
+			buckets[i] = new Bucket();
+	}
+
+	/**
+	 * Number of buckets to use for a given number of threads. There are more
+	 * buckets than threads so that the merge stays balanced.
+	 * 
+	 * @param parallelism
+	 *            number of threads
+	 * @return a power of two
+	 */
+	public static int bucketCount(int parallelism) {
+		return Integer.highestOneBit(Math.max(1, parallelism * 4 - 1)) << 1;
+	}
+
+	/**
+	 * Get the number of buckets of this buffer.
+	 * 
+	 * @return bucket count
+	 */
+	public int getBucketCount() {
+		return buckets.length;
+	}
+
+	/**
+	 * Record a pheromone drop.
+	 * 
+	 * @param edge
+	 *            edge on which pheromones are dropped
+	 * @param colony
+	 *            colony of the ant
+	 * @param value
+	 *            amount of pheromones
+	 * @see AntCo2Edge#incrPheromon(Colony, float)
+	 */
+	public void incrPheromon(AntCo2Edge edge, Colony colony, float value) {
+		buckets[System.identityHashCode(edge) & mask].incrPheromon(edge,
+				colony.getIndex(), value);
+	}
+
+	/**
+	 * Record the arrival of an ant on a node.
+	 * 
+	 * @param node
+	 *            node reached by the ant
+	 * @param ant
+	 *            the ant
+	 * @see AntCo2Node#registerAnt(Ant)
+	 */
+	public void registerAnt(AntCo2Node node, Ant ant) {
+		buckets[System.identityHashCode(node) & mask].incrAntCount(node, ant
+				.getColony().getIndex(), 1);
+	}
+
+	/**
+	 * Record the departure of an ant from a node.
+	 * 
+	 * @param node
+	 *            node left by the ant
+	 * @param ant
+	 *            the ant
+	 * @see AntCo2Node#unregisterAnt(Ant)
+	 */
+	public void unregisterAnt(AntCo2Node node, Ant ant) {
+		buckets[System.identityHashCode(node) & mask].incrAntCount(node, ant
+				.getColony().getIndex(), -1);
+	}
+
+	/**
+	 * Apply the records of one bucket to their elements and clear them.
+	 * Distinct buckets can be merged concurrently.
+	 * 
+	 * @param bucket
+	 *            index of the bucket
+	 */
+	public void merge(int bucket) {
+		buckets[bucket].merge(bucket);
+	}
+}
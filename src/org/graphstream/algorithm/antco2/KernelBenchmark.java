@@ -0,0 +1,177 @@
+/*
+ * This file is part of AntCo2.
+ * 
+ * AntCo2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * AntCo2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with AntCo2.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009 - 2010
+ * 	Antoine Dutot
+ * 	Guilhelm Savin
+ */
+package org.graphstream.algorithm.antco2;
+
+import java.util.Random;
+
+import org.graphstream.algorithm.antco2.storage.ArrayKernel;
+import org.graphstream.algorithm.antco2.storage.FlatStorage;
+import org.graphstream.algorithm.antco2.storage.ObjectStorage;
+import org.graphstream.algorithm.antco2.storage.ScalarKernel;
+
+/**
+ * Micro benchmark of the {@link PheromoneKernel}s on the dense storages. It
+ * prints, for each storage and kernel, the throughput of the edge phase
+ * (evaporation, commit, total and dominant colour) in edges per second, made
+ * in separate passes and in the single pass of
+ * {@link PheromoneKernel#step(int, int, float, float, boolean)}, and of the
+ * node pass (sum of the levels of four incident edges) in nodes per second.
+ * Every edge gets a drop before each round.
+ * 
+ * Arguments: number of edges, number of colonies, number of rounds.
+ * 
+ * @author adutot, gsavin
+ * 
+ */
+public class KernelBenchmark {
+	/**
+	 * Results of the passes, kept so that they are not optimised away.
+	 */
+	protected static volatile float sink;
+
+	public static void main(String[] args) {
+		int edges = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		int colonies = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+		int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+		AntContext ctx = new AntContext();
+		PheromoneStorage[] storages = { new ObjectStorage(), new FlatStorage() };
+
+		for (PheromoneStorage storage : storages) {
+			fill(ctx, storage, edges, colonies);
+
+			PheromoneKernel[] kernels = { new ScalarKernel(storage),
+					new ArrayKernel((PheromoneRows) storage) };
+
+			for (PheromoneKernel kernel : kernels) {
+				// Warm up, then measure.
+
+				run(kernel, storage, edges, colonies, rounds);
+
+				double[] rates = run(kernel, storage, edges, colonies,
+						rounds);
+
+				System.out.printf(
+						"%s %s: %.1f Medges/s in passes, %.1f Medges/s fused,"
+								+ " %.1f Mnodes/s%n", storage.getClass()
+								.getSimpleName(), kernel.getClass()
+								.getSimpleName(), rates[0] / 1e6,
+						rates[1] / 1e6, rates[2] / 1e6);
+			}
+		}
+	}
+
+	/**
+	 * Give random pheromones to edges.
+	 */
+	protected static void fill(AntContext ctx, PheromoneStorage storage,
+			int edges, int colonies) {
+		Random random = new Random(1);
+
+		storage.init(ctx);
+		storage.ensureColonyCount(colonies);
+		storage.ensureEdgeCount(edges);
+
+		for (int e = 0; e < edges; e++) {
+			storage.clearEdge(e);
+
+			for (int c = 0; c < colonies; c++)
+				storage.setPheromone(e, c, random.nextFloat());
+		}
+	}
+
+	/**
+	 * Run the passes and give the edge rates, in passes and fused, and the
+	 * node rate.
+	 */
+	protected static double[] run(PheromoneKernel kernel,
+			PheromoneStorage storage, int edges, int colonies, int rounds) {
+		float[] values = new float[colonies];
+		float check = 0;
+		long passes = 0;
+		long fused = 0;
+
+		for (int r = 0; r < rounds; r++) {
+			drop(storage, edges, colonies, r);
+
+			long t0 = System.nanoTime();
+
+			for (int e = 0; e < edges; e++) {
+				float total = 0;
+				float max = Float.NEGATIVE_INFINITY;
+				int maxI = -1;
+
+				kernel.evaporate(e, colonies, 0.9f, 0);
+				total = kernel.commit(e, colonies, total);
+
+				for (int i = 0; i < colonies; i++) {
+					float ph = storage.getPheromone(e, i);
+
+					total += ph;
+
+					if (ph > max) {
+						max = ph;
+						maxI = i;
+					}
+				}
+
+				check += total + maxI;
+			}
+
+			passes += System.nanoTime() - t0;
+			drop(storage, edges, colonies, r);
+			t0 = System.nanoTime();
+
+			for (int e = 0; e < edges; e++) {
+				long sums = kernel.step(e, colonies, 0.9f, 0, true);
+
+				check += Float.intBitsToFloat((int) (sums >>> 32)) + (int) sums;
+			}
+
+			fused += System.nanoTime() - t0;
+		}
+
+		long t1 = System.nanoTime();
+
+		for (int r = 0; r < rounds; r++) {
+			for (int n = 0; n + 4 <= edges; n += 4) {
+				for (int e = n; e < n + 4; e++)
+					kernel.accumulate(e, colonies, 1, values);
+			}
+		}
+
+		long t2 = System.nanoTime();
+
+		sink = check + values[0];
+
+		return new double[] { edges * (double) rounds / (passes / 1e9),
+				edges * (double) rounds / (fused / 1e9),
+				(edges / 4) * (double) rounds / ((t2 - t1) / 1e9) };
+	}
+
+	/**
+	 * Give one drop to every edge.
+	 */
+	protected static void drop(PheromoneStorage storage, int edges,
+			int colonies, int round) {
+		for (int e = 0; e < edges; e++)
+			storage.setPheromoneTmp(e, (e + round) % colonies, 1);
+	}
+}
@@ -26,13 +26,19 @@ import java.util.LinkedList;
 import java.util.Locale;
 
 import org.graphstream.algorithm.antco2.measure.Data;
+import org.graphstream.algorithm.antco2.measure.EdgeTime;
+import org.graphstream.algorithm.antco2.measure.Jumps;
 import org.graphstream.algorithm.antco2.measure.R1;
 import org.graphstream.algorithm.antco2.measure.R2;
 import org.graphstream.algorithm.antco2.measure.R3;
+import org.graphstream.algorithm.antco2.measure.RepeatedJumps;
+import org.graphstream.algorithm.antco2.measure.SampleCoverage;
+import org.graphstream.algorithm.antco2.measure.SampledMoves;
 
 public class Measures {
 	public static enum KnownMeasure {
-		R1, R2, R3, DATA
+		R1, R2, R3, DATA, EDGE_TIME, JUMPS, REPEATED_JUMPS, SAMPLED_MOVES,
+		SAMPLE_COVERAGE
 	}
 
 	LinkedList<Measure> measures;
@@ -76,6 +82,21 @@ public class Measures {
 					case DATA:
 						measures.add(new Data());
 						break;
+					case EDGE_TIME:
+						measures.add(new EdgeTime());
+						break;
+					case JUMPS:
+						measures.add(new Jumps());
+						break;
+					case REPEATED_JUMPS:
+						measures.add(new RepeatedJumps());
+						break;
+					case SAMPLED_MOVES:
+						measures.add(new SampledMoves());
+						break;
+					case SAMPLE_COVERAGE:
+						measures.add(new SampleCoverage());
+						break;
 					}
 				}
 			}
@@ -0,0 +1,525 @@
+/*
+ * This file is part of AntCo2.
+ * 
+ * AntCo2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * AntCo2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with AntCo2.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009 - 2010
+ * 	Antoine Dutot
+ * 	Guilhelm Savin
+ */
+package org.graphstream.algorithm.antco2;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.graphstream.stream.Sink;
+
+/**
+ * Graph events staged between the proxy of {@link AntCo2Algorithm} and the
+ * internal graph. The algorithm applies all the events staged so far between
+ * two steps, inside a batch of the context (see
+ * {@link AntContext#beginBatch()}), so that the ants of the added nodes are
+ * allocated at once. With pipelined
+ * ingestion (see {@link AntParams#pipelinedIngestion}), events are staged by
+ * another thread while the ants run.
+ * 
+ * Events are decoded into flat arrays. The batch has two sets of arrays: the
+ * one being staged, and the one being applied, so that staging goes on while
+ * a batch is applied. Only the swap of the two sets is synchronised with the
+ * staging.
+ * 
+ * Events cancelling each other are coalesced while staged: an element added
+ * then removed in the same batch is never applied, nor are the events on its
+ * attributes. A node is only cancelled when all the edges added on it in the
+ * batch were cancelled first. Clearing the graph drops all the events staged
+ * before.
+ * 
+ * @author adutot, gsavin
+ * 
+ */
+public class MutationBatch implements Sink {
+	protected static final int NODE_ADDED = 0;
+	protected static final int NODE_REMOVED = 1;
+	protected static final int EDGE_ADDED = 2;
+	protected static final int EDGE_REMOVED = 3;
+	protected static final int GRAPH_CLEARED = 4;
+	protected static final int STEP_BEGINS = 5;
+	protected static final int GRAPH_ATTRIBUTE_ADDED = 6;
+	protected static final int GRAPH_ATTRIBUTE_CHANGED = 7;
+	protected static final int GRAPH_ATTRIBUTE_REMOVED = 8;
+	protected static final int NODE_ATTRIBUTE_ADDED = 9;
+	protected static final int NODE_ATTRIBUTE_CHANGED = 10;
+	protected static final int NODE_ATTRIBUTE_REMOVED = 11;
+	protected static final int EDGE_ATTRIBUTE_ADDED = 12;
+	protected static final int EDGE_ATTRIBUTE_CHANGED = 13;
+	protected static final int EDGE_ATTRIBUTE_REMOVED = 14;
+	protected static final int CANCELLED = -1;
+
+	/**
+	 * Number of arguments stored for each event, besides its source and time.
+	 */
+	protected static final int ARGS = 4;
+
+	/**
+	 * An element added by the staged events, which its removal can still
+	 * cancel.
+	 */
+	protected static class Pending {
+		/**
+		 * Index of the event adding the element.
+		 */
+		final int added;
+
+		/**
+		 * Indices of the events on the attributes of the element.
+		 */
+		int[] events;
+
+		int eventCount = 0;
+
+		/**
+		 * Number of pending edges on a node.
+		 */
+		int edges = 0;
+
+		/**
+		 * Nodes of an edge.
+		 */
+		String from, to;
+
+		Pending(int added) {
+			this.added = added;
+		}
+
+		void attributeChanged(int event) {
+			if (events == null)
+				events = new int[2];
+			else if (eventCount == events.length)
+				events = Arrays.copyOf(events, eventCount * 2);
+
+			events[eventCount++] = event;
+		}
+	}
+
+	/**
+	 * A sequence of events. Arguments of event i are at i * {@link #ARGS} in
+	 * args: the element id, the attribute or source node, the old value or
+	 * target node, and the new value or the directed flag.
+	 */
+	protected static class Events {
+		int[] kinds = new int[64];
+		String[] sourceIds = new String[64];
+		long[] timeIds = new long[64];
+		Object[] args = new Object[64 * ARGS];
+		int size = 0;
+
+		/**
+		 * Nodes and edges added by the events, by id.
+		 */
+		HashMap<String, Pending> nodes = new HashMap<String, Pending>();
+		HashMap<String, Pending> edges = new HashMap<String, Pending>();
+
+		/**
+		 * Number of events which were coalesced, removals included.
+		 */
+		int cancelled = 0;
+
+		/**
+		 * Number of staged events marked as cancelled.
+		 */
+		int dead = 0;
+
+		void add(int kind, String sourceId, long timeId, Object id,
+				Object a1, Object a2, Object a3) {
+			if (size == kinds.length) {
+				int length = size * 2;
+
+				kinds = Arrays.copyOf(kinds, length);
+				sourceIds = Arrays.copyOf(sourceIds, length);
+				timeIds = Arrays.copyOf(timeIds, length);
+				args = Arrays.copyOf(args, length * ARGS);
+			}
+
+			int a = size * ARGS;
+
+			kinds[size] = kind;
+			sourceIds[size] = sourceId;
+			timeIds[size] = timeId;
+			args[a] = id;
+			args[a + 1] = a1;
+			args[a + 2] = a2;
+			args[a + 3] = a3;
+			size++;
+		}
+
+		void nodeAdded(String sourceId, long timeId, String nodeId) {
+			add(NODE_ADDED, sourceId, timeId, nodeId, null, null, null);
+			nodes.put(nodeId, new Pending(size - 1));
+		}
+
+		void nodeRemoved(String sourceId, long timeId, String nodeId) {
+			Pending node = nodes.remove(nodeId);
+
+			if (node != null && node.edges == 0)
+				cancel(node);
+			else
+				add(NODE_REMOVED, sourceId, timeId, nodeId, null, null, null);
+		}
+
+		void edgeAdded(String sourceId, long timeId, String edgeId,
+				String fromNodeId, String toNodeId, boolean directed) {
+			add(EDGE_ADDED, sourceId, timeId, edgeId, fromNodeId, toNodeId,
+					directed);
+
+			Pending edge = new Pending(size - 1);
+
+			edge.from = fromNodeId;
+			edge.to = toNodeId;
+			edges.put(edgeId, edge);
+			addEdges(fromNodeId, 1);
+			addEdges(toNodeId, 1);
+		}
+
+		void edgeRemoved(String sourceId, long timeId, String edgeId) {
+			Pending edge = edges.remove(edgeId);
+
+			if (edge != null) {
+				cancel(edge);
+				addEdges(edge.from, -1);
+				addEdges(edge.to, -1);
+			} else {
+				add(EDGE_REMOVED, sourceId, timeId, edgeId, null, null, null);
+			}
+		}
+
+		void attributeChanged(int kind, String sourceId, long timeId,
+				String id, Object a1, Object a2, Object a3) {
+			add(kind, sourceId, timeId, id, a1, a2, a3);
+
+			Pending element = null;
+
+			// Kinds of attribute events are ordered: graph, node, edge.
+
+			if (kind >= EDGE_ATTRIBUTE_ADDED)
+				element = edges.get(id);
+			else if (kind >= NODE_ATTRIBUTE_ADDED)
+				element = nodes.get(id);
+
+			if (element != null)
+				element.attributeChanged(size - 1);
+		}
+
+		void graphCleared(String sourceId, long timeId) {
+			cancelled += size - dead;
+			clear();
+			add(GRAPH_CLEARED, sourceId, timeId, null, null, null, null);
+		}
+
+		void addEdges(String nodeId, int delta) {
+			Pending node = nodes.get(nodeId);
+
+			if (node != null)
+				node.edges += delta;
+		}
+
+		void cancel(Pending element) {
+			kinds[element.added] = CANCELLED;
+
+			for (int i = 0; i < element.eventCount; i++)
+				kinds[element.events[i]] = CANCELLED;
+
+			dead += element.eventCount + 1;
+			cancelled += element.eventCount + 2;
+		}
+
+		void clear() {
+			Arrays.fill(sourceIds, 0, size, null);
+			Arrays.fill(args, 0, size * ARGS, null);
+			nodes.clear();
+			edges.clear();
+			size = 0;
+			dead = 0;
+		}
+
+		int replay(Sink sink) {
+			int applied = 0;
+
+			for (int i = 0; i < size; i++) {
+				if (kinds[i] == CANCELLED)
+					continue;
+
+				String s = sourceIds[i];
+				long t = timeIds[i];
+				int a = i * ARGS;
+				String id = (String) args[a];
+
+				applied++;
+
+				switch (kinds[i]) {
+				case NODE_ADDED:
+					sink.nodeAdded(s, t, id);
+					break;
+				case NODE_REMOVED:
+					sink.nodeRemoved(s, t, id);
+					break;
+				case EDGE_ADDED:
+					sink.edgeAdded(s, t, id, (String) args[a + 1],
+							(String) args[a + 2], (Boolean) args[a + 3]);
+					break;
+				case EDGE_REMOVED:
+					sink.edgeRemoved(s, t, id);
+					break;
+				case GRAPH_CLEARED:
+					sink.graphCleared(s, t);
+					break;
+				case STEP_BEGINS:
+					sink.stepBegins(s, t, (Double) args[a + 3]);
+					break;
+				case GRAPH_ATTRIBUTE_ADDED:
+					sink.graphAttributeAdded(s, t, (String) args[a + 1],
+							args[a + 3]);
+					break;
+				case GRAPH_ATTRIBUTE_CHANGED:
+					sink.graphAttributeChanged(s, t, (String) args[a + 1],
+							args[a + 2], args[a + 3]);
+					break;
+				case GRAPH_ATTRIBUTE_REMOVED:
+					sink.graphAttributeRemoved(s, t, (String) args[a + 1]);
+					break;
+				case NODE_ATTRIBUTE_ADDED:
+					sink.nodeAttributeAdded(s, t, id, (String) args[a + 1],
+							args[a + 3]);
+					break;
+				case NODE_ATTRIBUTE_CHANGED:
+					sink.nodeAttributeChanged(s, t, id, (String) args[a + 1],
+							args[a + 2], args[a + 3]);
+					break;
+				case NODE_ATTRIBUTE_REMOVED:
+					sink.nodeAttributeRemoved(s, t, id, (String) args[a + 1]);
+					break;
+				case EDGE_ATTRIBUTE_ADDED:
+					sink.edgeAttributeAdded(s, t, id, (String) args[a + 1],
+							args[a + 3]);
+					break;
+				case EDGE_ATTRIBUTE_CHANGED:
+					sink.edgeAttributeChanged(s, t, id, (String) args[a + 1],
+							args[a + 2], args[a + 3]);
+					break;
+				case EDGE_ATTRIBUTE_REMOVED:
+					sink.edgeAttributeRemoved(s, t, id, (String) args[a + 1]);
+					break;
+				}
+			}
+
+			clear();
+			cancelled = 0;
+
+			return applied;
+		}
+	}
+
+	/**
+	 * Events being staged.
+	 */
+	protected Events staged = new Events();
+
+	/**
+	 * Events being applied, empty otherwise.
+	 */
+	protected Events applied = new Events();
+
+	/**
+	 * Number of events coalesced in the batches applied so far.
+	 */
+	protected long cancelled;
+
+	/**
+	 * Number of events staged so far.
+	 * 
+	 * @return event count
+	 */
+	public synchronized int size() {
+		return staged.size;
+	}
+
+	/**
+	 * Apply all the events staged so far and not coalesced to a sink, in the
+	 * order they came, and clear them. Events staged meanwhile go to the next
+	 * batch. This must only be called by one thread at a time.
+	 * 
+	 * @param sink
+	 *            sink receiving the events
+	 * @return number of events applied
+	 */
+	public int applyTo(Sink sink) {
+		Events events;
+
+		synchronized (this) {
+			events = staged;
+			staged = applied;
+			applied = events;
+		}
+
+		cancelled += events.cancelled;
+
+		return events.replay(sink);
+	}
+
+	/**
+	 * Number of events which were coalesced instead of being applied, in all
+	 * the batches applied so far.
+	 * 
+	 * @return coalesced event count
+	 */
+	public long getCancelledCount() {
+		return cancelled;
+	}
+
+	/**
+	 * Add an event on attributes, or a step event, to the staged ones.
+	 */
+	protected synchronized void stage(int kind, String sourceId, long timeId,
+			String id, Object a1, Object a2, Object a3) {
+		staged.attributeChanged(kind, sourceId, timeId, id, a1, a2, a3);
+	}
+
+	/**
+	 * @see org.graphstream.stream.ElementSink
+	 */
+	public synchronized void nodeAdded(String sourceId, long timeId,
+			String nodeId) {
+		staged.nodeAdded(sourceId, timeId, nodeId);
+	}
+
+	/**
+	 * @see org.graphstream.stream.ElementSink
+	 */
+	public synchronized void nodeRemoved(String sourceId, long timeId,
+			String nodeId) {
+		staged.nodeRemoved(sourceId, timeId, nodeId);
+	}
+
+	/**
+	 * @see org.graphstream.stream.ElementSink
+	 */
+	public synchronized void edgeAdded(String sourceId, long timeId,
+			String edgeId, String fromNodeId, String toNodeId,
+			boolean directed) {
+		staged.edgeAdded(sourceId, timeId, edgeId, fromNodeId, toNodeId,
+				directed);
+	}
+
+	/**
+	 * @see org.graphstream.stream.ElementSink
+	 */
+	public synchronized void edgeRemoved(String sourceId, long timeId,
+			String edgeId) {
+		staged.edgeRemoved(sourceId, timeId, edgeId);
+	}
+
+	/**
+	 * @see org.graphstream.stream.ElementSink
+	 */
+	public synchronized void graphCleared(String sourceId, long timeId) {
+		staged.graphCleared(sourceId, timeId);
+	}
+
+	/**
+	 * @see org.graphstream.stream.ElementSink
+	 */
+	public void stepBegins(String sourceId, long timeId, double step) {
+		stage(STEP_BEGINS, sourceId, timeId, null, null, null, step);
+	}
+
+	/**
+	 * @see org.graphstream.stream.AttributeSink
+	 */
+	public void graphAttributeAdded(String sourceId, long timeId,
+			String attribute, Object value) {
+		stage(GRAPH_ATTRIBUTE_ADDED, sourceId, timeId, null, attribute, null,
+				value);
+	}
+
+	/**
+	 * @see org.graphstream.stream.AttributeSink
+	 */
+	public void graphAttributeChanged(String sourceId, long timeId,
+			String attribute, Object oldValue, Object newValue) {
+		stage(GRAPH_ATTRIBUTE_CHANGED, sourceId, timeId, null, attribute,
+				oldValue, newValue);
+	}
+
+	/**
+	 * @see org.graphstream.stream.AttributeSink
+	 */
+	public void graphAttributeRemoved(String sourceId, long timeId,
+			String attribute) {
+		stage(GRAPH_ATTRIBUTE_REMOVED, sourceId, timeId, null, attribute,
+				null, null);
+	}
+
+	/**
+	 * @see org.graphstream.stream.AttributeSink
+	 */
+	public void nodeAttributeAdded(String sourceId, long timeId,
+			String nodeId, String attribute, Object value) {
+		stage(NODE_ATTRIBUTE_ADDED, sourceId, timeId, nodeId, attribute, null,
+				value);
+	}
+
+	/**
+	 * @see org.graphstream.stream.AttributeSink
+	 */
+	public void nodeAttributeChanged(String sourceId, long timeId,
+			String nodeId, String attribute, Object oldValue, Object newValue) {
+		stage(NODE_ATTRIBUTE_CHANGED, sourceId, timeId, nodeId, attribute,
+				oldValue, newValue);
+	}
+
+	/**
+	 * @see org.graphstream.stream.AttributeSink
+	 */
+	public void nodeAttributeRemoved(String sourceId, long timeId,
+			String nodeId, String attribute) {
+		stage(NODE_ATTRIBUTE_REMOVED, sourceId, timeId, nodeId, attribute,
+				null, null);
+	}
+
+	/**
+	 * @see org.graphstream.stream.AttributeSink
+	 */
+	public void edgeAttributeAdded(String sourceId, long timeId,
+			String edgeId, String attribute, Object value) {
+		stage(EDGE_ATTRIBUTE_ADDED, sourceId, timeId, edgeId, attribute, null,
+				value);
+	}
+
+	/**
+	 * @see org.graphstream.stream.AttributeSink
+	 */
+	public void edgeAttributeChanged(String sourceId, long timeId,
+			String edgeId, String attribute, Object oldValue, Object newValue) {
+		stage(EDGE_ATTRIBUTE_CHANGED, sourceId, timeId, edgeId, attribute,
+				oldValue, newValue);
+	}
+
+	/**
+	 * @see org.graphstream.stream.AttributeSink
+	 */
+	public void edgeAttributeRemoved(String sourceId, long timeId,
+			String edgeId, String attribute) {
+		stage(EDGE_ATTRIBUTE_REMOVED, sourceId, timeId, edgeId, attribute,
+				null, null);
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * This file is part of AntCo2.
+ * 
+ * AntCo2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * AntCo2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with AntCo2.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009 - 2010
+ * 	Antoine Dutot
+ * 	Guilhelm Savin
+ */
+package org.graphstream.algorithm.antco2;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Dense set of nodes, where a node can be added, removed or drawn uniformly
+ * in constant time. Each node remembers its position in the set, so a node
+ * can only be in one set per slot at a time (see
+ * {@link AntCo2Node#nodeSetIndices}).
+ * 
+ * @author adutot, gsavin
+ * 
+ */
+public class NodeSet {
+	/**
+	 * Slot of the nodes of a colony.
+	 */
+	public static final int COLONY = 0;
+
+	/**
+	 * Slot of the membrane nodes of a colony.
+	 */
+	public static final int MEMBRANE = 1;
+
+	/**
+	 * Number of slots.
+	 */
+	public static final int SLOTS = 2;
+
+	/**
+	 * Nodes of the set.
+	 */
+	protected AntCo2Node[] nodes = new AntCo2Node[16];
+
+	/**
+	 * Number of nodes of the set.
+	 */
+	protected int size;
+
+	/**
+	 * Slot where nodes store their position in this set.
+	 */
+	protected final int slot;
+
+	/**
+	 * New empty set.
+	 * 
+	 * @param slot
+	 *            slot where nodes store their position in this set
+	 */
+	public NodeSet(int slot) {
+		this.slot = slot;
+	}
+
+	/**
+	 * Number of nodes of the set.
+	 * 
+	 * @return node count
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Is a node in this set?
+	 * 
+	 * @param node
+	 *            the node
+	 * @return true if the node is in the set
+	 */
+	public boolean contains(AntCo2Node node) {
+		int i = node.nodeSetIndices[slot];
+		return i >= 0 && i < size && nodes[i] == node;
+	}
+
+	/**
+	 * Add a node. Nothing is done if the node is already in the set.
+	 * 
+	 * @param node
+	 *            the node
+	 */
+	public void add(AntCo2Node node) {
+		if (contains(node))
+			return;
+
+		if (size == nodes.length)
+			nodes = Arrays.copyOf(nodes, size * 2);
+
+		node.nodeSetIndices[slot] = size;
+		nodes[size++] = node;
+	}
+
+	/**
+	 * Remove a node. The last node takes its position. Nothing is done if the
+	 * node is not in the set.
+	 * 
+	 * @param node
+	 *            the node
+	 */
+	public void remove(AntCo2Node node) {
+		if (!contains(node))
+			return;
+
+		int i = node.nodeSetIndices[slot];
+		AntCo2Node last = nodes[--size];
+
+		nodes[i] = last;
+		last.nodeSetIndices[slot] = i;
+		nodes[size] = null;
+		node.nodeSetIndices[slot] = -1;
+	}
+
+	/**
+	 * Draw a node uniformly.
+	 * 
+	 * @param random
+	 *            random stream of the caller
+	 * @return a node, or null if the set is empty
+	 */
+	public AntCo2Node random(Random random) {
+		if (size == 0)
+			return null;
+
+		return nodes[random.nextInt(size)];
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * This file is part of AntCo2.
+ * 
+ * AntCo2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * AntCo2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with AntCo2.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009 - 2010
+ * 	Antoine Dutot
+ * 	Guilhelm Savin
+ */
+package org.graphstream.algorithm.antco2;
+
+/**
+ * The passes of the edge and node phases over the pheromones of one edge,
+ * for the dense storages. The kernel is chosen when the context starts (see
+ * {@link AntParams#kernelPolicy}): loops over plain arrays when the storage
+ * has {@link PheromoneRows}, which the JIT compiler can turn into SIMD code,
+ * or loops through the accessors of the storage.
+ * 
+ * All kernels give the same results to the bit: sums are always made in the
+ * order of the colonies.
+ * 
+ * Kernels have no state besides their storage, so distinct rows can be
+ * processed concurrently.
+ * 
+ * @author adutot, gsavin
+ * 
+ */
+public interface PheromoneKernel {
+	/**
+	 * Multiply the committed pheromones of an edge by rho, flushing to zero
+	 * the values falling below a floor.
+	 * 
+	 * @param edge
+	 *            row of the edge
+	 * @param colonies
+	 *            number of colonies of the edge
+	 * @param rho
+	 *            evaporation factor
+	 * @param floor
+	 *            values below are set to 0
+	 */
+	void evaporate(int edge, int colonies, float rho, float floor);
+
+	/**
+	 * Add the dropped pheromones of an edge to its committed ones, and clear
+	 * them.
+	 * 
+	 * @param edge
+	 *            row of the edge
+	 * @param colonies
+	 *            number of colonies of the edge
+	 * @param total
+	 *            total to which drops are added
+	 * @return the total plus the drops, added in order
+	 */
+	float commit(int edge, int colonies, float total);
+
+	/**
+	 * The whole edge phase on one edge, in a single sweep over its row:
+	 * evaporation, commit of the drops if any, total and dominant colour. The
+	 * results are those of {@link #evaporate(int, int, float, float)} then
+	 * {@link #commit(int, int, float)} from a total of 0, then the committed
+	 * pheromones added to that total in order, and the first colony having
+	 * the most pheromones.
+	 * 
+	 * Both results are packed in a long so that the edge does not need a
+	 * buffer: the raw bits of the total in the high half, the index of the
+	 * dominant colony, or -1, in the low half.
+	 * 
+	 * @param edge
+	 *            row of the edge
+	 * @param colonies
+	 *            number of colonies of the edge
+	 * @param rho
+	 *            evaporation factor
+	 * @param floor
+	 *            values below are set to 0 before the drops are added
+	 * @param drops
+	 *            does the edge have drops to commit
+	 * @return the total and the dominant colony
+	 */
+	long step(int edge, int colonies, float rho, float floor, boolean drops);
+
+	/**
+	 * Add the committed pheromones of an edge times a factor to an array of
+	 * values, one per colony.
+	 * 
+	 * @param edge
+	 *            row of the edge
+	 * @param colonies
+	 *            number of colonies of the edge
+	 * @param factor
+	 *            the factor
+	 * @param values
+	 *            the values
+	 */
+	void accumulate(int edge, int colonies, float factor, float[] values);
+}
@@ -0,0 +1,58 @@
+/*
+ * This file is part of AntCo2.
+ * 
+ * AntCo2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * AntCo2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with AntCo2.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009 - 2010
+ * 	Antoine Dutot
+ * 	Guilhelm Savin
+ */
+package org.graphstream.algorithm.antco2;
+
+/**
+ * Storage whose rows of edge pheromones are ranges of plain float arrays, so
+ * that passes over a row can run as tight array loops (see
+ * {@link PheromoneKernel}).
+ * 
+ * @author adutot, gsavin
+ * 
+ */
+public interface PheromoneRows {
+	/**
+	 * Array holding the committed pheromones of an edge.
+	 * 
+	 * @param edge
+	 *            row of the edge
+	 * @return the array
+	 */
+	float[] getPheromoneArray(int edge);
+
+	/**
+	 * Array holding the dropped pheromones of an edge.
+	 * 
+	 * @param edge
+	 *            row of the edge
+	 * @return the array
+	 */
+	float[] getPheromoneTmpArray(int edge);
+
+	/**
+	 * Index of the value of the first colony of an edge in its arrays.
+	 * 
+	 * @param edge
+	 *            row of the edge
+	 * @return the offset
+	 */
+	int getRowOffset(int edge);
+}
@@ -0,0 +1,199 @@
+/*
+ * This file is part of AntCo2.
+ * 
+ * AntCo2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * AntCo2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with AntCo2.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009 - 2010
+ * 	Antoine Dutot
+ * 	Guilhelm Savin
+ */
+package org.graphstream.algorithm.antco2;
+
+/**
+ * Defines where the per-colony values of edges and nodes are stored. Edges
+ * and nodes are identified by their position in the arrays of the context,
+ * so that a storage can pack them in a few large arrays instead of small
+ * arrays owned by each element.
+ * 
+ * Distinct rows may be read and written concurrently. Other operations are
+ * only called between the phases of a step.
+ * 
+ * @author adutot, gsavin
+ * 
+ */
+public interface PheromoneStorage {
+	/**
+	 * Init the storage. All rows are released.
+	 * 
+	 * @param ctx
+	 *            ants context
+	 */
+	void init(AntContext ctx);
+
+	/**
+	 * Make room for a given number of colonies in each row. Existing values
+	 * are kept, new values are 0.
+	 * 
+	 * @param colonies
+	 *            number of colonies
+	 */
+	void ensureColonyCount(int colonies);
+
+	/**
+	 * Make room for a given number of edges.
+	 * 
+	 * @param edges
+	 *            number of edges
+	 */
+	void ensureEdgeCount(int edges);
+
+	/**
+	 * Make room for a given number of nodes.
+	 * 
+	 * @param nodes
+	 *            number of nodes
+	 */
+	void ensureNodeCount(int nodes);
+
+	/**
+	 * Set all values of an edge to 0.
+	 * 
+	 * @param edge
+	 *            row of the edge
+	 */
+	void clearEdge(int edge);
+
+	/**
+	 * Set all values of a node to 0.
+	 * 
+	 * @param node
+	 *            row of the node
+	 */
+	void clearNode(int node);
+
+	/**
+	 * Copy the values of an edge to another row. The source row can then be
+	 * reused.
+	 * 
+	 * @param from
+	 *            row of the edge
+	 * @param to
+	 *            new row of the edge
+	 */
+	void moveEdge(int from, int to);
+
+	/**
+	 * Copy the values of a node to another row. The source row can then be
+	 * reused.
+	 * 
+	 * @param from
+	 *            row of the node
+	 * @param to
+	 *            new row of the node
+	 */
+	void moveNode(int from, int to);
+
+	/**
+	 * Committed pheromones of a colony on an edge.
+	 * 
+	 * @param edge
+	 *            row of the edge
+	 * @param colony
+	 *            index of the colony
+	 * @return pheromone value
+	 */
+	float getPheromone(int edge, int colony);
+
+	/**
+	 * Set the committed pheromones of a colony on an edge.
+	 * 
+	 * @param edge
+	 *            row of the edge
+	 * @param colony
+	 *            index of the colony
+	 * @param value
+	 *            pheromone value
+	 */
+	void setPheromone(int edge, int colony, float value);
+
+	/**
+	 * Pheromones dropped by a colony on an edge since the last commit.
+	 * 
+	 * @param edge
+	 *            row of the edge
+	 * @param colony
+	 *            index of the colony
+	 * @return pheromone value
+	 */
+	float getPheromoneTmp(int edge, int colony);
+
+	/**
+	 * Set the pheromones dropped by a colony on an edge since the last commit.
+	 * 
+	 * @param edge
+	 *            row of the edge
+	 * @param colony
+	 *            index of the colony
+	 * @param value
+	 *            pheromone value
+	 */
+	void setPheromoneTmp(int edge, int colony, float value);
+
+	/**
+	 * Committed number of ants of a colony on a node.
+	 * 
+	 * @param node
+	 *            row of the node
+	 * @param colony
+	 *            index of the colony
+	 * @return ant count
+	 */
+	int getAntCount(int node, int colony);
+
+	/**
+	 * Set the committed number of ants of a colony on a node.
+	 * 
+	 * @param node
+	 *            row of the node
+	 * @param colony
+	 *            index of the colony
+	 * @param count
+	 *            ant count
+	 */
+	void setAntCount(int node, int colony, int count);
+
+	/**
+	 * Number of ants of a colony on a node, as changed since the last commit.
+	 * 
+	 * @param node
+	 *            row of the node
+	 * @param colony
+	 *            index of the colony
+	 * @return ant count
+	 */
+	int getAntCountTmp(int node, int colony);
+
+	/**
+	 * Set the number of ants of a colony on a node, as changed since the last
+	 * commit.
+	 * 
+	 * @param node
+	 *            row of the node
+	 * @param colony
+	 *            index of the colony
+	 * @param count
+	 *            ant count
+	 */
+	void setAntCountTmp(int node, int colony, int count);
+}
@@ -55,6 +55,17 @@ public interface PopulationPolicy {
 	 */
 	void nodeAdded(AntCo2Node node);
 
+	/**
+	 * Called when nodes are added in bulk, the same as calling
+	 * {@link #nodeAdded(AntCo2Node)} for each node in order.
+	 * 
+	 * @param nodes
+	 *            added nodes
+	 * @param count
+	 *            number of nodes in the array
+	 */
+	void nodesAdded(AntCo2Node[] nodes, int count);
+
 	/**
 	 * Called when a node is removed.
 	 * 
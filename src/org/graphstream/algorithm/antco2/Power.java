@@ -0,0 +1,107 @@
+/*
+ * This file is part of AntCo2.
+ * 
+ * AntCo2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * AntCo2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with AntCo2.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009 - 2010
+ * 	Antoine Dutot
+ * 	Guilhelm Savin
+ */
+package org.graphstream.algorithm.antco2;
+
+/**
+ * Raise values to a fixed exponent. The way to compute the power is chosen
+ * once, when the exponent is set: small integer exponents are computed with
+ * multiplications, other exponents with {@link Math#pow(double, double)}.
+ * Exponents 0, 1 and 2 give exactly the same results as
+ * {@link Math#pow(double, double)}.
+ * 
+ * @author adutot, gsavin
+ * 
+ */
+public class Power {
+	/**
+	 * Largest exponent computed with multiplications.
+	 */
+	public static final int MAX_INTEGER = 16;
+
+	/**
+	 * The exponent.
+	 */
+	protected final float exponent;
+
+	/**
+	 * The exponent if it is an integer in [0,{@link #MAX_INTEGER}], else -1.
+	 */
+	protected final int integer;
+
+	/**
+	 * New power.
+	 * 
+	 * @param exponent
+	 *            the exponent
+	 */
+	public Power(float exponent) {
+		this.exponent = exponent;
+
+		if (exponent >= 0 && exponent <= MAX_INTEGER
+				&& exponent == (int) exponent)
+			integer = (int) exponent;
+		else
+			integer = -1;
+	}
+
+	/**
+	 * The exponent.
+	 * 
+	 * @return the exponent
+	 */
+	public float getExponent() {
+		return exponent;
+	}
+
+	/**
+	 * Raise a value to the exponent.
+	 * 
+	 * @param x
+	 *            the value
+	 * @return x to the power of the exponent
+	 */
+	public float apply(float x) {
+		switch (integer) {
+		case -1:
+			return (float) Math.pow(x, exponent);
+		case 0:
+			return 1;
+		case 1:
+			return x;
+		case 2:
+			return (float) ((double) x * x);
+		default:
+			double r = 1;
+			double b = x;
+			int n = integer;
+
+			while (n > 0) {
+				if ((n & 1) != 0)
+					r *= b;
+
+				b *= b;
+				n >>= 1;
+			}
+
+			return (float) r;
+		}
+	}
+}
@@ -0,0 +1,186 @@
+/*
+ * This file is part of AntCo2.
+ * 
+ * AntCo2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * AntCo2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with AntCo2.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009 - 2010
+ * 	Antoine Dutot
+ * 	Guilhelm Savin
+ */
+package org.graphstream.algorithm.antco2;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.graphstream.algorithm.antco2.AntParams.RandomCheck;
+
+/**
+ * Number of draws of each random stream of a run (see {@link CounterRandom}),
+ * to replay a run and check it against a recorded one. Since the n-th number
+ * of a stream only depends on its key and n, two runs drew the same numbers
+ * when their streams have the same keys and draw counts.
+ * 
+ * When recording, the file is created with the log, so that a bad path fails
+ * before the run, and the counts are written to it when the log is closed.
+ * When verifying, the counts of that file are loaded, the draws reported by
+ * the streams are taken off them, and any stream drawing more, less, or not
+ * being in the file, is a mismatch. The first one is printed.
+ * 
+ * @author adutot, gsavin
+ * 
+ */
+public class RandomLog {
+	/**
+	 * Record or verify.
+	 */
+	protected final RandomCheck mode;
+
+	/**
+	 * File of the counts.
+	 */
+	protected final String path;
+
+	/**
+	 * Output of the counts when recording, null when verifying.
+	 */
+	protected PrintWriter out;
+
+	/**
+	 * Draws by stream key: counted when recording, left to draw when
+	 * verifying.
+	 */
+	protected final HashMap<Long, Long> draws = new HashMap<Long, Long>();
+
+	/**
+	 * Number of streams not drawing as recorded.
+	 */
+	protected int mismatches;
+
+	/**
+	 * New log. When recording, the file is created. When verifying, the
+	 * recorded counts are read.
+	 * 
+	 * @param mode
+	 *            RECORD or VERIFY
+	 * @param path
+	 *            file of the counts
+	 * @throws IOException
+	 *             if the file cannot be created, or the recorded counts
+	 *             cannot be read
+	 */
+	public RandomLog(RandomCheck mode, String path) throws IOException {
+		this.mode = mode;
+		this.path = path;
+
+		if (mode == RandomCheck.RECORD) {
+			out = new PrintWriter(path);
+		} else if (mode == RandomCheck.VERIFY) {
+			BufferedReader in = new BufferedReader(new FileReader(path));
+
+			try {
+				String line;
+
+				while ((line = in.readLine()) != null) {
+					String[] fields = line.trim().split("\\s+");
+
+					// Keys are unsigned, each half is parsed alone.
+
+					if (fields.length == 2 && fields[0].length() == 16)
+						draws.put((Long.parseLong(fields[0].substring(0, 8),
+								16) << 32)
+								| Long.parseLong(fields[0].substring(8), 16),
+								Long.parseLong(fields[1]));
+				}
+			} finally {
+				in.close();
+			}
+		}
+	}
+
+	/**
+	 * Report draws of a stream. This can be called concurrently.
+	 * 
+	 * @param key
+	 *            key of the stream
+	 * @param count
+	 *            number of draws
+	 */
+	public synchronized void report(long key, long count) {
+		Long previous = draws.get(key);
+
+		if (mode == RandomCheck.RECORD) {
+			draws.put(key, previous == null ? count : previous + count);
+		} else if (previous == null || previous < count) {
+			mismatch(key, previous == null ? 0 : previous, count);
+			draws.remove(key);
+		} else if (previous == count) {
+			draws.remove(key);
+		} else {
+			draws.put(key, previous - count);
+		}
+	}
+
+	/**
+	 * Number of streams which did not draw as recorded, so far.
+	 * 
+	 * @return mismatch count
+	 */
+	public synchronized int getMismatchCount() {
+		return mismatches;
+	}
+
+	/**
+	 * End of the run. When recording, write the counts. When verifying,
+	 * streams which drew less than recorded are mismatches.
+	 * 
+	 * @throws IOException
+	 *             if the counts cannot be written
+	 */
+	public synchronized void close() throws IOException {
+		if (out != null) {
+			try {
+				for (Map.Entry<Long, Long> e : new TreeMap<Long, Long>(draws)
+						.entrySet())
+					out.printf("%016x %d%n", e.getKey(), e.getValue());
+			} finally {
+				out.close();
+			}
+
+			boolean failed = out.checkError();
+			out = null;
+
+			if (failed)
+				throw new IOException("cannot write " + path);
+		} else if (mode == RandomCheck.VERIFY) {
+			for (Map.Entry<Long, Long> e : draws.entrySet())
+				mismatch(e.getKey(), e.getValue(), 0);
+		}
+
+		draws.clear();
+	}
+
+	/**
+	 * Count a mismatch, and print the first one.
+	 */
+	protected void mismatch(long key, long expected, long drawn) {
+		if (mismatches++ == 0)
+			System.err.printf("Random stream %016x drew %+d numbers from the"
+					+ " recorded run.%n", key, drawn - expected);
+	}
+}
@@ -0,0 +1,255 @@
+/*
+ * This file is part of AntCo2.
+ * 
+ * AntCo2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * AntCo2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with AntCo2.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009 - 2010
+ * 	Antoine Dutot
+ * 	Guilhelm Savin
+ */
+package org.graphstream.algorithm.antco2;
+
+import java.util.Arrays;
+
+/**
+ * Cumulative scores of the edges of a hub, a node of high degree (see
+ * {@link AntParams#hubDegree}), as a Fenwick tree. The weight of an edge is its
+ * score, corrected for the over population of the node at its other end. An
+ * ant picks an edge by walking down the tree, in O(log d) instead of O(d), and
+ * corrects the few edges leading to the nodes it remembers on the fly (see
+ * {@link Ant#hubChoice(ScoreVector, float)}), finding them through a hash
+ * table of the neighbours.
+ * 
+ * Like its score vector, the tree is immutable once built. It is built in
+ * O(d) with the vector of a hub kept on the node for the ants of the colony
+ * (see {@link AntParams#shareScores}), once per colony and step, so that
+ * these ants share its cost. It is not updated in place from step to step:
+ * the over population flags of the neighbours are read anew each step, and
+ * most weights change with the evaporation and the drops.
+ * 
+ * @author adutot, gsavin
+ * 
+ */
+public class ScoreTree {
+	/**
+	 * Partial sums of the weights, indexed from one.
+	 */
+	protected final double[] tree;
+
+	/**
+	 * Weight of each edge.
+	 */
+	protected final float[] weights;
+
+	/**
+	 * Highest power of two not above the number of edges.
+	 */
+	protected final int top;
+
+	/**
+	 * Number of the neighbour at the other end of each edge.
+	 */
+	protected final int[] uids;
+
+	/**
+	 * Open addressing table giving the first edge leading to a neighbour, -1
+	 * for empty cells. Its size is a power of two.
+	 */
+	protected final int[] heads;
+
+	/**
+	 * Next edge leading to the same neighbour as each edge, or -1.
+	 */
+	protected final int[] next;
+
+	/**
+	 * Shift taking the bits of a hashed number used to index
+	 * {@link #heads}.
+	 */
+	protected final int shift;
+
+	/**
+	 * Total of the weights.
+	 */
+	public final double total;
+
+	/**
+	 * Number of edges leading to an over populated node.
+	 */
+	public final int overPopulatedCount;
+
+	/**
+	 * New tree, built in linear time.
+	 * 
+	 * @param neighbours
+	 *            node at the other end of each edge
+	 * @param scores
+	 *            score of each edge
+	 * @param overPopulated
+	 *            is the node at the other end of each edge over populated
+	 */
+	public ScoreTree(AntCo2Node[] neighbours, float[] scores,
+			boolean[] overPopulated) {
+		int n = scores.length;
+		int bits = 1;
+		int over = 0;
+		int t = 1;
+
+		while ((1 << bits) < 2 * n)
+			bits++;
+
+		tree = new double[n + 1];
+		weights = new float[n];
+		uids = new int[n];
+		heads = new int[1 << bits];
+		next = new int[n];
+		shift = 32 - bits;
+
+		Arrays.fill(heads, -1);
+
+		for (int i = 0; i < n; i++) {
+			if (overPopulated[i]) {
+				weights[i] = scores[i] * 0.000001f;
+				over++;
+			} else {
+				weights[i] = scores[i];
+			}
+
+			uids[i] = neighbours[i].getUid();
+		}
+
+		for (int i = 1; i <= n; i++) {
+			int parent = i + (i & -i);
+
+			tree[i] += weights[i - 1];
+
+			if (parent <= n)
+				tree[parent] += tree[i];
+		}
+
+		// Edges are chained in reverse, so that chains are in order.
+
+		for (int i = n - 1; i >= 0; i--) {
+			int h = slot(uids[i]);
+
+			next[i] = heads[h];
+			heads[h] = i;
+		}
+
+		while (t * 2 <= n)
+			t *= 2;
+
+		top = t;
+		total = n > 0 ? prefix(n - 1) : 0;
+		overPopulatedCount = over;
+	}
+
+	/**
+	 * Number of edges.
+	 * 
+	 * @return number of edges
+	 */
+	public int size() {
+		return weights.length;
+	}
+
+	/**
+	 * Weight of an edge.
+	 * 
+	 * @param i
+	 *            index of the edge
+	 * @return the weight
+	 */
+	public float weight(int i) {
+		return weights[i];
+	}
+
+	/**
+	 * Total of the weights of the edges up to an edge, included.
+	 * 
+	 * @param i
+	 *            index of the edge
+	 * @return total of the weights of edges 0 to i
+	 */
+	public double prefix(int i) {
+		double sum = 0;
+
+		for (int j = i + 1; j > 0; j -= j & -j)
+			sum += tree[j];
+
+		return sum;
+	}
+
+	/**
+	 * First edge whose cumulative weight reaches a target, as a roulette
+	 * walking the edges in order would pick it.
+	 * 
+	 * @param target
+	 *            the target
+	 * @return index of the first edge i such that {@link #prefix(int)} of i is
+	 *         at least target, or of the last edge if none is
+	 */
+	public int find(double target) {
+		int n = weights.length;
+		int pos = 0;
+
+		for (int step = top; step > 0; step >>= 1) {
+			if (pos + step <= n && tree[pos + step] < target) {
+				pos += step;
+				target -= tree[pos];
+			}
+		}
+
+		return Math.min(pos, n - 1);
+	}
+
+	/**
+	 * First edge leading to a node.
+	 * 
+	 * @param uid
+	 *            number of the node
+	 * @return index of the edge, or -1 if the node is not a neighbour
+	 */
+	public int firstEdgeTo(int uid) {
+		int e = heads[slot(uid)];
+
+		return e >= 0 && uids[e] == uid ? e : -1;
+	}
+
+	/**
+	 * Next edge leading to the same node as an edge, in the order of the
+	 * edges.
+	 * 
+	 * @param e
+	 *            index of the edge
+	 * @return index of the next edge, or -1 if none
+	 */
+	public int nextEdgeTo(int e) {
+		return next[e];
+	}
+
+	/**
+	 * Cell of {@link #heads} holding the chain of a node, empty if the node
+	 * is not a neighbour.
+	 */
+	protected int slot(int uid) {
+		int mask = heads.length - 1;
+		int h = (uid * 0x9E3779B9) >>> shift;
+
+		while (heads[h] >= 0 && uids[heads[h]] != uid)
+			h = (h + 1) & mask;
+
+		return h;
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * This file is part of AntCo2.
+ * 
+ * AntCo2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * AntCo2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with AntCo2.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009 - 2010
+ * 	Antoine Dutot
+ * 	Guilhelm Savin
+ */
+package org.graphstream.algorithm.antco2;
+
+/**
+ * What the ants of a colony perceive from a node during a step: the score of
+ * each incident edge before the correction of each ant, and totals over the
+ * edges. Pheromones and ant counts do not change while ants move, so all the
+ * ants of a colony standing on the same node perceive the same vector, and it
+ * is built once per step (see {@link Ant#scoreVector()}).
+ * 
+ * Vectors are immutable, so they can be shared between threads without
+ * locking: when two threads build the same vector, they build the same
+ * values and either one can be kept.
+ * 
+ * @author adutot, gsavin
+ * 
+ */
+public class ScoreVector {
+	/**
+	 * Step the vector was built at.
+	 */
+	public final int step;
+
+	/**
+	 * Node at the other end of each edge.
+	 */
+	public final AntCo2Node[] neighbours;
+
+	/**
+	 * Perceived pheromones raised to alpha times weight raised to beta, for
+	 * each edge.
+	 */
+	public final float[] scores;
+
+	/**
+	 * Is the node at the other end of each edge over populated.
+	 */
+	public final boolean[] overPopulated;
+
+	/**
+	 * Total of the pheromones of the colony on the edges.
+	 */
+	public final float colonyPheromones;
+
+	/**
+	 * Total of the pheromones of all colonies on the edges.
+	 */
+	public final float totalPheromones;
+
+	/**
+	 * Total of the ants on the neighbours, of the colony only if
+	 * {@link AntParams#perColorOverpop} is set.
+	 */
+	public final int neighbourAnts;
+
+	/**
+	 * Cumulative weights of the edges, only for the nodes of degree at least
+	 * {@link AntParams#hubDegree}, else null.
+	 */
+	public final ScoreTree tree;
+
+	/**
+	 * New vector.
+	 * 
+	 * @param step
+	 *            current step
+	 * @param neighbours
+	 *            node at the other end of each edge
+	 * @param scores
+	 *            score of each edge
+	 * @param overPopulated
+	 *            is the node at the other end of each edge over populated
+	 * @param colonyPheromones
+	 *            total of the pheromones of the colony
+	 * @param totalPheromones
+	 *            total of the pheromones of all colonies
+	 * @param neighbourAnts
+	 *            total of the ants on the neighbours
+	 * @param tree
+	 *            cumulative weights of the edges, or null
+	 */
+	public ScoreVector(int step, AntCo2Node[] neighbours, float[] scores,
+			boolean[] overPopulated, float colonyPheromones,
+			float totalPheromones, int neighbourAnts, ScoreTree tree) {
+		this.step = step;
+		this.neighbours = neighbours;
+		this.scores = scores;
+		this.overPopulated = overPopulated;
+		this.colonyPheromones = colonyPheromones;
+		this.totalPheromones = totalPheromones;
+		this.neighbourAnts = neighbourAnts;
+		this.tree = tree;
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * This file is part of AntCo2.
+ * 
+ * AntCo2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * AntCo2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with AntCo2.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009 - 2010
+ * 	Antoine Dutot
+ * 	Guilhelm Savin
+ */
+package org.graphstream.algorithm.antco2;
+
+/**
+ * Storage keeping, for each edge, the pheromones of a few colonies only: the
+ * colonies with the most pheromones. The pheromones of the other colonies
+ * read as a floor value. Edges and nodes walk the entries of an edge instead
+ * of all the colonies, so their cost depends on the number of colonies
+ * active around them rather than on the total.
+ * 
+ * Dropped pheromones are kept exactly, as a short list of drops per edge,
+ * until they are committed. The list is shrunk back when cleared, so that an
+ * edge only keeps room for the drops of a few colonies between steps.
+ * 
+ * @author adutot, gsavin
+ * 
+ */
+public interface SparsePheromoneStorage extends PheromoneStorage {
+	/**
+	 * Pheromones of the colonies which have no entry on an edge.
+	 * 
+	 * @return the floor value
+	 */
+	float getFloor();
+
+	/**
+	 * Number of colonies having an entry on an edge.
+	 * 
+	 * @param edge
+	 *            row of the edge
+	 * @return number of entries
+	 */
+	int getEntryCount(int edge);
+
+	/**
+	 * Colony of an entry.
+	 * 
+	 * @param edge
+	 *            row of the edge
+	 * @param entry
+	 *            index of the entry
+	 * @return index of the colony
+	 */
+	int getEntryColony(int edge, int entry);
+
+	/**
+	 * Committed pheromones of an entry.
+	 * 
+	 * @param edge
+	 *            row of the edge
+	 * @param entry
+	 *            index of the entry
+	 * @return pheromone value
+	 */
+	float getEntryPheromone(int edge, int entry);
+
+	/**
+	 * Multiply the committed pheromones of all the entries of an edge, as
+	 * evaporation does. Entries falling to the floor are removed, which may
+	 * change the index of the others.
+	 * 
+	 * @param edge
+	 *            row of the edge
+	 * @param factor
+	 *            the factor
+	 */
+	void scaleEntries(int edge, float factor);
+
+	/**
+	 * Number of colonies which dropped pheromones on an edge since the last
+	 * commit.
+	 * 
+	 * @param edge
+	 *            row of the edge
+	 * @return number of drops
+	 */
+	int getDropCount(int edge);
+
+	/**
+	 * Colony of a drop.
+	 * 
+	 * @param edge
+	 *            row of the edge
+	 * @param drop
+	 *            index of the drop
+	 * @return index of the colony
+	 */
+	int getDropColony(int edge, int drop);
+
+	/**
+	 * Pheromones of a drop.
+	 * 
+	 * @param edge
+	 *            row of the edge
+	 * @param drop
+	 *            index of the drop
+	 * @return pheromone value
+	 */
+	float getDropPheromone(int edge, int drop);
+
+	/**
+	 * Forget the drops of an edge, once committed.
+	 * 
+	 * @param edge
+	 *            row of the edge
+	 */
+	void clearDrops(int edge);
+}
@@ -0,0 +1,157 @@
+/*
+ * This file is part of AntCo2.
+ * 
+ * AntCo2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * AntCo2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with AntCo2.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009 - 2010
+ * 	Antoine Dutot
+ * 	Guilhelm Savin
+ */
+package org.graphstream.algorithm.antco2;
+
+/**
+ * Memory of the last nodes visited by an ant, used as a tabu list. The nodes
+ * are kept by their number (see {@link AntCo2Node#getUid()}) in a ring of
+ * fixed capacity, so remembering a node never allocates and a removed node is
+ * never retained, nor matched by a node added later.
+ * 
+ * The ring can be owned by the memory or be a range of a larger array, as for
+ * the ants of an {@link AntPopulation}.
+ * 
+ * @author adutot, gsavin
+ * 
+ */
+public class TabuMemory {
+	/**
+	 * Array holding the ring.
+	 */
+	protected int[] slots;
+
+	/**
+	 * Index of the first slot of the ring in {@link #slots}.
+	 */
+	protected int offset;
+
+	/**
+	 * Number of slots of the ring.
+	 */
+	protected int capacity;
+
+	/**
+	 * Number of nodes remembered, modulo a multiple of the capacity. The next
+	 * slot written is this number modulo the capacity.
+	 */
+	protected int count;
+
+	/**
+	 * New empty memory.
+	 * 
+	 * @param capacity
+	 *            number of nodes remembered
+	 */
+	public TabuMemory(int capacity) {
+		this.capacity = Math.max(0, capacity);
+		this.slots = new int[this.capacity];
+	}
+
+	/**
+	 * Is a node remembered? This costs at most one comparison per slot.
+	 * 
+	 * @param node
+	 *            the node
+	 * @return true if the node is one of the last nodes added
+	 */
+	public boolean contains(AntCo2Node node) {
+		int uid = node.getUid();
+		int to = offset + Math.min(count, capacity);
+
+		for (int i = offset; i < to; i++)
+			if (slots[i] == uid)
+				return true;
+
+		return false;
+	}
+
+	/**
+	 * Number of nodes remembered.
+	 * 
+	 * @return number of nodes, at most the capacity
+	 */
+	public int size() {
+		return Math.min(count, capacity);
+	}
+
+	/**
+	 * Number of a remembered node, in no particular order.
+	 * 
+	 * @param i
+	 *            index of the node, below {@link #size()}
+	 * @return number of the node
+	 */
+	public int get(int i) {
+		return slots[offset + i];
+	}
+
+	/**
+	 * Remember a node, forgetting the oldest one if the memory is full.
+	 * 
+	 * @param node
+	 *            the node
+	 */
+	public void add(AntCo2Node node) {
+		if (capacity > 0) {
+			slots[offset + count % capacity] = node.getUid();
+			count++;
+
+			if (count >= 2 * capacity)
+				count -= capacity;
+		}
+	}
+
+	/**
+	 * Forget all nodes.
+	 */
+	public void clear() {
+		count = 0;
+	}
+
+	/**
+	 * Use a range of an array as ring.
+	 * 
+	 * @param slots
+	 *            the array
+	 * @param offset
+	 *            first slot of the range
+	 * @param capacity
+	 *            number of slots of the range
+	 * @param count
+	 *            count of the ring, as given by {@link #getCount()}
+	 */
+	public void wrap(int[] slots, int offset, int capacity, int count) {
+		this.slots = slots;
+		this.offset = offset;
+		this.capacity = capacity;
+		this.count = count;
+	}
+
+	/**
+	 * Count of the ring, to be stored with its range to {@link #wrap} it
+	 * again later.
+	 * 
+	 * @return count of the ring
+	 */
+	public int getCount() {
+		return count;
+	}
+}
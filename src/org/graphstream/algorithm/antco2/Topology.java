@@ -0,0 +1,357 @@
+/*
+ * This file is part of AntCo2.
+ * 
+ * AntCo2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * AntCo2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with AntCo2.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009 - 2010
+ * 	Antoine Dutot
+ * 	Guilhelm Savin
+ */
+package org.graphstream.algorithm.antco2;
+
+import java.util.Arrays;
+
+/**
+ * Adjacency of the nodes of the context held in int arrays, indexed by the
+ * rows the context gives to nodes and edges (see {@link PheromoneStorage}).
+ * The edges of each node are a range of one large array, in the order they
+ * were added, an edge being removed by moving the last edge of the range in
+ * its place. A range is moved at the end of the array when it is full, and
+ * the array is compacted when the ranges left behind take more room than the
+ * used ones.
+ * 
+ * Ants walk the graph through this structure instead of the GraphStream
+ * elements when {@link AntParams#compactTopology} is set: a hop is a few int
+ * array reads instead of a list lookup, a cast and a comparison of the ends
+ * of the edge. The GraphStream elements keep their own adjacency, which the
+ * rest of the algorithm and the users of the graph read, so this is an
+ * index over the graph, not a replacement for it.
+ * 
+ * @author adutot, gsavin
+ * 
+ */
+public class Topology {
+	/**
+	 * Source node of each edge.
+	 */
+	protected int[] sources = new int[16];
+
+	/**
+	 * Target node of each edge.
+	 */
+	protected int[] targets = new int[16];
+
+	/**
+	 * Position of each edge in the range of its source.
+	 */
+	protected int[] sourceSlots = new int[16];
+
+	/**
+	 * Position of each edge in the range of its target.
+	 */
+	protected int[] targetSlots = new int[16];
+
+	/**
+	 * Start of the range of each node in {@link #slots}.
+	 */
+	protected int[] starts = new int[16];
+
+	/**
+	 * Number of edges of each node.
+	 */
+	protected int[] degrees = new int[16];
+
+	/**
+	 * Size of the range of each node.
+	 */
+	protected int[] capacities = new int[16];
+
+	/**
+	 * Edges of each node, in the range of the node.
+	 */
+	protected int[] slots = new int[64];
+
+	/**
+	 * Number of cells of {@link #slots} given to ranges.
+	 */
+	protected int used;
+
+	/**
+	 * Number of cells of {@link #slots} left behind by moved ranges.
+	 */
+	protected int wasted;
+
+	/**
+	 * Number of nodes.
+	 */
+	protected int nodeCount;
+
+	/**
+	 * Number of edges.
+	 */
+	protected int edgeCount;
+
+	/**
+	 * Number of edges of a node.
+	 * 
+	 * @param node
+	 *            row of the node, or -1 for a node removed from the context
+	 * @return degree of the node
+	 */
+	public int degree(int node) {
+		return node >= 0 ? degrees[node] : 0;
+	}
+
+	/**
+	 * Edge of a node.
+	 * 
+	 * @param node
+	 *            row of the node
+	 * @param i
+	 *            index of the edge, between 0 and the degree of the node
+	 * @return row of the edge
+	 */
+	public int edge(int node, int i) {
+		return slots[starts[node] + i];
+	}
+
+	/**
+	 * Node at the other end of an edge of a node.
+	 * 
+	 * @param node
+	 *            row of the node
+	 * @param i
+	 *            index of the edge, between 0 and the degree of the node
+	 * @return row of the neighbour
+	 */
+	public int opposite(int node, int i) {
+		int e = slots[starts[node] + i];
+
+		return sources[e] == node ? targets[e] : sources[e];
+	}
+
+	/**
+	 * Source node of an edge.
+	 * 
+	 * @param edge
+	 *            row of the edge
+	 * @return row of the node
+	 */
+	public int source(int edge) {
+		return sources[edge];
+	}
+
+	/**
+	 * Target node of an edge.
+	 * 
+	 * @param edge
+	 *            row of the edge
+	 * @return row of the node
+	 */
+	public int target(int edge) {
+		return targets[edge];
+	}
+
+	/**
+	 * Add a node without edges. Its row must be the number of nodes.
+	 * 
+	 * @param node
+	 *            row of the node
+	 */
+	public void addNode(int node) {
+		if (node >= starts.length) {
+			int size = Math.max(node + 1, starts.length * 2);
+
+			starts = Arrays.copyOf(starts, size);
+			degrees = Arrays.copyOf(degrees, size);
+			capacities = Arrays.copyOf(capacities, size);
+		}
+
+		starts[node] = used;
+		degrees[node] = 0;
+		capacities[node] = 0;
+		nodeCount = node + 1;
+	}
+
+	/**
+	 * Remove a node, whose edges must have been removed before. The last node
+	 * takes its row, as in the context.
+	 * 
+	 * @param node
+	 *            row of the node
+	 */
+	public void removeNode(int node) {
+		int last = --nodeCount;
+
+		wasted += capacities[node];
+
+		if (node != last) {
+			starts[node] = starts[last];
+			degrees[node] = degrees[last];
+			capacities[node] = capacities[last];
+
+			for (int i = 0; i < degrees[node]; i++) {
+				int e = slots[starts[node] + i];
+
+				if (sources[e] == last)
+					sources[e] = node;
+				if (targets[e] == last)
+					targets[e] = node;
+			}
+		}
+	}
+
+	/**
+	 * Add an edge between two nodes. Its row must be the number of edges. The
+	 * edge becomes the last one of its nodes.
+	 * 
+	 * @param edge
+	 *            row of the edge
+	 * @param source
+	 *            row of the source node
+	 * @param target
+	 *            row of the target node
+	 */
+	public void addEdge(int edge, int source, int target) {
+		if (edge >= sources.length) {
+			int size = Math.max(edge + 1, sources.length * 2);
+
+			sources = Arrays.copyOf(sources, size);
+			targets = Arrays.copyOf(targets, size);
+			sourceSlots = Arrays.copyOf(sourceSlots, size);
+			targetSlots = Arrays.copyOf(targetSlots, size);
+		}
+
+		sources[edge] = source;
+		targets[edge] = target;
+		sourceSlots[edge] = append(source, edge);
+		targetSlots[edge] = source != target ? append(target, edge)
+				: sourceSlots[edge];
+		edgeCount = edge + 1;
+	}
+
+	/**
+	 * Remove an edge. The last edge of each of its nodes takes its place
+	 * there, and the last edge takes its row, as in the context.
+	 * 
+	 * @param edge
+	 *            row of the edge
+	 */
+	public void removeEdge(int edge) {
+		int last = --edgeCount;
+		int source = sources[edge];
+		int target = targets[edge];
+
+		detach(source, sourceSlots[edge]);
+
+		if (target != source)
+			detach(target, targetSlots[edge]);
+
+		if (edge != last) {
+			sources[edge] = sources[last];
+			targets[edge] = targets[last];
+			sourceSlots[edge] = sourceSlots[last];
+			targetSlots[edge] = targetSlots[last];
+			slots[starts[sources[edge]] + sourceSlots[edge]] = edge;
+			slots[starts[targets[edge]] + targetSlots[edge]] = edge;
+		}
+	}
+
+	/**
+	 * Remove all nodes and edges.
+	 */
+	public void clear() {
+		used = 0;
+		wasted = 0;
+		nodeCount = 0;
+		edgeCount = 0;
+	}
+
+	/**
+	 * Put an edge at the end of the range of a node, growing it if full.
+	 * 
+	 * @return position of the edge in the range
+	 */
+	protected int append(int node, int edge) {
+		if (degrees[node] == capacities[node])
+			grow(node);
+
+		int p = degrees[node]++;
+
+		slots[starts[node] + p] = edge;
+
+		return p;
+	}
+
+	/**
+	 * Remove the edge at a position of the range of a node, moving the last
+	 * edge of the range in its place.
+	 */
+	protected void detach(int node, int p) {
+		int q = --degrees[node];
+
+		if (p != q) {
+			int moved = slots[starts[node] + q];
+
+			slots[starts[node] + p] = moved;
+
+			if (sources[moved] == node && sourceSlots[moved] == q)
+				sourceSlots[moved] = p;
+			if (targets[moved] == node && targetSlots[moved] == q)
+				targetSlots[moved] = p;
+		}
+	}
+
+	/**
+	 * Move the range of a node at the end of {@link #slots}, twice larger.
+	 */
+	protected void grow(int node) {
+		int capacity = Math.max(4, capacities[node] * 2);
+
+		if (used + capacity > slots.length) {
+			if (wasted > used / 2)
+				compact();
+
+			if (used + capacity > slots.length)
+				slots = Arrays.copyOf(slots, Math.max(used + capacity,
+						slots.length * 2));
+		}
+
+		System.arraycopy(slots, starts[node], slots, used, degrees[node]);
+
+		wasted += capacities[node];
+		starts[node] = used;
+		capacities[node] = capacity;
+		used += capacity;
+	}
+
+	/**
+	 * Pack the ranges at the beginning of {@link #slots}, in the order of the
+	 * nodes, each range keeping its size.
+	 */
+	protected void compact() {
+		int[] packed = new int[slots.length];
+		int p = 0;
+
+		for (int n = 0; n < nodeCount; n++) {
+			System.arraycopy(slots, starts[n], packed, p, degrees[n]);
+			starts[n] = p;
+			p += capacities[n];
+		}
+
+		slots = packed;
+		used = p;
+		wasted = 0;
+	}
+}
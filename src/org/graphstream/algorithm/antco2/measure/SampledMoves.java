@@ -0,0 +1,80 @@
+/*
+ * This file is part of AntCo2.
+ * 
+ * AntCo2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * AntCo2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with AntCo2.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009 - 2010
+ * 	Antoine Dutot
+ * 	Guilhelm Savin
+ */
+package org.graphstream.algorithm.antco2.measure;
+
+import org.graphstream.algorithm.antco2.AntCo2Graph;
+import org.graphstream.algorithm.antco2.AntContext;
+import org.graphstream.algorithm.antco2.AntParams;
+import org.graphstream.algorithm.antco2.Measure;
+import org.graphstream.graph.Graph;
+
+/**
+ * Number of times an ant perceived only a sample of the edges of its node
+ * during the last step (see {@link AntParams#sampledDegree}). Computed along
+ * with {@link SampleCoverage}, {@link R1} and {@link R2}, it shows what
+ * sampling costs in quality for the moves it saves, to tune
+ * {@link AntParams#sampleSize}.
+ * 
+ * @author adutot, gsavin
+ * 
+ */
+public class SampledMoves implements Measure {
+	/**
+	 * The computed measure.
+	 */
+	double moves;
+
+	/**
+	 * Context of the graph, or null if the graph is not an AntCo2 one.
+	 */
+	AntContext ctx;
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.Algorithm#init(org.graphstream.graph.Graph)
+	 */
+	public void init(Graph graph) {
+		if (graph instanceof AntCo2Graph)
+			ctx = ((AntCo2Graph) graph).getAntContext();
+		else
+			ctx = null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.Algorithm#compute()
+	 */
+	public void compute() {
+		moves = ctx != null ? ctx.getSampledMoveCount() : 0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.Measure#getValue()
+	 */
+	public double getValue() {
+		return moves;
+	}
+}
@@ -19,8 +19,8 @@ public class ElasticColorNode extends AntCo2Node {
 		neighColorAttraction = new float[ctx.getColonyCount()];
 	}
 
-	public void step(AntContext ctx) {
-		super.step(ctx);
+	public void apply(AntContext ctx) {
+		super.apply(ctx);
 
 		for (int i = 0; i < antco2ColorAttraction.length; i++)
 			antco2ColorAttraction[i] *= ctx.getAntParams().colorAttractionDecreaseFactor;
@@ -53,6 +53,10 @@ public class ProportionalPopulationPolicy implements PopulationPolicy {
 	// Commands
 
 	public void nodeAdded(AntCo2Node node) {
+		nodesAdded(new AntCo2Node[] { node }, 1);
+	}
+
+	public void nodesAdded(AntCo2Node[] nodes, int count) {
 		// Allocate / colours
 
 		AntParams params = ctx.getAntParams();
@@ -68,40 +72,41 @@ public class ProportionalPopulationPolicy implements PopulationPolicy {
 		if (nClr == 0)
 			return;
 
-		for (Colony color : ctx.eachColony()) {
-			int nAntsPerClr = params.antsPerVertex / ctx.getColonyCount();
-
-			if (params.antsPerVertexPerColor > 0)
-				nAntsPerClr = params.antsPerVertexPerColor;
-
-			// If there are more ants per node than colonies, we merely divide
-			// the number of
-			// ants per node by the number of colonies to determine how many
-			// ants to put on a node.
-			//
-			// Else, we must put a little of each colony on different node in
-			// order to keep a
-			// proportional
-			// number of ants and the same number of ants in each colony.
-
-			if (nAntsPerClr <= 0) {
-				int beg = lastColony;
-				int end = (lastColony + params.antsPerVertex) % nClr;
-
-				if (end < beg) {
-					if (color.getIndex() >= beg || color.getIndex() < end)
-						addAnt(color, null, node);
+		int nAntsPerClr = params.antsPerVertex / nClr;
+
+		if (params.antsPerVertexPerColor > 0)
+			nAntsPerClr = params.antsPerVertexPerColor;
+
+		for (int n = 0; n < count; n++) {
+			AntCo2Node node = nodes[n];
+
+			for (Colony color : ctx.eachColony()) {
+				// If there are more ants per node than colonies, we merely
+				// divide the number of ants per node by the number of
+				// colonies to determine how many ants to put on a node.
+				//
+				// Else, we must put a little of each colony on different node
+				// in order to keep a proportional number of ants and the same
+				// number of ants in each colony.
+
+				if (nAntsPerClr <= 0) {
+					int beg = lastColony;
+					int end = (lastColony + params.antsPerVertex) % nClr;
+
+					if (end < beg) {
+						if (color.getIndex() >= beg || color.getIndex() < end)
+							addAnts(color, node, 1);
+					} else {
+						if (color.getIndex() >= beg && color.getIndex() < end)
+							addAnts(color, node, 1);
+					}
 				} else {
-					if (color.getIndex() >= beg && color.getIndex() < end)
-						addAnt(color, null, node);
+					addAnts(color, node, nAntsPerClr);
 				}
-			} else {
-				for (int i = 0; i < nAntsPerClr; ++i)
-					addAnt(color, null, node);
 			}
-		}
 
-		lastColony = (lastColony + params.antsPerVertex) % nClr;
+			lastColony = (lastColony + params.antsPerVertex) % nClr;
+		}
 	}
 
 	public void nodeRemoved(AntCo2Node node) {
@@ -204,6 +209,11 @@ public class ProportionalPopulationPolicy implements PopulationPolicy {
 		antCount++;
 	}
 
+	protected void addAnts(Colony colony, AntCo2Node node, int count) {
+		colony.addAnts(node, count);
+		antCount += count;
+	}
+
 	protected void removeAnts(Colony colony, int count) {
 		colony.removeAnts(count);
 		antCount -= count;
@@ -22,8 +22,7 @@ import org.graphstream.algorithm.antco2.AntCo2Node;
 import org.graphstream.algorithm.antco2.AntContext;
 import org.graphstream.algorithm.antco2.AntParams;
 import org.graphstream.algorithm.antco2.Colony;
-
-import java.util.LinkedList;
+import org.graphstream.algorithm.antco2.ScoreVector;
 
 public class Agoraphomyrmex extends Ant {
 	// Attributes
@@ -33,18 +32,6 @@ public class Agoraphomyrmex extends Ant {
 	 */
 	protected boolean encounteredSurpop = false;
 
-	/**
-	 * Ant memory.
-	 */
-	protected LinkedList<AntCo2Node> mem = new LinkedList<AntCo2Node>();
-
-	/**
-	 * Perceived pheromone array. This should be alloced at each call to step(),
-	 * but to avoid such an overhead, an over-sized array is created and only
-	 * re-allocated when it is too small.
-	 */
-	protected float P[] = new float[30];
-
 	// Constructors
 
 	public Agoraphomyrmex(String id, Colony colony, AntCo2Node startNode,
@@ -54,17 +41,6 @@ public class Agoraphomyrmex extends Ant {
 
 	// Accessors
 
-	/**
-	 * Is node in the ant memory?.
-	 * 
-	 * @param node
-	 *            The node to test.
-	 * @return True if the ant remembers the node.
-	 */
-	protected boolean isRemembered(AntCo2Node node) {
-		return mem.contains(node);
-	}
-
 	/**
 	 * Multiplier for one edge importance value. The mutliplier is 1 except if
 	 * the node at the other end of the edge has already been visited recently
@@ -78,25 +54,46 @@ public class Agoraphomyrmex extends Ant {
 	protected float correction(AntCo2Edge edge) {
 		AntCo2Node next = (AntCo2Node) edge.getOpposite(curNode);
 
-		if (isRemembered(next)) {
+		return correction(next, isOverPopulated(next));
+	}
+
+	/**
+	 * Same as {@link #correction(AntCo2Edge)}, when the node at the other end
+	 * of the edge and its over population are already known.
+	 * 
+	 * @param next
+	 *            The node at the other end of the edge.
+	 * @param overPopulated
+	 *            Is the node over populated.
+	 * @return The mutliplier.
+	 */
+	protected float correction(AntCo2Node next, boolean overPopulated) {
+		if (isRemembered(next))
 			return 0.000001f;
-		}
 
-		if (ctx.getAntParams().perColorOverpop) {
-			if (next.getAntCountForColor(colony) > ctx.getAntParams().overPopulated) {
-				encounteredSurpop = true;
-				return 0.000001f;
-			}
-		} else {
-			if (next.getTotalAntCount() > ctx.getAntParams().overPopulated) {
-				encounteredSurpop = true;
-				return 0.000001f;
-			}
+		if (overPopulated) {
+			encounteredSurpop = true;
+			return 0.000001f;
 		}
 
 		return 1;
 	}
 
+	/**
+	 * Is a node over populated? With {@link AntParams#perColorOverpop}, only
+	 * the ants of the colony are counted.
+	 * 
+	 * @param node
+	 *            The node to test.
+	 * @return True if the node is over populated.
+	 */
+	protected boolean isOverPopulated(AntCo2Node node) {
+		if (ctx.getAntParams().perColorOverpop)
+			return node.getAntCountForColor(colony) > ctx.getAntParams().overPopulated;
+
+		return node.getTotalAntCount() > ctx.getAntParams().overPopulated;
+	}
+
 	/**
 	 * Pheromon of the ant color on the given edge mutliplied by the pheromon
 	 * proportion compared to other colors on this edge.
@@ -141,14 +138,10 @@ public class Agoraphomyrmex extends Ant {
 	public void step() {
 		encounteredSurpop = false;
 
-		int nArcs = curNode.getDegree();
+		int nArcs = degreeOf(curNode);
 		float totalP = 0;
 		float totalD = 0;
 		float totalC = 0;
-		AntCo2Edge next = null;
-
-		if (P.length <= nArcs)
-			P = new float[nArcs];
 
 		if (nArcs <= 0) {
 			jumpRandomly();
@@ -158,26 +151,15 @@ public class Agoraphomyrmex extends Ant {
 			if (params.debug)
 				System.out.printf("Node %s:%n", curNode.getId());
 
-			for (int i = 0; i < nArcs; i++) {
-				AntCo2Edge edge = (AntCo2Edge) curNode.getEdge(i);
+			ScoreVector scores = perceive(nArcs);
 
-				P[i] = (float) Math.pow(correctedPheromonValue(edge),
-						params.alpha)
-						* (float) Math.pow(edge.getValue(), params.beta)
-						* correction(edge);
+			totalP = weigh(scores);
 
-				if (params.debug) {
-					System.out.printf("    P[%d]=%f (cor=%f ph=%f, w=%f)%n", i,
-							P[i], correction(edge),
-							(float) Math.pow(correctedPheromonValue(edge),
-									params.alpha), (float) Math.pow(
-									edge.getValue(), params.beta));
-				}
+			if (scores.tree != null)
+				encounteredSurpop = hubSurpop;
 
-				totalP += P[i];
-				totalD += edge.getPheromon(colony.getIndex());
-				totalC += edge.getPheromonTotal();
-			}
+			totalD = scores.colonyPheromones;
+			totalC = scores.totalPheromones;
 
 			float KK = totalD / totalC;
 
@@ -191,9 +173,7 @@ public class Agoraphomyrmex extends Ant {
 				else
 					jumpRandomly();
 			} else {
-				float rp = ctx.random().nextFloat();
-				float ct = 0;
-				float pa = 0;
+				float rp = random().nextFloat();
 
 				if (totalP <= 0) {
 					if (params.debug)
@@ -201,40 +181,7 @@ public class Agoraphomyrmex extends Ant {
 
 					jumpFarAway(1); // Not so far.
 				} else {
-					int choosed = -1;
-
-					for (int i = 0; i < nArcs; i++) {
-						AntCo2Edge edge = (AntCo2Edge) curNode.getEdge(i);
-						pa = P[i] / totalP;
-						ct += pa;
-
-						if (ct >= rp) {
-							choosed = i;
-							next = edge;
-							break;
-						}
-					}
-
-					if (next == null) {
-						if (ct < rp)
-							next = (AntCo2Edge) curNode.getEdge(nArcs - 1);
-					}
-
-					// assert ct == 1 :
-					// "sum of all edge probabilities is not 1!! (" + ct + ")";
-
-					if (next == null)
-						throw new RuntimeException("AntCO [step="
-								+ ctx.getCurrentStep()
-								+ "]: no edge choosen above the " + nArcs
-								+ " possible edges! (totalP=" + totalP
-								+ " rand=" + rp + ")");
-
-					if (params.debug)
-						System.out.printf("    -> choosed edge %d (P=%f)%n",
-								choosed, P[choosed]);
-
-					cross(next, true);
+					cross(chooseEdge(scores, totalP, rp), true);
 				}
 			}
 		}
@@ -258,26 +205,6 @@ public class Agoraphomyrmex extends Ant {
 		remember(curNode);
 	}
 
-	/**
-	 * Jump to a random node in the graph. This method is quite heavy and may,
-	 * at worst, iterate on all nodes of the graph.
-	 */
-	protected void jumpRandomly() {
-		int n = ctx.getNodeCount();
-		int r = ctx.random().nextInt(n);
-		int i = 0;
-
-		for (AntCo2Node node : ctx.eachNode()) {
-			if (i == r) {
-				ctx.incrJumps(this);
-				goTo(node);
-				break;
-			}
-
-			i++;
-		}
-	}
-
 	/**
 	 * Jump from node to node, choosing the edges to cross randomly. This
 	 * method, contrary to {@link #jumpRandomly()} follow the graph topoly to
@@ -296,31 +223,18 @@ public class Agoraphomyrmex extends Ant {
 		if (howFar < 1)
 			throw new IllegalArgumentException("jumps must be larger than 1");
 
-		if (curNode.getDegree() == 0)
+		if (degreeOf(curNode) == 0)
 			return;
 
 		for (int i = 0; i < howFar; ++i) {
-			rand = ctx.random().nextInt(node.getDegree());
-			node = (AntCo2Node) node.getEdge(rand).getOpposite(node);
+			rand = random().nextInt(degreeOf(node));
+			node = neighbourOf(node, rand);
 		}
 
 		ctx.incrJumps(this);
 		goTo(node);
 	}
 
-	/**
-	 * Add the given node to the ant memory.
-	 * 
-	 * @param node
-	 *            The node to remember.
-	 */
-	protected void remember(AntCo2Node node) {
-		mem.addLast(node);
-
-		if (mem.size() > ctx.getAntParams().mem)
-			mem.removeFirst();
-	}
-
 	@Override
 	public float getPheromonDrop() {
 		return 0.1f;
@@ -58,7 +58,7 @@ public class Aleamyrmex extends Ant {
 		int r = 0;
 
 		if (n > 0) {
-			r = ctx.random().nextInt(n);
+			r = random().nextInt(n);
 
 			AntCo2Edge curEdge = (AntCo2Edge) curNode.getEdge(r);
 
@@ -21,10 +21,9 @@ import org.graphstream.algorithm.antco2.AntCo2Edge;
 import org.graphstream.algorithm.antco2.AntCo2Node;
 import org.graphstream.algorithm.antco2.AntContext;
 import org.graphstream.algorithm.antco2.AntParams;
+import org.graphstream.algorithm.antco2.AntPopulation;
 import org.graphstream.algorithm.antco2.Colony;
 
-import java.util.LinkedList;
-
 /**
  * Newman ant.
  * 
@@ -34,11 +33,6 @@ import java.util.LinkedList;
 public class Newantmyrmex extends Ant {
 	// Attributes
 
-	/**
-	 * Ant memory.
-	 */
-	protected LinkedList<AntCo2Node> mem = new LinkedList<AntCo2Node>();
-
 	/**
 	 * Perceived pheromone array. This should be alloced at each call to step(),
 	 * but to avoid such an overhead, an over-sized array is created and only
@@ -59,17 +53,6 @@ public class Newantmyrmex extends Ant {
 		return 0.1f;
 	}
 
-	/**
-	 * Is the given node in the ant memory?.
-	 * 
-	 * @param node
-	 *            The node to test.
-	 * @return True if the ant remembers the node.
-	 */
-	protected boolean isRemembered(AntCo2Node node) {
-		return mem.contains(node);
-	}
-
 	// Commands
 
 	protected float perceivedPheromonValue(AntCo2Edge edge) {
@@ -82,7 +65,7 @@ public class Newantmyrmex extends Ant {
 
 	protected AntCo2Edge chooseEdge(float P[], float totalP, int nEdges) {
 		if (totalP > 0) {
-			float r = ctx.random().nextFloat();
+			float r = random().nextFloat();
 			float s = 0;
 
 			for (int i = 0; i < nEdges; ++i) {
@@ -94,7 +77,7 @@ public class Newantmyrmex extends Ant {
 
 			return (AntCo2Edge) curNode.getEdge(nEdges - 1);
 		} else {
-			int r = ctx.random().nextInt(nEdges);
+			int r = random().nextInt(nEdges);
 
 			return (AntCo2Edge) curNode.getEdge(r);
 		}
@@ -104,6 +87,24 @@ public class Newantmyrmex extends Ant {
 
 	protected int forHowLong = 0;
 
+	/**
+	 * Load {@link #forHowLong} from the state of the ant.
+	 */
+	@Override
+	protected void attach(AntPopulation population, int cursor) {
+		super.attach(population, cursor);
+		forHowLong = population.getState(cursor);
+	}
+
+	/**
+	 * Store {@link #forHowLong} in the state of the ant.
+	 */
+	@Override
+	protected void detach() {
+		population.setState(cursor, forHowLong);
+		super.detach();
+	}
+
 	public void step() {
 		// This behavior make the ant choose arcs randomly and jump if it is
 		// in an environment where too many ants of other colonies are.
@@ -132,7 +133,7 @@ public class Newantmyrmex extends Ant {
 				// params.alpha )
 				// * (float) Math.pow( info.getValue(), params.beta )
 				// * correction( edge );
-				P[i] = (float) Math.pow(edge.getValue(), params.beta)
+				P[i] = edge.getValuePower()
 						* correction(edge);
 
 				totalPerceived += P[i];
@@ -193,17 +194,4 @@ public class Newantmyrmex extends Ant {
 		super.cross(edge, depositPheromon);
 		remember(curNode);
 	}
-
-	/**
-	 * Add the given node to the ant memory.
-	 * 
-	 * @param node
-	 *            The node to remember.
-	 */
-	protected void remember(AntCo2Node node) {
-		mem.addLast(node);
-
-		if (mem.size() > ctx.getAntParams().mem)
-			mem.removeFirst();
-	}
 }
\ No newline at end of file
@@ -16,14 +16,13 @@
 
 package org.graphstream.algorithm.antco2.species;
 
-import java.util.LinkedList;
-
 import org.graphstream.algorithm.antco2.Ant;
 import org.graphstream.algorithm.antco2.AntCo2Edge;
 import org.graphstream.algorithm.antco2.AntCo2Node;
 import org.graphstream.algorithm.antco2.AntContext;
 import org.graphstream.algorithm.antco2.AntParams;
 import org.graphstream.algorithm.antco2.Colony;
+import org.graphstream.algorithm.antco2.ScoreVector;
 
 /**
  * Parsimoniamyrmex.
@@ -42,11 +41,6 @@ public class Parsimoniamyrmex extends Ant {
 	 */
 	protected boolean encounteredSurpop = false;
 
-	/**
-	 * Ant memory.
-	 */
-	protected LinkedList<AntCo2Node> mem = new LinkedList<AntCo2Node>();
-
 	/**
 	 * Last agoraphobia coefficient.
 	 */
@@ -66,17 +60,6 @@ public class Parsimoniamyrmex extends Ant {
 		return 0.1f * (1 - lastK);
 	}
 
-	/**
-	 * Is node in the ant memory?.
-	 * 
-	 * @param node
-	 *            The node to test.
-	 * @return True if the ant remembers the node.
-	 */
-	protected boolean isRemembered(AntCo2Node node) {
-		return mem.contains(node);
-	}
-
 	/**
 	 * Multiplier for one edge importance value. The mutliplier is 1 except if
 	 * the node at the other end of the edge has already been visited recently
@@ -90,10 +73,24 @@ public class Parsimoniamyrmex extends Ant {
 	protected float correction(AntCo2Edge edge) {
 		AntCo2Node next = (AntCo2Node) edge.getOpposite(curNode);
 
+		return correction(next, isOverPopulated(next));
+	}
+
+	/**
+	 * Same as {@link #correction(AntCo2Edge)}, when the node at the other end
+	 * of the edge and its over population are already known.
+	 * 
+	 * @param next
+	 *            The node at the other end of the edge.
+	 * @param overPopulated
+	 *            Is the node over populated.
+	 * @return The mutliplier.
+	 */
+	protected float correction(AntCo2Node next, boolean overPopulated) {
 		if (isRemembered(next))
 			return 0.000001f;
 
-		if (next.getTotalAntCount() > ctx.getAntParams().overPopulated) {
+		if (overPopulated) {
 			encounteredSurpop = true;
 			return 0.000001f;
 		}
@@ -146,13 +143,11 @@ public class Parsimoniamyrmex extends Ant {
 	public void step() {
 		encounteredSurpop = false;
 
-		int nArcs = curNode.getDegree();
+		int nArcs = degreeOf(curNode);
 		float totalP = 0;
 		float totalD = 0;
 		float totalC = 0;
 		int totalS = 0; // Total surpop.
-		float P[] = new float[nArcs];
-		AntCo2Edge next = null;
 
 		if (nArcs <= 0) {
 			jumpRandomly();
@@ -162,36 +157,16 @@ public class Parsimoniamyrmex extends Ant {
 			if (params.debug)
 				System.out.printf("Node %s:%n", curNode.getId());
 
-			for (int i = 0; i < nArcs; i++) {
-				AntCo2Edge edge = (AntCo2Edge) curNode.getEdge(i);
+			ScoreVector scores = perceive(nArcs);
 
-				P[i] = (float) Math.pow(correctedPheromonValue(edge),
-						params.alpha)
-						* (float) Math.pow(edge.getValue(), params.beta)
-						* correction(edge);
+			totalP = weigh(scores);
 
-				if (params.debug) {
-					System.out.printf("    P[%d]=%f (cor=%f ph=%f, w=%f)%n", i,
-							P[i], correction(edge),
-							(float) Math.pow(correctedPheromonValue(edge),
-									params.alpha), (float) Math.pow(
-									edge.getValue(), params.beta));
-				}
+			if (scores.tree != null)
+				encounteredSurpop = hubSurpop;
 
-				if (params.perColorOverpop)
-					totalS += ((AntCo2Node) edge.getOpposite(curNode))
-							.getAntCountForColor(colony);
-				else
-					totalS += ((AntCo2Node) edge.getOpposite(curNode))
-							.getTotalAntCount();
-				totalP += P[i];
-				totalD += edge.getPheromon(colony.getIndex());
-				totalC += edge.getPheromonTotal();
-
-				// if( edge.getPheromon( colony.getIndex() ) >
-				// edge.getPheromonTotal() )
-				// edge.debug( colony.getIndex() );
-			}
+			totalS = scores.neighbourAnts;
+			totalD = scores.colonyPheromones;
+			totalC = scores.totalPheromones;
 
 			float KK = totalD / totalC;
 			lastK = KK;
@@ -220,9 +195,7 @@ public class Parsimoniamyrmex extends Ant {
 				else
 					jumpRandomly();
 			} else {
-				float rp = ctx.random().nextFloat();
-				float ct = 0;
-				float pa = 0;
+				float rp = random().nextFloat();
 
 				if (totalP <= 0) {
 					if (params.debug)
@@ -231,40 +204,7 @@ public class Parsimoniamyrmex extends Ant {
 					// jumpRandomly();
 					jumpFarAway(1); // Not so far.
 				} else {
-					int choosed = -1;
-
-					for (int i = 0; i < nArcs; i++) {
-						AntCo2Edge edge = (AntCo2Edge) curNode.getEdge(i);
-						pa = P[i] / totalP;
-						ct += pa;
-
-						if (ct >= rp) {
-							choosed = i;
-							next = edge;
-							break;
-						}
-					}
-
-					if (next == null) {
-						if (ct < rp)
-							next = (AntCo2Edge) curNode.getEdge(nArcs - 1);
-					}
-
-					// assert ct == 1 :
-					// "sum of all edge probabilities is not 1!! (" + ct + ")";
-
-					if (next == null)
-						throw new RuntimeException("AntCO [step="
-								+ ctx.getCurrentStep()
-								+ "]: no edge choosen above the " + nArcs
-								+ " possible edges! (totalP=" + totalP
-								+ " rand=" + rp + ")");
-
-					if (params.debug)
-						System.out.printf("    -> choosed edge %d (P=%f)%n",
-								choosed, P[choosed]);
-
-					cross(next, true);
+					cross(chooseEdge(scores, totalP, rp), true);
 				}
 			}
 		}
@@ -288,33 +228,6 @@ public class Parsimoniamyrmex extends Ant {
 		remember(curNode);
 	}
 
-	/**
-	 * Jump to a random node in the graph. This method is quite heavy and may,
-	 * at worst, iterate on all nodes of the graph.
-	 */
-	protected void jumpRandomly() {
-		AntCo2Node node = null;
-		int n = ctx.getNodeCount();
-		int r = ctx.random().nextInt(n);
-		int i = 0;
-
-		for (AntCo2Node tmpNode : ctx.eachNode()) {
-			if (i == r) {
-				node = tmpNode;
-				break;
-			}
-
-			i++;
-		}
-
-		assert node != null : "jumpRandomly() got a null node to jump to!";
-		// System.err.printf( "Jumping randomly from node %s to node %s.%n",
-		// curNode.getTag(), node.getTag() );
-
-		ctx.incrJumps(this);
-		goTo(node);
-	}
-
 	/**
 	 * Jump from node to node, choosing the edges to cross randomly. This
 	 * method, contrary to {@link #jumpRandomly()} follow the graph topoly to
@@ -333,28 +246,15 @@ public class Parsimoniamyrmex extends Ant {
 		if (howFar < 1)
 			throw new IllegalArgumentException("jumps must be larger than 1");
 
-		if (curNode.getDegree() == 0)
+		if (degreeOf(curNode) == 0)
 			return;
 
 		for (int i = 0; i < howFar; ++i) {
-			rand = ctx.random().nextInt(node.getDegree());
-			node = (AntCo2Node) node.getEdge(rand).getOpposite(node);
+			rand = random().nextInt(degreeOf(node));
+			node = neighbourOf(node, rand);
 		}
 
 		ctx.incrJumps(this);
 		goTo(node);
 	}
-
-	/**
-	 * Add the given node to the ant memory.
-	 * 
-	 * @param node
-	 *            The node to remember.
-	 */
-	protected void remember(AntCo2Node node) {
-		mem.addLast(node);
-
-		if (mem.size() > ctx.getAntParams().mem)
-			mem.removeFirst();
-	}
 }
\ No newline at end of file
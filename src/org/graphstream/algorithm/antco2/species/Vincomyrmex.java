@@ -16,14 +16,13 @@
 
 package org.graphstream.algorithm.antco2.species;
 
-import java.util.LinkedList;
-
 import org.graphstream.algorithm.antco2.Ant;
 import org.graphstream.algorithm.antco2.AntCo2Edge;
 import org.graphstream.algorithm.antco2.AntCo2Node;
 import org.graphstream.algorithm.antco2.AntContext;
 import org.graphstream.algorithm.antco2.AntParams;
 import org.graphstream.algorithm.antco2.Colony;
+import org.graphstream.algorithm.antco2.ScoreVector;
 
 /**
  * Vincomyrmex.
@@ -45,18 +44,6 @@ public class Vincomyrmex extends Ant {
 	 */
 	protected boolean encounteredSurpop = false;
 
-	/**
-	 * Ant memory.
-	 */
-	protected LinkedList<AntCo2Node> mem = new LinkedList<AntCo2Node>();
-
-	/**
-	 * Perceived pheromone array. This should be alloced at each call to step(),
-	 * but to avoid such an overhead, an over-sized array is created and only
-	 * re-allocated when it is too small.
-	 */
-	protected float P[] = new float[30];
-
 	// Constructors
 
 	public Vincomyrmex(String id, Colony colony, AntCo2Node startNode,
@@ -71,17 +58,6 @@ public class Vincomyrmex extends Ant {
 		return 0.1f;
 	}
 
-	/**
-	 * Is node in the ant memory?.
-	 * 
-	 * @param node
-	 *            The node to test.
-	 * @return True if the ant remembers the node.
-	 */
-	protected boolean isRemembered(AntCo2Node node) {
-		return mem.contains(node);
-	}
-
 	/**
 	 * Multiplier for one edge importance value. The mutliplier is 1 except if
 	 * the node at the other end of the edge has already been visited recently
@@ -95,11 +71,24 @@ public class Vincomyrmex extends Ant {
 	protected float correction(AntCo2Edge edge) {
 		AntCo2Node next = (AntCo2Node) edge.getOpposite(curNode);
 
-		if (isRemembered(next)) {
+		return correction(next, isOverPopulated(next));
+	}
+
+	/**
+	 * Same as {@link #correction(AntCo2Edge)}, when the node at the other end
+	 * of the edge and its over population are already known.
+	 * 
+	 * @param next
+	 *            The node at the other end of the edge.
+	 * @param overPopulated
+	 *            Is the node over populated.
+	 * @return The mutliplier.
+	 */
+	protected float correction(AntCo2Node next, boolean overPopulated) {
+		if (isRemembered(next))
 			return 0.000001f;
-		}
 
-		if (next.getTotalAntCount() > ctx.getAntParams().overPopulated) {
+		if (overPopulated) {
 			encounteredSurpop = true;
 			return 0.000001f;
 		}
@@ -152,17 +141,13 @@ public class Vincomyrmex extends Ant {
 	public void step() {
 		encounteredSurpop = false;
 
-		int nArcs = curNode.getDegree();
+		int nArcs = degreeOf(curNode);
 		float totalP = 0;
 		float totalD = 0;
 		float totalC = 0;
 		int totalS = 0; // Total surpop.
-		AntCo2Edge next = null;
 		AntParams params = ctx.getAntParams();
 
-		if (P.length <= nArcs)
-			P = new float[nArcs];
-
 		// int curPop = ((NodeInfos)curNode.getAttribute(
 		// NodeInfos.ATTRIBUTE_NAME )).getAntCountForColor( color );
 		// boolean jump = false;
@@ -185,32 +170,16 @@ public class Vincomyrmex extends Ant {
 			if (params.debug)
 				System.out.printf("Node %s:%n", curNode.getId());
 
-			for (int i = 0; i < nArcs; i++) {
-				AntCo2Edge edge = (AntCo2Edge) curNode.getEdge(i);
+			ScoreVector scores = perceive(nArcs);
 
-				P[i] = (float) Math.pow(correctedPheromonValue(edge),
-						params.alpha)
-						* (float) Math.pow(edge.getValue(), params.beta)
-						* correction(edge);
+			totalP = weigh(scores);
 
-				if (params.debug) {
-					System.out.printf("    P[%d]=%f (cor=%f ph=%f, w=%f)%n", i,
-							P[i], correction(edge),
-							(float) Math.pow(correctedPheromonValue(edge),
-									params.alpha), (float) Math.pow(
-									edge.getValue(), params.beta));
-				}
+			if (scores.tree != null)
+				encounteredSurpop = hubSurpop;
 
-				if (params.perColorOverpop)
-					totalS += ((AntCo2Node) edge.getOpposite(curNode))
-							.getAntCountForColor(colony);
-				else
-					totalS += ((AntCo2Node) edge.getOpposite(curNode))
-							.getTotalAntCount();
-				totalP += P[i];
-				totalD += edge.getPheromon(colony.getIndex());
-				totalC += edge.getPheromonTotal();
-			}
+			totalS = scores.neighbourAnts;
+			totalD = scores.colonyPheromones;
+			totalC = scores.totalPheromones;
 
 			if (params.perColorOverpop)
 				totalS += ((AntCo2Node) curNode).getAntCountForColor(colony);
@@ -242,9 +211,7 @@ public class Vincomyrmex extends Ant {
 					jumpRandomly();
 				// jumpFarAway( 5 );
 			} else {
-				float rp = ctx.random().nextFloat();
-				float ct = 0;
-				float pa = 0;
+				float rp = random().nextFloat();
 
 				if (totalP <= 0) {
 					if (params.debug)
@@ -253,40 +220,7 @@ public class Vincomyrmex extends Ant {
 					// jumpRandomly();
 					jumpFarAway(1); // Not so far.
 				} else {
-					int choosed = -1;
-
-					for (int i = 0; i < nArcs; i++) {
-						AntCo2Edge edge = (AntCo2Edge) curNode.getEdge(i);
-						pa = P[i] / totalP;
-						ct += pa;
-
-						if (ct >= rp) {
-							choosed = i;
-							next = edge;
-							break;
-						}
-					}
-
-					if (next == null) {
-						if (ct < rp)
-							next = (AntCo2Edge) curNode.getEdge(nArcs - 1);
-					}
-
-					// assert ct == 1 :
-					// "sum of all edge probabilities is not 1!! (" + ct + ")";
-
-					if (next == null)
-						throw new RuntimeException("AntCO [step="
-								+ ctx.getCurrentStep()
-								+ "]: no edge choosen above the " + nArcs
-								+ " possible edges! (totalP=" + totalP
-								+ " rand=" + rp + ")");
-
-					if (params.debug)
-						System.out.printf("    -> choosed edge %d (P=%f)%n",
-								choosed, P[choosed]);
-
-					cross(next, true);
+					cross(chooseEdge(scores, totalP, rp), true);
 				}
 			}
 		}
@@ -309,17 +243,4 @@ public class Vincomyrmex extends Ant {
 		super.cross(edge, depositPheromon);
 		remember(curNode);
 	}
-
-	/**
-	 * Add the given node to the ant memory.
-	 * 
-	 * @param node
-	 *            The node to remember.
-	 */
-	protected void remember(AntCo2Node node) {
-		mem.addLast(node);
-
-		if (mem.size() > ctx.getAntParams().mem)
-			mem.removeFirst();
-	}
 }
\ No newline at end of file
@@ -0,0 +1,163 @@
+/*
+ * This file is part of AntCo2.
+ * 
+ * AntCo2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * AntCo2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with AntCo2.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009 - 2010
+ * 	Antoine Dutot
+ * 	Guilhelm Savin
+ */
+package org.graphstream.algorithm.antco2.storage;
+
+import org.graphstream.algorithm.antco2.PheromoneKernel;
+import org.graphstream.algorithm.antco2.PheromoneRows;
+
+/**
+ * Kernel running each pass as a loop over a range of a plain array. The
+ * element-wise passes (evaporation, accumulation) have no dependency between
+ * iterations and are compiled to SIMD instructions by the JIT compiler where
+ * the hardware has them. Sums and the maximum keep the order of the
+ * colonies, so that results do not depend on the kernel.
+ * 
+ * @author adutot, gsavin
+ * 
+ */
+public class ArrayKernel implements PheromoneKernel {
+	/**
+	 * The storage.
+	 */
+	protected final PheromoneRows rows;
+
+	/**
+	 * New kernel.
+	 * 
+	 * @param rows
+	 *            the storage
+	 */
+	public ArrayKernel(PheromoneRows rows) {
+		this.rows = rows;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneKernel#evaporate(int, int,
+	 * float, float)
+	 */
+	public void evaporate(int edge, int colonies, float rho, float floor) {
+		float[] ph = rows.getPheromoneArray(edge);
+		int from = rows.getRowOffset(edge);
+		int to = from + colonies;
+
+		for (int i = from; i < to; i++) {
+			float v = ph[i] * rho;
+			ph[i] = v < floor ? 0 : v;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneKernel#commit(int, int,
+	 * float)
+	 */
+	public float commit(int edge, int colonies, float total) {
+		float[] ph = rows.getPheromoneArray(edge);
+		float[] tmp = rows.getPheromoneTmpArray(edge);
+		int from = rows.getRowOffset(edge);
+		int to = from + colonies;
+
+		for (int i = from; i < to; i++) {
+			float incr = tmp[i];
+
+			ph[i] += incr;
+			total += incr;
+			tmp[i] = 0;
+		}
+
+		return total;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneKernel#step(int, int,
+	 * float, float, boolean)
+	 */
+	public long step(int edge, int colonies, float rho, float floor,
+			boolean drops) {
+		float[] ph = rows.getPheromoneArray(edge);
+		int from = rows.getRowOffset(edge);
+		int to = from + colonies;
+		float total = 0;
+		float max = Float.NEGATIVE_INFINITY;
+		int maxI = -1;
+
+		if (drops) {
+			// Drops are added to the total before the pheromones. The row of
+			// the drops is read twice, but it is still in cache the second
+			// time.
+
+			float[] tmp = rows.getPheromoneTmpArray(edge);
+
+			for (int i = from; i < to; i++)
+				total += tmp[i];
+
+			for (int i = from; i < to; i++) {
+				float v = ph[i] * rho;
+
+				v = (v < floor ? 0 : v) + tmp[i];
+				ph[i] = v;
+				tmp[i] = 0;
+				total += v;
+
+				if (v > max) {
+					max = v;
+					maxI = i - from;
+				}
+			}
+		} else {
+			for (int i = from; i < to; i++) {
+				float v = ph[i] * rho;
+
+				v = v < floor ? 0 : v;
+				ph[i] = v;
+				total += v;
+
+				if (v > max) {
+					max = v;
+					maxI = i - from;
+				}
+			}
+		}
+
+		return ((long) Float.floatToRawIntBits(total) << 32)
+				| (maxI & 0xFFFFFFFFL);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneKernel#accumulate(int,
+	 * int, float, float[])
+	 */
+	public void accumulate(int edge, int colonies, float factor,
+			float[] values) {
+		float[] ph = rows.getPheromoneArray(edge);
+		int from = rows.getRowOffset(edge);
+
+		for (int i = 0; i < colonies; i++)
+			values[i] += ph[from + i] * factor;
+	}
+}
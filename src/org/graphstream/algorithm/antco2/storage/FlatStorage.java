@@ -0,0 +1,378 @@
+/*
+ * This file is part of AntCo2.
+ * 
+ * AntCo2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * AntCo2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with AntCo2.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009 - 2010
+ * 	Antoine Dutot
+ * 	Guilhelm Savin
+ */
+package org.graphstream.algorithm.antco2.storage;
+
+import java.util.Arrays;
+
+import org.graphstream.algorithm.antco2.AntContext;
+import org.graphstream.algorithm.antco2.PheromoneRows;
+import org.graphstream.algorithm.antco2.PheromoneStorage;
+
+/**
+ * Storage packing the values of all edges, and of all nodes, in flat arrays
+ * of rows  colonies. Arrays are split in chunks of {@link #CHUNK_ROWS} rows,
+ * so that growing the graph never copies existing rows and very large graphs
+ * do not hit the maximum size of a Java array.
+ * 
+ * @author adutot, gsavin
+ * 
+ */
+public class FlatStorage implements PheromoneStorage, PheromoneRows {
+	/**
+	 * Log2 of the number of rows in a chunk.
+	 */
+	public static final int CHUNK_SHIFT = 14;
+
+	/**
+	 * Number of rows in a chunk.
+	 */
+	public static final int CHUNK_ROWS = 1 << CHUNK_SHIFT;
+
+	/**
+	 * Mask giving the position of a row in its chunk.
+	 */
+	public static final int CHUNK_MASK = CHUNK_ROWS - 1;
+
+	/**
+	 * Number of colonies in each row.
+	 */
+	protected int colonies;
+
+	/**
+	 * Chunks of committed pheromones.
+	 */
+	protected float[][] pheromones;
+
+	/**
+	 * Chunks of dropped pheromones.
+	 */
+	protected float[][] pheromonesTmp;
+
+	/**
+	 * Chunks of committed ant counts.
+	 */
+	protected int[][] antCounts;
+
+	/**
+	 * Chunks of changed ant counts.
+	 */
+	protected int[][] antCountsTmp;
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneStorage#init(org.graphstream
+	 * .algorithm.antco2.AntContext)
+	 */
+	public void init(AntContext ctx) {
+		colonies = 0;
+		pheromones = new float[0][];
+		pheromonesTmp = new float[0][];
+		antCounts = new int[0][];
+		antCountsTmp = new int[0][];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneStorage#ensureColonyCount(int)
+	 */
+	public void ensureColonyCount(int colonies) {
+		if (colonies > this.colonies) {
+			for (int i = 0; i < pheromones.length; i++) {
+				pheromones[i] = restride(pheromones[i], colonies);
+				pheromonesTmp[i] = restride(pheromonesTmp[i], colonies);
+			}
+
+			for (int i = 0; i < antCounts.length; i++) {
+				antCounts[i] = restride(antCounts[i], colonies);
+				antCountsTmp[i] = restride(antCountsTmp[i], colonies);
+			}
+
+			this.colonies = colonies;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneStorage#ensureEdgeCount(int)
+	 */
+	public void ensureEdgeCount(int edges) {
+		int chunks = (edges + CHUNK_MASK) >>> CHUNK_SHIFT;
+
+		if (chunks > pheromones.length) {
+			int n = pheromones.length;
+
+			pheromones = Arrays.copyOf(pheromones, chunks);
+			pheromonesTmp = Arrays.copyOf(pheromonesTmp, chunks);
+
+			for (int i = n; i < chunks; i++) {
+				pheromones[i] = new float[CHUNK_ROWS * colonies];
+				pheromonesTmp[i] = new float[CHUNK_ROWS * colonies];
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneStorage#ensureNodeCount(int)
+	 */
+	public void ensureNodeCount(int nodes) {
+		int chunks = (nodes + CHUNK_MASK) >>> CHUNK_SHIFT;
+
+		if (chunks > antCounts.length) {
+			int n = antCounts.length;
+
+			antCounts = Arrays.copyOf(antCounts, chunks);
+			antCountsTmp = Arrays.copyOf(antCountsTmp, chunks);
+
+			for (int i = n; i < chunks; i++) {
+				antCounts[i] = new int[CHUNK_ROWS * colonies];
+				antCountsTmp[i] = new int[CHUNK_ROWS * colonies];
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneStorage#clearEdge(int)
+	 */
+	public void clearEdge(int edge) {
+		int c = edge >>> CHUNK_SHIFT;
+		int o = (edge & CHUNK_MASK) * colonies;
+
+		Arrays.fill(pheromones[c], o, o + colonies, 0);
+		Arrays.fill(pheromonesTmp[c], o, o + colonies, 0);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneStorage#clearNode(int)
+	 */
+	public void clearNode(int node) {
+		int c = node >>> CHUNK_SHIFT;
+		int o = (node & CHUNK_MASK) * colonies;
+
+		Arrays.fill(antCounts[c], o, o + colonies, 0);
+		Arrays.fill(antCountsTmp[c], o, o + colonies, 0);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneStorage#moveEdge(int, int)
+	 */
+	public void moveEdge(int from, int to) {
+		int fromChunk = from >>> CHUNK_SHIFT;
+		int fromOffset = (from & CHUNK_MASK) * colonies;
+		int toChunk = to >>> CHUNK_SHIFT;
+		int toOffset = (to & CHUNK_MASK) * colonies;
+
+		System.arraycopy(pheromones[fromChunk], fromOffset,
+				pheromones[toChunk], toOffset, colonies);
+		System.arraycopy(pheromonesTmp[fromChunk], fromOffset,
+				pheromonesTmp[toChunk], toOffset, colonies);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneStorage#moveNode(int, int)
+	 */
+	public void moveNode(int from, int to) {
+		int fromChunk = from >>> CHUNK_SHIFT;
+		int fromOffset = (from & CHUNK_MASK) * colonies;
+		int toChunk = to >>> CHUNK_SHIFT;
+		int toOffset = (to & CHUNK_MASK) * colonies;
+
+		System.arraycopy(antCounts[fromChunk], fromOffset, antCounts[toChunk],
+				toOffset, colonies);
+		System.arraycopy(antCountsTmp[fromChunk], fromOffset,
+				antCountsTmp[toChunk], toOffset, colonies);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneStorage#getPheromone(int,
+	 * int)
+	 */
+	public float getPheromone(int edge, int colony) {
+		return pheromones[edge >>> CHUNK_SHIFT][(edge & CHUNK_MASK) * colonies
+				+ colony];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneStorage#setPheromone(int,
+	 * int, float)
+	 */
+	public void setPheromone(int edge, int colony, float value) {
+		pheromones[edge >>> CHUNK_SHIFT][(edge & CHUNK_MASK) * colonies
+				+ colony] = value;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneStorage#getPheromoneTmp(int,
+	 * int)
+	 */
+	public float getPheromoneTmp(int edge, int colony) {
+		return pheromonesTmp[edge >>> CHUNK_SHIFT][(edge & CHUNK_MASK)
+				* colonies + colony];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneStorage#setPheromoneTmp(int,
+	 * int, float)
+	 */
+	public void setPheromoneTmp(int edge, int colony, float value) {
+		pheromonesTmp[edge >>> CHUNK_SHIFT][(edge & CHUNK_MASK) * colonies
+				+ colony] = value;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneStorage#getAntCount(int,
+	 * int)
+	 */
+	public int getAntCount(int node, int colony) {
+		return antCounts[node >>> CHUNK_SHIFT][(node & CHUNK_MASK) * colonies
+				+ colony];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneStorage#setAntCount(int,
+	 * int, int)
+	 */
+	public void setAntCount(int node, int colony, int count) {
+		antCounts[node >>> CHUNK_SHIFT][(node & CHUNK_MASK) * colonies
+				+ colony] = count;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneStorage#getAntCountTmp(int,
+	 * int)
+	 */
+	public int getAntCountTmp(int node, int colony) {
+		return antCountsTmp[node >>> CHUNK_SHIFT][(node & CHUNK_MASK)
+				* colonies + colony];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneStorage#setAntCountTmp(int,
+	 * int, int)
+	 */
+	public void setAntCountTmp(int node, int colony, int count) {
+		antCountsTmp[node >>> CHUNK_SHIFT][(node & CHUNK_MASK) * colonies
+				+ colony] = count;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneRows#getPheromoneArray(int)
+	 */
+	public float[] getPheromoneArray(int edge) {
+		return pheromones[edge >>> CHUNK_SHIFT];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneRows#getPheromoneTmpArray(int)
+	 */
+	public float[] getPheromoneTmpArray(int edge) {
+		return pheromonesTmp[edge >>> CHUNK_SHIFT];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneRows#getRowOffset(int)
+	 */
+	public int getRowOffset(int edge) {
+		return (edge & CHUNK_MASK) * colonies;
+	}
+
+	/**
+	 * Copy a chunk in a new chunk with more colonies per row.
+	 * 
+	 * @param chunk
+	 *            old chunk
+	 * @param colonies
+	 *            new number of colonies
+	 * @return new chunk
+	 */
+	protected float[] restride(float[] chunk, int colonies) {
+		float[] copy = new float[CHUNK_ROWS * colonies];
+
+		for (int r = 0; r < CHUNK_ROWS; r++)
+			System.arraycopy(chunk, r * this.colonies, copy, r * colonies,
+					this.colonies);
+
+		return copy;
+	}
+
+	/**
+	 * Copy a chunk in a new chunk with more colonies per row.
+	 * 
+	 * @param chunk
+	 *            old chunk
+	 * @param colonies
+	 *            new number of colonies
+	 * @return new chunk
+	 */
+	protected int[] restride(int[] chunk, int colonies) {
+		int[] copy = new int[CHUNK_ROWS * colonies];
+
+		for (int r = 0; r < CHUNK_ROWS; r++)
+			System.arraycopy(chunk, r * this.colonies, copy, r * colonies,
+					this.colonies);
+
+		return copy;
+	}
+}
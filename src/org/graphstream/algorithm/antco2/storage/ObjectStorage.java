@@ -0,0 +1,289 @@
+/*
+ * This file is part of AntCo2.
+ * 
+ * AntCo2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * AntCo2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with AntCo2.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009 - 2010
+ * 	Antoine Dutot
+ * 	Guilhelm Savin
+ */
+package org.graphstream.algorithm.antco2.storage;
+
+import java.util.Arrays;
+
+import org.graphstream.algorithm.antco2.AntContext;
+import org.graphstream.algorithm.antco2.PheromoneRows;
+import org.graphstream.algorithm.antco2.PheromoneStorage;
+
+/**
+ * Storage giving each edge and each node its own small arrays, as elements
+ * used to hold them.
+ * 
+ * @author adutot, gsavin
+ * 
+ */
+public class ObjectStorage implements PheromoneStorage, PheromoneRows {
+	/**
+	 * Number of colonies in each row.
+	 */
+	protected int colonies;
+
+	/**
+	 * Committed pheromones, by edge.
+	 */
+	protected float[][] pheromones;
+
+	/**
+	 * Dropped pheromones, by edge.
+	 */
+	protected float[][] pheromonesTmp;
+
+	/**
+	 * Committed ant counts, by node.
+	 */
+	protected int[][] antCounts;
+
+	/**
+	 * Changed ant counts, by node.
+	 */
+	protected int[][] antCountsTmp;
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneStorage#init(org.graphstream
+	 * .algorithm.antco2.AntContext)
+	 */
+	public void init(AntContext ctx) {
+		colonies = 0;
+		pheromones = new float[16][];
+		pheromonesTmp = new float[16][];
+		antCounts = new int[16][];
+		antCountsTmp = new int[16][];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneStorage#ensureColonyCount(int)
+	 */
+	public void ensureColonyCount(int colonies) {
+		if (colonies > this.colonies) {
+			this.colonies = colonies;
+
+			for (int i = 0; i < pheromones.length; i++) {
+				if (pheromones[i] != null) {
+					pheromones[i] = Arrays.copyOf(pheromones[i], colonies);
+					pheromonesTmp[i] = Arrays.copyOf(pheromonesTmp[i], colonies);
+				}
+			}
+
+			for (int i = 0; i < antCounts.length; i++) {
+				if (antCounts[i] != null) {
+					antCounts[i] = Arrays.copyOf(antCounts[i], colonies);
+					antCountsTmp[i] = Arrays.copyOf(antCountsTmp[i], colonies);
+				}
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneStorage#ensureEdgeCount(int)
+	 */
+	public void ensureEdgeCount(int edges) {
+		if (edges > pheromones.length) {
+			int size = Math.max(edges, pheromones.length * 2);
+
+			pheromones = Arrays.copyOf(pheromones, size);
+			pheromonesTmp = Arrays.copyOf(pheromonesTmp, size);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneStorage#ensureNodeCount(int)
+	 */
+	public void ensureNodeCount(int nodes) {
+		if (nodes > antCounts.length) {
+			int size = Math.max(nodes, antCounts.length * 2);
+
+			antCounts = Arrays.copyOf(antCounts, size);
+			antCountsTmp = Arrays.copyOf(antCountsTmp, size);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneStorage#clearEdge(int)
+	 */
+	public void clearEdge(int edge) {
+		pheromones[edge] = new float[colonies];
+		pheromonesTmp[edge] = new float[colonies];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneStorage#clearNode(int)
+	 */
+	public void clearNode(int node) {
+		antCounts[node] = new int[colonies];
+		antCountsTmp[node] = new int[colonies];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneStorage#moveEdge(int, int)
+	 */
+	public void moveEdge(int from, int to) {
+		pheromones[to] = pheromones[from];
+		pheromonesTmp[to] = pheromonesTmp[from];
+		pheromones[from] = null;
+		pheromonesTmp[from] = null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneStorage#moveNode(int, int)
+	 */
+	public void moveNode(int from, int to) {
+		antCounts[to] = antCounts[from];
+		antCountsTmp[to] = antCountsTmp[from];
+		antCounts[from] = null;
+		antCountsTmp[from] = null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneStorage#getPheromone(int,
+	 * int)
+	 */
+	public float getPheromone(int edge, int colony) {
+		return pheromones[edge][colony];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneStorage#setPheromone(int,
+	 * int, float)
+	 */
+	public void setPheromone(int edge, int colony, float value) {
+		pheromones[edge][colony] = value;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneStorage#getPheromoneTmp(int,
+	 * int)
+	 */
+	public float getPheromoneTmp(int edge, int colony) {
+		return pheromonesTmp[edge][colony];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneStorage#setPheromoneTmp(int,
+	 * int, float)
+	 */
+	public void setPheromoneTmp(int edge, int colony, float value) {
+		pheromonesTmp[edge][colony] = value;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneStorage#getAntCount(int,
+	 * int)
+	 */
+	public int getAntCount(int node, int colony) {
+		return antCounts[node][colony];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneStorage#setAntCount(int,
+	 * int, int)
+	 */
+	public void setAntCount(int node, int colony, int count) {
+		antCounts[node][colony] = count;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneStorage#getAntCountTmp(int,
+	 * int)
+	 */
+	public int getAntCountTmp(int node, int colony) {
+		return antCountsTmp[node][colony];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneStorage#setAntCountTmp(int,
+	 * int, int)
+	 */
+	public void setAntCountTmp(int node, int colony, int count) {
+		antCountsTmp[node][colony] = count;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneRows#getPheromoneArray(int)
+	 */
+	public float[] getPheromoneArray(int edge) {
+		return pheromones[edge];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneRows#getPheromoneTmpArray(int)
+	 */
+	public float[] getPheromoneTmpArray(int edge) {
+		return pheromonesTmp[edge];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneRows#getRowOffset(int)
+	 */
+	public int getRowOffset(int edge) {
+		return 0;
+	}
+}
@@ -0,0 +1,349 @@
+/*
+ * This file is part of AntCo2.
+ * 
+ * AntCo2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * AntCo2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with AntCo2.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009 - 2010
+ * 	Antoine Dutot
+ * 	Guilhelm Savin
+ */
+package org.graphstream.algorithm.antco2.storage;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+import org.graphstream.algorithm.antco2.AntContext;
+import org.graphstream.algorithm.antco2.PheromoneStorage;
+
+import static org.graphstream.algorithm.antco2.storage.FlatStorage.CHUNK_ROWS;
+import static org.graphstream.algorithm.antco2.storage.FlatStorage.CHUNK_SHIFT;
+import static org.graphstream.algorithm.antco2.storage.FlatStorage.CHUNK_MASK;
+
+/**
+ * Same layout as {@link FlatStorage}, but chunks are direct buffers allocated
+ * outside of the Java heap. The garbage collector only sees the few buffer
+ * objects, whatever the number of elements and colonies. Memory of a chunk is
+ * released when its buffer is collected.
+ * 
+ * @author adutot, gsavin
+ * 
+ */
+public class OffHeapStorage implements PheromoneStorage {
+	/**
+	 * Number of colonies in each row.
+	 */
+	protected int colonies;
+
+	/**
+	 * Chunks of committed pheromones.
+	 */
+	protected FloatBuffer[] pheromones;
+
+	/**
+	 * Chunks of dropped pheromones.
+	 */
+	protected FloatBuffer[] pheromonesTmp;
+
+	/**
+	 * Chunks of committed ant counts.
+	 */
+	protected IntBuffer[] antCounts;
+
+	/**
+	 * Chunks of changed ant counts.
+	 */
+	protected IntBuffer[] antCountsTmp;
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneStorage#init(org.graphstream
+	 * .algorithm.antco2.AntContext)
+	 */
+	public void init(AntContext ctx) {
+		colonies = 0;
+		pheromones = new FloatBuffer[0];
+		pheromonesTmp = new FloatBuffer[0];
+		antCounts = new IntBuffer[0];
+		antCountsTmp = new IntBuffer[0];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneStorage#ensureColonyCount(int)
+	 */
+	public void ensureColonyCount(int colonies) {
+		if (colonies > this.colonies) {
+			for (int i = 0; i < pheromones.length; i++) {
+				pheromones[i] = restride(pheromones[i], colonies);
+				pheromonesTmp[i] = restride(pheromonesTmp[i], colonies);
+			}
+
+			for (int i = 0; i < antCounts.length; i++) {
+				antCounts[i] = restride(antCounts[i], colonies);
+				antCountsTmp[i] = restride(antCountsTmp[i], colonies);
+			}
+
+			this.colonies = colonies;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneStorage#ensureEdgeCount(int)
+	 */
+	public void ensureEdgeCount(int edges) {
+		int chunks = (edges + CHUNK_MASK) >>> CHUNK_SHIFT;
+
+		if (chunks > pheromones.length) {
+			int n = pheromones.length;
+
+			pheromones = Arrays.copyOf(pheromones, chunks);
+			pheromonesTmp = Arrays.copyOf(pheromonesTmp, chunks);
+
+			for (int i = n; i < chunks; i++) {
+				pheromones[i] = allocate(CHUNK_ROWS * colonies).asFloatBuffer();
+				pheromonesTmp[i] = allocate(CHUNK_ROWS * colonies)
+						.asFloatBuffer();
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneStorage#ensureNodeCount(int)
+	 */
+	public void ensureNodeCount(int nodes) {
+		int chunks = (nodes + CHUNK_MASK) >>> CHUNK_SHIFT;
+
+		if (chunks > antCounts.length) {
+			int n = antCounts.length;
+
+			antCounts = Arrays.copyOf(antCounts, chunks);
+			antCountsTmp = Arrays.copyOf(antCountsTmp, chunks);
+
+			for (int i = n; i < chunks; i++) {
+				antCounts[i] = allocate(CHUNK_ROWS * colonies).asIntBuffer();
+				antCountsTmp[i] = allocate(CHUNK_ROWS * colonies).asIntBuffer();
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneStorage#clearEdge(int)
+	 */
+	public void clearEdge(int edge) {
+		FloatBuffer ph = pheromones[edge >>> CHUNK_SHIFT];
+		FloatBuffer tmp = pheromonesTmp[edge >>> CHUNK_SHIFT];
+		int o = (edge & CHUNK_MASK) * colonies;
+
+		for (int i = 0; i < colonies; i++) {
+			ph.put(o + i, 0);
+			tmp.put(o + i, 0);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneStorage#clearNode(int)
+	 */
+	public void clearNode(int node) {
+		IntBuffer counts = antCounts[node >>> CHUNK_SHIFT];
+		IntBuffer tmp = antCountsTmp[node >>> CHUNK_SHIFT];
+		int o = (node & CHUNK_MASK) * colonies;
+
+		for (int i = 0; i < colonies; i++) {
+			counts.put(o + i, 0);
+			tmp.put(o + i, 0);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneStorage#moveEdge(int, int)
+	 */
+	public void moveEdge(int from, int to) {
+		for (int i = 0; i < colonies; i++) {
+			setPheromone(to, i, getPheromone(from, i));
+			setPheromoneTmp(to, i, getPheromoneTmp(from, i));
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneStorage#moveNode(int, int)
+	 */
+	public void moveNode(int from, int to) {
+		for (int i = 0; i < colonies; i++) {
+			setAntCount(to, i, getAntCount(from, i));
+			setAntCountTmp(to, i, getAntCountTmp(from, i));
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneStorage#getPheromone(int,
+	 * int)
+	 */
+	public float getPheromone(int edge, int colony) {
+		return pheromones[edge >>> CHUNK_SHIFT].get((edge & CHUNK_MASK)
+				* colonies + colony);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneStorage#setPheromone(int,
+	 * int, float)
+	 */
+	public void setPheromone(int edge, int colony, float value) {
+		pheromones[edge >>> CHUNK_SHIFT].put((edge & CHUNK_MASK) * colonies
+				+ colony, value);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneStorage#getPheromoneTmp(int,
+	 * int)
+	 */
+	public float getPheromoneTmp(int edge, int colony) {
+		return pheromonesTmp[edge >>> CHUNK_SHIFT].get((edge & CHUNK_MASK)
+				* colonies + colony);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneStorage#setPheromoneTmp(int,
+	 * int, float)
+	 */
+	public void setPheromoneTmp(int edge, int colony, float value) {
+		pheromonesTmp[edge >>> CHUNK_SHIFT].put((edge & CHUNK_MASK) * colonies
+				+ colony, value);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneStorage#getAntCount(int,
+	 * int)
+	 */
+	public int getAntCount(int node, int colony) {
+		return antCounts[node >>> CHUNK_SHIFT].get((node & CHUNK_MASK)
+				* colonies + colony);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneStorage#setAntCount(int,
+	 * int, int)
+	 */
+	public void setAntCount(int node, int colony, int count) {
+		antCounts[node >>> CHUNK_SHIFT].put((node & CHUNK_MASK) * colonies
+				+ colony, count);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneStorage#getAntCountTmp(int,
+	 * int)
+	 */
+	public int getAntCountTmp(int node, int colony) {
+		return antCountsTmp[node >>> CHUNK_SHIFT].get((node & CHUNK_MASK)
+				* colonies + colony);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneStorage#setAntCountTmp(int,
+	 * int, int)
+	 */
+	public void setAntCountTmp(int node, int colony, int count) {
+		antCountsTmp[node >>> CHUNK_SHIFT].put((node & CHUNK_MASK) * colonies
+				+ colony, count);
+	}
+
+	/**
+	 * Allocate a zeroed direct buffer of 4-byte values in the native order.
+	 * 
+	 * @param size
+	 *            number of values
+	 * @return the buffer
+	 */
+	protected static ByteBuffer allocate(int size) {
+		return ByteBuffer.allocateDirect(size * 4).order(ByteOrder.nativeOrder());
+	}
+
+	/**
+	 * Copy a chunk in a new chunk with more colonies per row.
+	 * 
+	 * @param chunk
+	 *            old chunk
+	 * @param colonies
+	 *            new number of colonies
+	 * @return new chunk
+	 */
+	protected FloatBuffer restride(FloatBuffer chunk, int colonies) {
+		FloatBuffer copy = allocate(CHUNK_ROWS * colonies).asFloatBuffer();
+
+		for (int r = 0; r < CHUNK_ROWS; r++)
+			for (int c = 0; c < this.colonies; c++)
+				copy.put(r * colonies + c, chunk.get(r * this.colonies + c));
+
+		return copy;
+	}
+
+	/**
+	 * Copy a chunk in a new chunk with more colonies per row.
+	 * 
+	 * @param chunk
+	 *            old chunk
+	 * @param colonies
+	 *            new number of colonies
+	 * @return new chunk
+	 */
+	protected IntBuffer restride(IntBuffer chunk, int colonies) {
+		IntBuffer copy = allocate(CHUNK_ROWS * colonies).asIntBuffer();
+
+		for (int r = 0; r < CHUNK_ROWS; r++)
+			for (int c = 0; c < this.colonies; c++)
+				copy.put(r * colonies + c, chunk.get(r * this.colonies + c));
+
+		return copy;
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * This file is part of AntCo2.
+ * 
+ * AntCo2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * AntCo2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with AntCo2.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009 - 2010
+ * 	Antoine Dutot
+ * 	Guilhelm Savin
+ */
+package org.graphstream.algorithm.antco2.storage;
+
+import org.graphstream.algorithm.antco2.PheromoneKernel;
+import org.graphstream.algorithm.antco2.PheromoneStorage;
+
+/**
+ * Kernel going through the accessors of any dense storage, one value at a
+ * time. This is the fallback when the storage does not expose its arrays.
+ * 
+ * @author adutot, gsavin
+ * 
+ */
+public class ScalarKernel implements PheromoneKernel {
+	/**
+	 * The storage.
+	 */
+	protected final PheromoneStorage storage;
+
+	/**
+	 * New kernel.
+	 * 
+	 * @param storage
+	 *            the storage
+	 */
+	public ScalarKernel(PheromoneStorage storage) {
+		this.storage = storage;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneKernel#evaporate(int, int,
+	 * float, float)
+	 */
+	public void evaporate(int edge, int colonies, float rho, float floor) {
+		for (int i = 0; i < colonies; i++) {
+			float ph = storage.getPheromone(edge, i) * rho;
+
+			if (ph < floor)
+				ph = 0;
+
+			storage.setPheromone(edge, i, ph);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneKernel#commit(int, int,
+	 * float)
+	 */
+	public float commit(int edge, int colonies, float total) {
+		for (int i = 0; i < colonies; i++) {
+			float incr = storage.getPheromoneTmp(edge, i);
+
+			storage.setPheromone(edge, i, storage.getPheromone(edge, i) + incr);
+			total += incr;
+			storage.setPheromoneTmp(edge, i, 0);
+		}
+
+		return total;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneKernel#step(int, int,
+	 * float, float, boolean)
+	 */
+	public long step(int edge, int colonies, float rho, float floor,
+			boolean drops) {
+		float total = 0;
+		float max = Float.NEGATIVE_INFINITY;
+		int maxI = -1;
+
+		if (drops) {
+			for (int i = 0; i < colonies; i++)
+				total += storage.getPheromoneTmp(edge, i);
+		}
+
+		for (int i = 0; i < colonies; i++) {
+			float ph = storage.getPheromone(edge, i) * rho;
+
+			if (ph < floor)
+				ph = 0;
+
+			if (drops) {
+				ph += storage.getPheromoneTmp(edge, i);
+				storage.setPheromoneTmp(edge, i, 0);
+			}
+
+			storage.setPheromone(edge, i, ph);
+			total += ph;
+
+			if (ph > max) {
+				max = ph;
+				maxI = i;
+			}
+		}
+
+		return ((long) Float.floatToRawIntBits(total) << 32)
+				| (maxI & 0xFFFFFFFFL);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneKernel#accumulate(int,
+	 * int, float, float[])
+	 */
+	public void accumulate(int edge, int colonies, float factor,
+			float[] values) {
+		for (int i = 0; i < colonies; i++)
+			values[i] += storage.getPheromone(edge, i) * factor;
+	}
+}
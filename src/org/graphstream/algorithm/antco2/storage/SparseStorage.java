@@ -0,0 +1,509 @@
+/*
+ * This file is part of AntCo2.
+ * 
+ * AntCo2 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * AntCo2 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with AntCo2.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2009 - 2010
+ * 	Antoine Dutot
+ * 	Guilhelm Savin
+ */
+package org.graphstream.algorithm.antco2.storage;
+
+import java.util.Arrays;
+
+import org.graphstream.algorithm.antco2.AntContext;
+import org.graphstream.algorithm.antco2.AntParams;
+import org.graphstream.algorithm.antco2.SparsePheromoneStorage;
+
+/**
+ * Sparse storage keeping at most {@link AntParams#sparseColonies} entries of
+ * pheromones per edge, in flat arrays of rows  entries, whatever the number
+ * of colonies. When an edge has no room left, the entry with the least
+ * pheromones is dropped to the floor ({@link AntParams#sparseFloor}). Adding a
+ * colony does not touch the edges.
+ * 
+ * Ant counts of nodes are kept in small arrays per node, as in
+ * {@link ObjectStorage}.
+ * 
+ * @author adutot, gsavin
+ * 
+ */
+public class SparseStorage implements SparsePheromoneStorage {
+	/**
+	 * Number of colonies in the rows of nodes.
+	 */
+	protected int colonies;
+
+	/**
+	 * Maximum number of entries of an edge.
+	 */
+	protected int width;
+
+	/**
+	 * Pheromones of colonies without entry.
+	 */
+	protected float floor;
+
+	/**
+	 * Colony of each entry, by edge then entry.
+	 */
+	protected int[] entryColonies;
+
+	/**
+	 * Committed pheromones of each entry, by edge then entry.
+	 */
+	protected float[] entryPheromones;
+
+	/**
+	 * Number of entries of each edge.
+	 */
+	protected int[] entryCounts;
+
+	/**
+	 * Colony of each drop, by edge. Null until the edge gets drops.
+	 */
+	protected int[][] dropColonies;
+
+	/**
+	 * Pheromones of each drop, by edge.
+	 */
+	protected float[][] dropPheromones;
+
+	/**
+	 * Number of drops of each edge.
+	 */
+	protected int[] dropCounts;
+
+	/**
+	 * Committed ant counts, by node.
+	 */
+	protected int[][] antCounts;
+
+	/**
+	 * Changed ant counts, by node.
+	 */
+	protected int[][] antCountsTmp;
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneStorage#init(org.graphstream
+	 * .algorithm.antco2.AntContext)
+	 */
+	public void init(AntContext ctx) {
+		AntParams params = ctx.getAntParams();
+
+		colonies = 0;
+		width = Math.max(1, params.sparseColonies);
+		floor = params.sparseFloor;
+		entryColonies = new int[16 * width];
+		entryPheromones = new float[16 * width];
+		entryCounts = new int[16];
+		dropColonies = new int[16][];
+		dropPheromones = new float[16][];
+		dropCounts = new int[16];
+		antCounts = new int[16][];
+		antCountsTmp = new int[16][];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneStorage#ensureColonyCount(int)
+	 */
+	public void ensureColonyCount(int colonies) {
+		if (colonies > this.colonies) {
+			this.colonies = colonies;
+
+			for (int i = 0; i < antCounts.length; i++) {
+				if (antCounts[i] != null) {
+					antCounts[i] = Arrays.copyOf(antCounts[i], colonies);
+					antCountsTmp[i] = Arrays.copyOf(antCountsTmp[i], colonies);
+				}
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneStorage#ensureEdgeCount(int)
+	 */
+	public void ensureEdgeCount(int edges) {
+		if (edges > entryCounts.length) {
+			int size = Math.max(edges, entryCounts.length * 2);
+
+			entryColonies = Arrays.copyOf(entryColonies, size * width);
+			entryPheromones = Arrays.copyOf(entryPheromones, size * width);
+			entryCounts = Arrays.copyOf(entryCounts, size);
+			dropColonies = Arrays.copyOf(dropColonies, size);
+			dropPheromones = Arrays.copyOf(dropPheromones, size);
+			dropCounts = Arrays.copyOf(dropCounts, size);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneStorage#ensureNodeCount(int)
+	 */
+	public void ensureNodeCount(int nodes) {
+		if (nodes > antCounts.length) {
+			int size = Math.max(nodes, antCounts.length * 2);
+
+			antCounts = Arrays.copyOf(antCounts, size);
+			antCountsTmp = Arrays.copyOf(antCountsTmp, size);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneStorage#clearEdge(int)
+	 */
+	public void clearEdge(int edge) {
+		entryCounts[edge] = 0;
+		clearDrops(edge);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneStorage#clearNode(int)
+	 */
+	public void clearNode(int node) {
+		antCounts[node] = new int[colonies];
+		antCountsTmp[node] = new int[colonies];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneStorage#moveEdge(int, int)
+	 */
+	public void moveEdge(int from, int to) {
+		System.arraycopy(entryColonies, from * width, entryColonies, to
+				* width, width);
+		System.arraycopy(entryPheromones, from * width, entryPheromones, to
+				* width, width);
+
+		entryCounts[to] = entryCounts[from];
+		dropColonies[to] = dropColonies[from];
+		dropPheromones[to] = dropPheromones[from];
+		dropCounts[to] = dropCounts[from];
+		entryCounts[from] = 0;
+		dropColonies[from] = null;
+		dropPheromones[from] = null;
+		dropCounts[from] = 0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneStorage#moveNode(int, int)
+	 */
+	public void moveNode(int from, int to) {
+		antCounts[to] = antCounts[from];
+		antCountsTmp[to] = antCountsTmp[from];
+		antCounts[from] = null;
+		antCountsTmp[from] = null;
+	}
+
+	/**
+	 * Position of the entry of a colony in the flat arrays.
+	 * 
+	 * @param edge
+	 *            row of the edge
+	 * @param colony
+	 *            index of the colony
+	 * @return the position, or -1 if the colony has no entry
+	 */
+	protected int entry(int edge, int colony) {
+		int from = edge * width;
+		int to = from + entryCounts[edge];
+
+		for (int i = from; i < to; i++)
+			if (entryColonies[i] == colony)
+				return i;
+
+		return -1;
+	}
+
+	/**
+	 * Remove an entry, moving the last entry of the edge in its place.
+	 * 
+	 * @param edge
+	 *            row of the edge
+	 * @param position
+	 *            position of the entry in the flat arrays
+	 */
+	protected void removeEntry(int edge, int position) {
+		int last = edge * width + --entryCounts[edge];
+
+		entryColonies[position] = entryColonies[last];
+		entryPheromones[position] = entryPheromones[last];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneStorage#getPheromone(int,
+	 * int)
+	 */
+	public float getPheromone(int edge, int colony) {
+		int p = entry(edge, colony);
+
+		return p < 0 ? floor : entryPheromones[p];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneStorage#setPheromone(int,
+	 * int, float)
+	 */
+	public void setPheromone(int edge, int colony, float value) {
+		int p = entry(edge, colony);
+
+		if (value <= floor) {
+			if (p >= 0)
+				removeEntry(edge, p);
+		} else if (p >= 0) {
+			entryPheromones[p] = value;
+		} else if (entryCounts[edge] < width) {
+			p = edge * width + entryCounts[edge]++;
+			entryColonies[p] = colony;
+			entryPheromones[p] = value;
+		} else {
+			int from = edge * width;
+			int min = from;
+
+			for (int i = from + 1; i < from + width; i++)
+				if (entryPheromones[i] < entryPheromones[min])
+					min = i;
+
+			if (entryPheromones[min] < value) {
+				entryColonies[min] = colony;
+				entryPheromones[min] = value;
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneStorage#getPheromoneTmp(int,
+	 * int)
+	 */
+	public float getPheromoneTmp(int edge, int colony) {
+		for (int i = 0; i < dropCounts[edge]; i++)
+			if (dropColonies[edge][i] == colony)
+				return dropPheromones[edge][i];
+
+		return 0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneStorage#setPheromoneTmp(int,
+	 * int, float)
+	 */
+	public void setPheromoneTmp(int edge, int colony, float value) {
+		int n = dropCounts[edge];
+
+		for (int i = 0; i < n; i++) {
+			if (dropColonies[edge][i] == colony) {
+				dropPheromones[edge][i] = value;
+				return;
+			}
+		}
+
+		if (value == 0)
+			return;
+
+		if (dropColonies[edge] == null) {
+			dropColonies[edge] = new int[2];
+			dropPheromones[edge] = new float[2];
+		} else if (n == dropColonies[edge].length) {
+			dropColonies[edge] = Arrays.copyOf(dropColonies[edge], n * 2);
+			dropPheromones[edge] = Arrays.copyOf(dropPheromones[edge], n * 2);
+		}
+
+		dropColonies[edge][n] = colony;
+		dropPheromones[edge][n] = value;
+		dropCounts[edge] = n + 1;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneStorage#getAntCount(int,
+	 * int)
+	 */
+	public int getAntCount(int node, int colony) {
+		return antCounts[node][colony];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.PheromoneStorage#setAntCount(int,
+	 * int, int)
+	 */
+	public void setAntCount(int node, int colony, int count) {
+		antCounts[node][colony] = count;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneStorage#getAntCountTmp(int,
+	 * int)
+	 */
+	public int getAntCountTmp(int node, int colony) {
+		return antCountsTmp[node][colony];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.PheromoneStorage#setAntCountTmp(int,
+	 * int, int)
+	 */
+	public void setAntCountTmp(int node, int colony, int count) {
+		antCountsTmp[node][colony] = count;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.graphstream.algorithm.antco2.SparsePheromoneStorage#getFloor()
+	 */
+	public float getFloor() {
+		return floor;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.SparsePheromoneStorage#getEntryCount
+	 * (int)
+	 */
+	public int getEntryCount(int edge) {
+		return entryCounts[edge];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.SparsePheromoneStorage#getEntryColony
+	 * (int, int)
+	 */
+	public int getEntryColony(int edge, int entry) {
+		return entryColonies[edge * width + entry];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.SparsePheromoneStorage#getEntryPheromone
+	 * (int, int)
+	 */
+	public float getEntryPheromone(int edge, int entry) {
+		return entryPheromones[edge * width + entry];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.SparsePheromoneStorage#scaleEntries(int,
+	 * float)
+	 */
+	public void scaleEntries(int edge, float factor) {
+		int from = edge * width;
+
+		for (int i = from + entryCounts[edge] - 1; i >= from; i--) {
+			float value = entryPheromones[i] * factor;
+
+			if (value <= floor)
+				removeEntry(edge, i);
+			else
+				entryPheromones[i] = value;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.SparsePheromoneStorage#getDropCount(int)
+	 */
+	public int getDropCount(int edge) {
+		return dropCounts[edge];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.SparsePheromoneStorage#getDropColony
+	 * (int, int)
+	 */
+	public int getDropColony(int edge, int drop) {
+		return dropColonies[edge][drop];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.SparsePheromoneStorage#getDropPheromone
+	 * (int, int)
+	 */
+	public float getDropPheromone(int edge, int drop) {
+		return dropPheromones[edge][drop];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.graphstream.algorithm.antco2.SparsePheromoneStorage#clearDrops(int)
+	 */
+	public void clearDrops(int edge) {
+		dropCounts[edge] = 0;
+
+		// A step where many colonies dropped on the edge does not leave it
+		// with room for all of them.
+
+		if (dropColonies[edge] != null
+				&& dropColonies[edge].length > 2 * width) {
+			dropColonies[edge] = new int[width];
+			dropPheromones[edge] = new float[width];
+		}
+	}
+}